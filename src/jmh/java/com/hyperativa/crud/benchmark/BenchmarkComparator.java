@@ -0,0 +1,122 @@
+package com.hyperativa.crud.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compara o resultado do JMH ({@code -rf json}) com a baseline versionada e termina com código 1 se algum benchmark
+ * presente nas duas piorou mais que a tolerância: score (vazão menor ou tempo por operação maior) ou
+ * {@code gc.alloc.rate.norm} (bytes alocados por operação). Benchmarks sem baseline são só listados.
+ *
+ * <p>Argumentos: {@code <baseline.json> <resultado.json> [tolerância, padrão 0.10]}.
+ */
+public final class BenchmarkComparator {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // variação de alocação abaixo disso (ex.: um objeto a mais amortizado) não conta como regressão
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private BenchmarkComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: BenchmarkComparator <baseline.json> <resultado.json> [tolerância]");
+            System.exit(2);
+        }
+        Path baselineFile = Path.of(args[0]);
+        Path resultFile = Path.of(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        if (!Files.exists(resultFile)) {
+            System.err.println("Resultado do JMH não encontrado: " + resultFile);
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = Files.exists(baselineFile) ? read(baselineFile) : Map.of();
+        List<String> regressions = compare(baseline, read(resultFile), tolerance);
+        if (!regressions.isEmpty()) {
+            System.out.println();
+            System.out.printf(Locale.ROOT, "%d regressão(ões) acima de %.0f%% em relação a %s:%n",
+                    regressions.size(), tolerance * 100, baselineFile);
+            regressions.forEach(regression -> System.out.println("  " + regression));
+            System.exit(1);
+        }
+    }
+
+    static List<String> compare(Map<String, JsonNode> baseline, Map<String, JsonNode> current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf(Locale.ROOT, "%-56s %18s %18s %9s %12s %12s%n",
+                "Benchmark", "Baseline", "Atual", "Variação", "B/op base", "B/op atual");
+        current.forEach((name, result) -> {
+            JsonNode reference = baseline.get(name);
+            JsonNode metric = result.path("primaryMetric");
+            double score = metric.path("score").asDouble();
+            String unit = metric.path("scoreUnit").asText();
+            double allocation = allocation(result);
+            if (reference == null) {
+                System.out.printf(Locale.ROOT, "%-56s %18s %18s %9s %12s %12s%n",
+                        name, "-", format(score, unit), "sem base", "-", bytes(allocation));
+                return;
+            }
+            double referenceScore = reference.path("primaryMetric").path("score").asDouble();
+            double referenceAllocation = allocation(reference);
+            // positivo = pior, nos dois sentidos de unidade
+            double change = higherIsBetter(unit)
+                    ? (referenceScore - score) / referenceScore
+                    : (score - referenceScore) / referenceScore;
+            System.out.printf(Locale.ROOT, "%-56s %18s %18s %+8.1f%% %12s %12s%n",
+                    name, format(referenceScore, unit), format(score, unit), change == 0 ? 0 : -change * 100,
+                    bytes(referenceAllocation), bytes(allocation));
+            if (change > tolerance) {
+                regressions.add(String.format(Locale.ROOT, "%s: %s -> %s (%.1f%% pior)",
+                        name, format(referenceScore, unit), format(score, unit), change * 100));
+            }
+            if (referenceAllocation >= 0 && allocation >= 0
+                    && allocation - referenceAllocation > Math.max(ALLOCATION_SLACK_BYTES, referenceAllocation * tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: alocação %s -> %s por operação",
+                        name, bytes(referenceAllocation), bytes(allocation)));
+            }
+        });
+        return regressions;
+    }
+
+    /**
+     * Resultados indexados por benchmark e parâmetros ({@code @Param}), na ordem do arquivo.
+     */
+    static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder name = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.hyperativa.crud.benchmark.", ""));
+            result.path("params").fields().forEachRemaining(param ->
+                    name.append(':').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(name.toString(), result);
+        }
+        return results;
+    }
+
+    private static boolean higherIsBetter(String unit) {
+        return unit.startsWith("ops/");
+    }
+
+    private static double allocation(JsonNode result) {
+        JsonNode metric = result.path("secondaryMetrics").path(ALLOCATION);
+        return metric.isMissingNode() ? -1 : metric.path("score").asDouble();
+    }
+
+    private static String format(double score, String unit) {
+        return String.format(Locale.ROOT, "%.3f %s", score, unit);
+    }
+
+    private static String bytes(double allocation) {
+        return allocation < 0 ? "-" : String.format(Locale.ROOT, "%.1f", allocation);
+    }
+}
@@ -0,0 +1,164 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.domain.model.CardNumbers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Carga em malha fechada sobre {@code GET /cards/exists} de uma aplicação já em execução, para comparar o modo
+ * padrão com o de virtual threads ({@code VIRTUAL_THREADS_ENABLED=true}, build {@code -Pjava21}). Para cada nível de
+ * concorrência, {@code N} clientes repetem consultas de cartões previamente cadastrados durante a duração
+ * configurada; ao final são impressos vazão, erros e percentis de latência. Os cartões têm dígito verificador de
+ * Luhn válido, senão o cadastro os recusaria e as consultas medidas seriam 404.
+ * <p>
+ * Parâmetros (propriedades de sistema): {@code load.url} (http://localhost:8080), {@code load.username} e
+ * {@code load.password} (loadtest/loadtest, registrado se não existir), {@code load.cards} (1000 cartões
+ * cadastrados antes da medição), {@code load.concurrency} (50,200,800) e {@code load.duration-seconds} (30).
+ */
+public final class CardExistsLoadTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final long FIRST_CARD = 400_000_000_000_000L;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String url = System.getProperty("load.url", "http://localhost:8080");
+    private final int cards = Integer.getInteger("load.cards", 1000);
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration-seconds", 30));
+    private String token;
+
+    public static void main(String[] args) throws Exception {
+        CardExistsLoadTest loadTest = new CardExistsLoadTest();
+        loadTest.authenticate(System.getProperty("load.username", "loadtest"), System.getProperty("load.password", "loadtest"));
+        loadTest.seed();
+        System.out.printf("%11s %12s %8s %10s %10s %10s %10s%n", "concorrência", "req/s", "erros", "p50 ms", "p99 ms", "p99.9 ms", "máx ms");
+        for (String level : System.getProperty("load.concurrency", "50,200,800").split(",")) {
+            loadTest.run(Integer.parseInt(level.trim()));
+        }
+    }
+
+    private void authenticate(String username, String password) throws Exception {
+        String credentials = "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+        post("/auth/register", credentials);
+        HttpResponse<String> login = post("/auth/login", credentials);
+        Matcher matcher = TOKEN.matcher(login.body());
+        if (login.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Login falhou: HTTP " + login.statusCode());
+        }
+        token = matcher.group(1);
+    }
+
+    private void seed() throws Exception {
+        for (int i = 0; i < cards; i++) {
+            HttpResponse<String> response = post("/cards", "{\"cardNumber\":\"" + cardNumber(i) + "\"}");
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Cadastro do cartão " + i + " falhou: HTTP " + response.statusCode());
+            }
+        }
+    }
+
+    private void run(int concurrency) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> client(deadline)));
+            }
+            Result total = new Result();
+            for (Future<Result> future : futures) {
+                total.merge(future.get());
+            }
+            long[] latencies = Arrays.copyOf(total.latencies, total.count);
+            Arrays.sort(latencies);
+            System.out.printf("%11d %12.0f %8d %10.2f %10.2f %10.2f %10.2f%n", concurrency,
+                    total.count / (double) duration.toSeconds(), total.errors,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    percentile(latencies, 1.0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result client(long deadline) {
+        Result result = new Result();
+        while (System.nanoTime() < deadline) {
+            String card = cardNumber(ThreadLocalRandom.current().nextInt(cards));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/cards/exists?number=" + card))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                result.record(System.nanoTime() - start, status != 200);
+            } catch (Exception e) {
+                result.record(System.nanoTime() - start, true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Número de 16 dígitos com dígito verificador de Luhn, o mesmo a cada execução para o cadastro ser idempotente.
+     */
+    private static String cardNumber(int sequence) {
+        String digits = Long.toString(FIRST_CARD + sequence);
+        return digits + CardNumbers.luhnCheckDigit(digits);
+    }
+
+    private HttpResponse<String> post(String path, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class Result {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        private void record(long nanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (error) {
+                errors++;
+            }
+        }
+
+        private void merge(Result other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], false);
+            }
+            errors += other.errors;
+        }
+    }
+}
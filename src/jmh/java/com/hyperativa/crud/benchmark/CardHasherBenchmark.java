@@ -0,0 +1,53 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.security.CardHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o hash anterior do {@code CardService} (MessageDigest novo, {@code getBytes()} e Base64 por chamada)
+ * com o {@link CardHasher}. Rodar com {@code -prof gc} para comparar {@code gc.alloc.rate.norm} por operação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardHasherBenchmark {
+
+    private final CardHasher cardHasher = new CardHasher();
+    private final String cardNumber = "4111111111111111";
+    private final char[] cardNumberChars = cardNumber.toCharArray();
+    private final byte[] cardNumberBytes = cardNumber.getBytes(StandardCharsets.US_ASCII);
+    private final byte[] out = new byte[CardHasher.HASH_LENGTH];
+
+    @Benchmark
+    public String legacyBase64() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return Base64.getEncoder().encodeToString(digest.digest(cardNumber.getBytes()));
+    }
+
+    @Benchmark
+    public byte[] hasherString() {
+        return cardHasher.hash(cardNumber);
+    }
+
+    @Benchmark
+    public byte[] hasherChars() {
+        return cardHasher.hash(cardNumberChars, 0, cardNumberChars.length);
+    }
+
+    @Benchmark
+    public byte[] hasherIntoBuffer() {
+        cardHasher.hash(cardNumberBytes, 0, cardNumberBytes.length, out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,84 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.security.CardHasher;
+import com.hyperativa.crud.service.CardIdIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência de consulta do {@link CardIdIndex} com {@code entries} cartões (carga de 50%), para acertos e ausências.
+ * Em modo {@code SampleTime}, o relatório inclui os percentis (p99, p99.9) por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardIdIndexBenchmark {
+
+    private static final int SAMPLE_SIZE = 1 << 16;
+
+    @Param("1000000")
+    private int entries;
+
+    private Path file;
+    private CardIdIndex index;
+    private CardHash[] present;
+    private CardHash[] absent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("card-index", ".bin");
+        index = new CardIdIndex(null);
+        DirectFieldAccessor fields = new DirectFieldAccessor(index);
+        fields.setPropertyValue("enabled", true);
+        fields.setPropertyValue("path", file);
+        fields.setPropertyValue("capacity", entries * 2L);
+        index.open();
+
+        CardHasher cardHasher = new CardHasher();
+        present = new CardHash[SAMPLE_SIZE];
+        absent = new CardHash[SAMPLE_SIZE];
+        for (int i = 0; i < entries; i++) {
+            CardHash hash = new CardHash(cardHasher.hash(String.valueOf(4_000_000_000_000L + i)));
+            index.put(hash, i + 1);
+            if (i < SAMPLE_SIZE) {
+                present[i] = hash;
+            }
+        }
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            absent[i] = new CardHash(cardHasher.hash(String.valueOf(5_000_000_000_000L + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Optional<Long> findPresent() {
+        return index.find(present[ThreadLocalRandom.current().nextInt(SAMPLE_SIZE)]);
+    }
+
+    @Benchmark
+    public Optional<Long> findAbsent() {
+        return index.find(absent[ThreadLocalRandom.current().nextInt(SAMPLE_SIZE)]);
+    }
+}
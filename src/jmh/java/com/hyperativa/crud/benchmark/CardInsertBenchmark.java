@@ -0,0 +1,105 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Taxa de INSERT de cartões no MySQL local (o do {@code compose.yaml}), em linhas por segundo:
+ * <ul>
+ *     <li>{@code identityPerRow}: um INSERT por linha com id {@code AUTO_INCREMENT} lido de volta, como o
+ *     Hibernate faz com {@code GenerationType.IDENTITY};</li>
+ *     <li>{@code snowflakeBatch}: ids gerados na aplicação e {@value #BATCH_SIZE} linhas por lote, reescritas pelo
+ *     driver em um INSERT multi-linha ({@code rewriteBatchedStatements=true}).</li>
+ * </ul>
+ * Conexão configurável por {@code -Dbenchmark.mysql.url}, {@code .user} e {@code .password}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CardInsertBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String TABLE = "cards_insert_benchmark";
+    private static final String INSERT_IDENTITY = "INSERT INTO " + TABLE + " (card_hash, encrypted_card_number) VALUES (?, ?)";
+    private static final String INSERT_WITH_ID = "INSERT INTO " + TABLE + " (id, card_hash, encrypted_card_number) VALUES (?, ?, ?)";
+
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+    private final AtomicLong sequence = new AtomicLong();
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.mysql.url", "jdbc:mysql://localhost:3306/mydatabase?rewriteBatchedStatements=true"),
+                System.getProperty("benchmark.mysql.user", "myuser"),
+                System.getProperty("benchmark.mysql.password", "secret"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "card_hash BINARY(32) NOT NULL UNIQUE, encrypted_card_number VARCHAR(255) NOT NULL)");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long identityPerRow() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_IDENTITY, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                statement.setBytes(1, nextHash());
+                statement.setString(2, "v1:benchmark");
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        return lastId;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] snowflakeBatch() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_WITH_ID)) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                statement.setLong(1, idGenerator.nextId());
+                statement.setBytes(2, nextHash());
+                statement.setString(3, "v1:benchmark");
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+
+    private byte[] nextHash() {
+        return ByteBuffer.allocate(32).putLong(sequence.incrementAndGet()).array();
+    }
+}
@@ -0,0 +1,64 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.config.ReadYourWrites;
+import com.hyperativa.crud.security.CardCipher;
+import com.hyperativa.crud.security.CardHasher;
+import com.hyperativa.crud.service.CardBloomFilter;
+import com.hyperativa.crud.service.CardIdIndex;
+import com.hyperativa.crud.service.CardLookup;
+import com.hyperativa.crud.service.CardMetrics;
+import com.hyperativa.crud.service.CardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parte da consulta de cartão que não faz I/O ({@link CardService#lookup}: hash com o timer de métricas, filtro de
+ * Bloom ainda não carregado e índice desligado) e a cifra/decifra de um número pelo {@link CardCipher}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardServiceBenchmark {
+
+    private static final String SECRET = "X7kP9mN2vQ8rT4wY1zA5bC3dE6fG0hJ2iL5nO7pR9sU2tV4xZ6";
+
+    private final String cardNumber = "4111111111111111";
+    private CardService cardService;
+    private CardCipher cardCipher;
+    private String encrypted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cardCipher = new CardCipher(SECRET, "");
+        cardService = new CardService(null, new CardHasher(), cardCipher, new CardBloomFilter(null, meterRegistry),
+                new CardIdIndex(null), null, new ReadYourWrites(Duration.ZERO, Duration.ZERO, 0),
+                new CardMetrics(meterRegistry));
+        encrypted = cardCipher.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public CardLookup lookup() {
+        return cardService.lookup(cardNumber);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return cardCipher.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return cardCipher.decrypt(encrypted);
+    }
+}
@@ -0,0 +1,65 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.domain.model.User;
+import com.hyperativa.crud.security.SecurityFilter;
+import com.hyperativa.crud.security.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do {@link SecurityFilter} por requisição autenticada: leitura do cabeçalho {@code Authorization}, extração
+ * do token, validação (acerto no cache de tokens verificados) e preenchimento do {@code SecurityContext}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecurityFilterBenchmark {
+
+    private static final String SECRET = "X7kP9mN2vQ8rT4wY1zA5bC3dE6fG0hJ2iL5nO7pR9sU2tV4xZ6";
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (request, response) -> { };
+    private SecurityFilter securityFilter;
+    private MockHttpServletRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TokenService tokenService = new TokenService(new SimpleMeterRegistry());
+        DirectFieldAccessor fields = new DirectFieldAccessor(tokenService);
+        fields.setPropertyValue("secret", SECRET);
+        fields.setPropertyValue("expiration", 3_600_000L);
+        fields.setPropertyValue("issuer", "crud-api");
+        fields.setPropertyValue("audience", "crud-api-users");
+        fields.setPropertyValue("verifiedCacheSize", 10_000L);
+        tokenService.init();
+        securityFilter = new SecurityFilter(tokenService, null);
+        request = new MockHttpServletRequest("GET", "/cards/exists");
+        request.addHeader("Authorization", "Bearer "
+                + tokenService.generateToken(User.builder().id(1L).username("user").password("senha").build()));
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws Exception {
+        // o filtro marca a requisição como já filtrada; o atributo é removido para cada operação passar pelo filtro
+        request.clearAttributes();
+        securityFilter.doFilter(request, response, chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
@@ -0,0 +1,90 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.domain.model.User;
+import com.hyperativa.crud.security.AuthenticatedUser;
+import com.hyperativa.crud.security.TokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validações de token por segundo em uma thread: o caminho antigo (chave e parser recriados, três parses por
+ * requisição), o parse único com parser reaproveitado (cache desativado) e o acerto no cache de tokens verificados.
+ * Também mede a emissão de um token no login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TokenServiceBenchmark {
+
+    private static final String SECRET = "X7kP9mN2vQ8rT4wY1zA5bC3dE6fG0hJ2iL5nO7pR9sU2tV4xZ6";
+
+    private TokenService cached;
+    private TokenService uncached;
+    private User user;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cached = tokenService(10_000);
+        uncached = tokenService(0);
+        user = User.builder().id(1L).username("user").password("senha").build();
+        token = cached.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String username = legacyClaims().getSubject();
+        return username.equals(legacyClaims().getSubject()) && legacyClaims().getExpiration().getTime() > 0;
+    }
+
+    @Benchmark
+    public AuthenticatedUser singleParse() {
+        return uncached.extractUser(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser cachedToken() {
+        return cached.extractUser(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cached.generateToken(user);
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .requireIssuer("crud-api")
+                .requireAudience("crud-api-users")
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static TokenService tokenService(long verifiedCacheSize) {
+        TokenService service = new TokenService(new SimpleMeterRegistry());
+        DirectFieldAccessor fields = new DirectFieldAccessor(service);
+        fields.setPropertyValue("secret", SECRET);
+        fields.setPropertyValue("expiration", 3_600_000L);
+        fields.setPropertyValue("issuer", "crud-api");
+        fields.setPropertyValue("audience", "crud-api-users");
+        fields.setPropertyValue("verifiedCacheSize", verifiedCacheSize);
+        service.init();
+        return service;
+    }
+}
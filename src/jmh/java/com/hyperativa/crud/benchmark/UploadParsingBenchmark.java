@@ -0,0 +1,115 @@
+package com.hyperativa.crud.benchmark;
+
+import com.hyperativa.crud.domain.model.CardNumbers;
+import com.hyperativa.crud.service.CardFileParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de um arquivo de importação no formato do {@code lista.txt} (grupos de quatro dígitos separados por
+ * espaço, com o checkpoint em bytes), do arquivo no disco até os dígitos de cada linha validados. O resultado é por
+ * linha.
+ * <ul>
+ *     <li>{@code parseLines}: {@link CardFileParser} sobre o arquivo mapeado, com normalização e Luhn; o mesmo
+ *     leitor é reposicionado a cada invocação, como em um job que percorre o arquivo inteiro</li>
+ *     <li>{@code parseLinesLegacy}: a leitura anterior, byte a byte por um {@link BufferedInputStream} com uma
+ *     {@link String} por linha, {@code trim} e só a validação de tamanho (que nem aceitava os espaços)</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UploadParsingBenchmark {
+
+    private static final int LINES = 10_000;
+
+    private final byte[] digits = new byte[CardNumbers.MAX_LENGTH];
+    private Path file;
+    private FileChannel channel;
+    private CardFileParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder content = new StringBuilder(LINES * 21);
+        for (int i = 0; i < LINES; i++) {
+            String number = withCheckDigit(Long.toString(400_000_000_000_000L + i * 7919L));
+            for (int group = 0; group < number.length(); group += 4) {
+                content.append(group == 0 ? "" : " ").append(number, group, group + 4);
+            }
+            content.append(i % 10 == 0 ? "\r\n" : "\n");
+        }
+        file = Files.createTempFile("upload-parsing", ".txt");
+        Files.writeString(file, content, StandardCharsets.US_ASCII);
+        channel = FileChannel.open(file);
+        parser = new CardFileParser(channel, 0, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parseLines(Blackhole blackhole) throws IOException {
+        parser.seek(0);
+        int length;
+        while ((length = parser.nextLine(digits, 0)) != CardFileParser.EOF) {
+            blackhole.consume(length);
+        }
+        return parser.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parseLinesLegacy(Blackhole blackhole) throws IOException {
+        InputStream input = new BufferedInputStream(Channels.newInputStream(channel.position(0)), 64 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+        long consumedBytes = 0;
+        int b;
+        while ((b = input.read()) != -1) {
+            consumedBytes++;
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            String cardNumber = line.toString(StandardCharsets.UTF_8).trim();
+            blackhole.consume(cardNumber.length() >= 13 && cardNumber.length() <= 19 ? cardNumber : null);
+            line.reset();
+        }
+        return consumedBytes;
+    }
+
+    private static String withCheckDigit(String payload) {
+        int sum = 0;
+        for (int i = payload.length() - 1, position = 1; i >= 0; i--, position++) {
+            int digit = payload.charAt(i) - '0';
+            if ((position & 1) == 1) {
+                digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+        }
+        return payload + (10 - sum % 10) % 10;
+    }
+}
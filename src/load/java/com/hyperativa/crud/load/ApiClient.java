@@ -0,0 +1,113 @@
+package com.hyperativa.crud.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Chamadas HTTP da carga. Os métodos usados dentro das cargas devolvem só o status, descartando o corpo.
+ */
+final class ApiClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration UPLOAD_TIMEOUT = Duration.ofMinutes(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String url;
+    private volatile String token;
+
+    ApiClient(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Registra o usuário (ignorando se já existe) e guarda o token usado pelas demais chamadas.
+     */
+    void authenticate(String username, String password) throws IOException, InterruptedException {
+        String credentials = credentials(username, password);
+        client.send(json("/auth/register", credentials), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<String> login = client.send(json("/auth/login", credentials),
+                HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Login falhou: HTTP " + login.statusCode());
+        }
+        token = objectMapper.readTree(login.body()).path("token").asText();
+    }
+
+    int login(String username, String password) throws IOException, InterruptedException {
+        return client.send(json("/auth/login", credentials(username, password)),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    int createCard(String cardNumber) throws IOException, InterruptedException {
+        return client.send(json("/cards", objectMapper.createObjectNode().put("cardNumber", cardNumber).toString()),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    int exists(String cardNumber) throws IOException, InterruptedException {
+        HttpRequest request = authorized(HttpRequest.newBuilder(URI.create(url + "/cards/exists?number="
+                + URLEncoder.encode(cardNumber, StandardCharsets.UTF_8))).GET()).timeout(TIMEOUT).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Envia o arquivo em multipart, lido do disco à medida que é transmitido, e devolve o id do job.
+     */
+    String upload(Path file) throws IOException, InterruptedException {
+        String boundary = UUID.randomUUID().toString();
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getFileName() + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n";
+        HttpRequest request = authorized(HttpRequest.newBuilder(URI.create(url + "/cards/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofString(head),
+                        HttpRequest.BodyPublishers.ofFile(file),
+                        HttpRequest.BodyPublishers.ofString("\r\n--" + boundary + "--\r\n"))))
+                .timeout(UPLOAD_TIMEOUT)
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 202 && response.statusCode() != 200) {
+            throw new IllegalStateException("Upload falhou: HTTP " + response.statusCode() + " " + response.body());
+        }
+        return objectMapper.readTree(response.body()).path("jobId").asText();
+    }
+
+    JsonNode uploadStatus(String jobId) throws IOException, InterruptedException {
+        HttpRequest request = authorized(HttpRequest.newBuilder(URI.create(url + "/cards/upload/" + jobId)).GET())
+                .timeout(TIMEOUT).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Consulta do upload " + jobId + " falhou: HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest json(String path, String body) {
+        return authorized(HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))).timeout(TIMEOUT).build();
+    }
+
+    private HttpRequest.Builder authorized(HttpRequest.Builder request) {
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private String credentials(String username, String password) {
+        return objectMapper.createObjectNode().put("username", username).put("password", password).toString();
+    }
+}
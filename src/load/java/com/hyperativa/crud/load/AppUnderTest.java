@@ -0,0 +1,124 @@
+package com.hyperativa.crud.load;
+
+import org.testcontainers.containers.MySQLContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplicação alvo da carga. Com {@code load.url} preenchido, usa uma instância já em execução (ex.: MySQL do
+ * {@code compose.yaml} e a aplicação iniciada à mão). Caso contrário, sobe um MySQL com Testcontainers e o jar da
+ * aplicação ({@code load.jar}) em um processo separado, para que o gerador de carga não dispute CPU e heap com ela.
+ * O processo roda em {@code load.work-dir} (arquivos de importação, índice) e grava a saída em {@code app.log}.
+ */
+final class AppUnderTest implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    private final MySQLContainer<?> mysql;
+    private final Process process;
+    private final String url;
+
+    private AppUnderTest(MySQLContainer<?> mysql, Process process, String url) {
+        this.mysql = mysql;
+        this.process = process;
+        this.url = url;
+    }
+
+    static AppUnderTest start() throws Exception {
+        String external = System.getProperty("load.url", "");
+        if (!external.isBlank()) {
+            return new AppUnderTest(null, null, external);
+        }
+        MySQLContainer<?> mysql = new MySQLContainer<>(System.getProperty("load.mysql-image", "mysql:8.0"));
+        mysql.start();
+        Process process = null;
+        try {
+            int port = freePort();
+            Path workDir = Files.createDirectories(Path.of(System.getProperty("load.work-dir", "target/load")));
+            String jdbcUrl = mysql.getJdbcUrl() + (mysql.getJdbcUrl().contains("?") ? "&" : "?")
+                    + "rewriteBatchedStatements=true";
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(Arrays.asList(System.getProperty("load.app-jvm-args", "-Xmx1g").trim().split("\\s+")));
+            command.addAll(List.of("-jar", Path.of(System.getProperty("load.jar")).toAbsolutePath().toString(),
+                    "--server.port=" + port,
+                    "--spring.datasource.url=" + jdbcUrl,
+                    "--spring.datasource.username=" + mysql.getUsername(),
+                    "--spring.datasource.password=" + mysql.getPassword(),
+                    // os arquivos gerados pela carga passam do limite padrão de 1MB do multipart
+                    "--spring.servlet.multipart.max-file-size=-1",
+                    "--spring.servlet.multipart.max-request-size=-1"));
+            File log = workDir.resolve("app.log").toFile();
+            process = new ProcessBuilder(command)
+                    .directory(workDir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(log)
+                    .start();
+            AppUnderTest app = new AppUnderTest(mysql, process, "http://localhost:" + port);
+            app.awaitHealthy(log);
+            return app;
+        } catch (Exception e) {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            mysql.stop();
+            throw e;
+        }
+    }
+
+    String url() {
+        return url;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    private void awaitHealthy(File log) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(url + "/actuator/health")).GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("A aplicação terminou durante a inicialização; ver " + log);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // ainda subindo
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("A aplicação não ficou saudável em " + STARTUP_TIMEOUT + "; ver " + log);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.hyperativa.crud.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executa uma carga com {@code concurrency} clientes durante aquecimento + medição. Cada requisição sorteia uma
+ * operação pelos pesos, e a latência de cada operação vai para o seu {@link Recorder} do HdrHistogram.
+ * <p>
+ * Com {@code rate > 0} a carga é em malha aberta: cada cliente tem horários de envio fixos e a latência é medida a
+ * partir do horário previsto, não do envio real, de modo que um servidor lento acumula a espera nas latências em
+ * vez de simplesmente reduzir a taxa (omissão coordenada). Com {@code rate == 0}, cada cliente envia a próxima
+ * requisição assim que recebe a resposta anterior (malha fechada, mede a vazão máxima).
+ */
+final class LoadRunner {
+
+    // latências acima disso (timeouts) são registradas como 1 hora
+    private static final long HIGHEST_TRACKABLE_NANOS = Duration.ofHours(1).toNanos();
+
+    @FunctionalInterface
+    interface Call {
+
+        /**
+         * @return {@code true} se a resposta foi a esperada
+         */
+        boolean send(int operation) throws Exception;
+    }
+
+    private final int concurrency;
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+
+    LoadRunner(int concurrency, double rate, Duration warmup, Duration duration) {
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    List<WorkloadResult> run(String[] operations, double[] weights, Call call) throws Exception {
+        Recorder[] recorders = new Recorder[operations.length];
+        LongAdder[] errors = new LongAdder[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            recorders[i] = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+            errors[i] = new LongAdder();
+        }
+        double[] cumulative = cumulative(weights);
+        long intervalNanos = rate > 0 ? (long) (concurrency * 1e9 / rate) : 0;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < concurrency; c++) {
+                // espalha os clientes dentro do intervalo para não enviarem todos no mesmo instante
+                long firstSend = start + (intervalNanos * c) / concurrency;
+                clients.add(executor.submit(() -> {
+                    long intended = firstSend;
+                    while (intended < end) {
+                        if (intervalNanos > 0) {
+                            long wait = intended - System.nanoTime();
+                            if (wait > 0) {
+                                LockSupport.parkNanos(wait);
+                            }
+                        } else {
+                            intended = System.nanoTime();
+                        }
+                        int operation = pick(cumulative);
+                        boolean success;
+                        try {
+                            success = call.send(operation);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return null;
+                        } catch (Exception e) {
+                            success = false;
+                        }
+                        if (intended >= measureFrom) {
+                            long latency = System.nanoTime() - intended;
+                            recorders[operation].recordValue(Math.min(latency, HIGHEST_TRACKABLE_NANOS));
+                            if (!success) {
+                                errors[operation].increment();
+                            }
+                        }
+                        intended = intervalNanos > 0 ? intended + intervalNanos : System.nanoTime();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = duration.toNanos() / 1e9;
+        List<WorkloadResult> results = new ArrayList<>();
+        for (int i = 0; i < operations.length; i++) {
+            Histogram latency = recorders[i].getIntervalHistogram();
+            results.add(new WorkloadResult(operations[i], latency.getTotalCount(), errors[i].sum(), seconds, latency));
+        }
+        return results;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i] / total;
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative) {
+        double value = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (value < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+}
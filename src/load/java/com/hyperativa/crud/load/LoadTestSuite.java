@@ -0,0 +1,215 @@
+package com.hyperativa.crud.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyperativa.crud.domain.model.CardNumbers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Teste de carga de ponta a ponta: sobe (ou usa) a aplicação com MySQL ({@link AppUnderTest}), executa as cargas
+ * selecionadas em {@code load.workloads} e falha quando algum limite de {@code load.slo} é violado.
+ * <ul>
+ *     <li>{@code login}: {@code POST /auth/login} (BCrypt, limitado por CPU) com {@code load.login.concurrency}
+ *     clientes</li>
+ *     <li>{@code mixed}: {@code GET /cards/exists} de cartões importados antes da medição ({@code load.cards}) e
+ *     {@code POST /cards} de cartões novos, na proporção {@code load.mix.lookup-ratio}; operações {@code exists} e
+ *     {@code insert}</li>
+ *     <li>{@code upload}: {@code POST /cards/upload} de um arquivo no formato do {@code lista.txt} com
+ *     {@code load.upload.lines} linhas (fração {@code load.upload.duplicate-ratio} repetida), medido até o job
+ *     terminar; vazão em linhas por segundo</li>
+ * </ul>
+ * Demais parâmetros (propriedades de sistema): {@code load.concurrency} (64), {@code load.rate} (requisições por
+ * segundo da carga mista; 0 = malha fechada), {@code load.login.rate} (0), {@code load.warmup-seconds} (15),
+ * {@code load.duration-seconds} (60), {@code load.username}/{@code load.password} e {@code load.result}. Além da
+ * tabela, grava o resultado em JSON e a distribuição de latência de cada operação ({@code <operação>.hgrm}) em
+ * {@code load.work-dir}.
+ */
+public final class LoadTestSuite {
+
+    private static final Set<String> FINISHED = Set.of("COMPLETED", "FAILED");
+    private static final Duration UPLOAD_POLL_INTERVAL = Duration.ofMillis(500);
+
+    // prefixos distintos por origem; o id da execução evita repetir cartões cadastrados em execuções anteriores
+    private static final char SEEDED = '4';
+    private static final char INSERTED = '5';
+    private static final char UPLOADED = '6';
+    private static final long RUN_ID = System.currentTimeMillis() / 1000 % 1_000_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path workDir = Path.of(System.getProperty("load.work-dir", "target/load"));
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup-seconds", 15));
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration-seconds", 60));
+    private final String username = System.getProperty("load.username", "loadtest");
+    private final String password = System.getProperty("load.password", "loadtest");
+    private final int cards = Integer.getInteger("load.cards", 100_000);
+    private ApiClient api;
+
+    private LoadTestSuite() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Set<String> workloads = Set.of(System.getProperty("load.workloads", "login,mixed,upload").split(","));
+        LoadTestSuite suite = new LoadTestSuite();
+        List<WorkloadResult> results = new ArrayList<>();
+        Files.createDirectories(suite.workDir);
+        try (AppUnderTest app = AppUnderTest.start()) {
+            suite.api = new ApiClient(app.url());
+            suite.api.authenticate(suite.username, suite.password);
+            if (workloads.contains("login")) {
+                results.addAll(suite.login());
+            }
+            if (workloads.contains("mixed")) {
+                results.addAll(suite.mixed());
+            }
+            if (workloads.contains("upload")) {
+                results.add(suite.upload());
+            }
+        }
+        suite.report(results);
+
+        List<String> violations = new SloGate(Path.of(System.getProperty("load.slo", "src/load/slo.properties")))
+                .check(results);
+        if (!violations.isEmpty()) {
+            System.out.println();
+            System.out.println("Limites violados:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+    }
+
+    private List<WorkloadResult> login() throws Exception {
+        System.out.println("Carga de login...");
+        return new LoadRunner(Integer.getInteger("load.login.concurrency", 8),
+                Double.parseDouble(System.getProperty("load.login.rate", "0")), warmup, duration)
+                .run(new String[]{"login"}, new double[]{1}, operation -> api.login(username, password) == 200);
+    }
+
+    private List<WorkloadResult> mixed() throws Exception {
+        System.out.printf("Importando %d cartões para as consultas...%n", cards);
+        Path seed = write("seed-" + RUN_ID + ".txt", cards, 0, i -> cardNumber(SEEDED, i));
+        WorkloadResult seeded = awaitUpload(System.nanoTime(), api.upload(seed));
+        if (seeded.errors() > 0) {
+            throw new IllegalStateException("Importação dos cartões da carga falhou: " + seeded.errors() + " erros");
+        }
+
+        System.out.println("Carga mista de consulta e cadastro...");
+        double lookupRatio = Double.parseDouble(System.getProperty("load.mix.lookup-ratio", "0.9"));
+        AtomicLong inserted = new AtomicLong(RUN_ID * 100_000_000);
+        return new LoadRunner(Integer.getInteger("load.concurrency", 64),
+                Double.parseDouble(System.getProperty("load.rate", "0")), warmup, duration)
+                .run(new String[]{"exists", "insert"}, new double[]{lookupRatio, 1 - lookupRatio}, operation ->
+                        operation == 0
+                                ? api.exists(cardNumber(SEEDED, ThreadLocalRandom.current().nextInt(cards))) == 200
+                                : api.createCard(cardNumber(INSERTED, inserted.getAndIncrement())) == 200);
+    }
+
+    private WorkloadResult upload() throws Exception {
+        long lines = Long.getLong("load.upload.lines", 2_000_000);
+        double duplicateRatio = Double.parseDouble(System.getProperty("load.upload.duplicate-ratio", "0.05"));
+        System.out.printf("Gerando arquivo com %d linhas...%n", lines);
+        long first = RUN_ID * 100_000_000;
+        Path file = write("upload-" + RUN_ID + ".txt", lines, duplicateRatio,
+                i -> cardNumber(UPLOADED, first + i));
+        System.out.println("Importação...");
+        long start = System.nanoTime();
+        WorkloadResult result = awaitUpload(start, api.upload(file));
+        Files.deleteIfExists(file);
+        return result;
+    }
+
+    /**
+     * Acompanha o job até terminar; o tempo conta desde {@code start} (antes do envio do arquivo). Um job com falha
+     * conta todas as linhas como erro.
+     */
+    private WorkloadResult awaitUpload(long start, String jobId) throws IOException, InterruptedException {
+        JsonNode job = api.uploadStatus(jobId);
+        while (!FINISHED.contains(job.path("status").asText())) {
+            Thread.sleep(UPLOAD_POLL_INTERVAL.toMillis());
+            job = api.uploadStatus(jobId);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long lines = job.path("linesProcessed").asLong();
+        if ("FAILED".equals(job.path("status").asText())) {
+            System.out.println("Importação " + jobId + " falhou: " + job.path("error").asText());
+            return new WorkloadResult("upload", Math.max(lines, 1), Math.max(lines, 1), seconds, null);
+        }
+        return new WorkloadResult("upload", lines, job.path("rejected").asLong(), seconds, null);
+    }
+
+    /**
+     * Um cartão por linha, como no {@code lista.txt}; cada linha repete uma anterior com probabilidade
+     * {@code duplicateRatio}.
+     */
+    private Path write(String name, long lines, double duplicateRatio, LongFunction<String> cardNumber)
+            throws IOException {
+        Path file = workDir.resolve(name);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            long next = 0;
+            for (long line = 0; line < lines; line++) {
+                long card = next > 0 && random.nextDouble() < duplicateRatio ? random.nextLong(next) : next++;
+                writer.write(cardNumber.apply(card));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Número de 16 dígitos com dígito verificador de Luhn, em grupos de quatro como no {@code lista.txt}.
+     */
+    static String cardNumber(char prefix, long sequence) {
+        String digits = prefix + String.format(Locale.ROOT, "%014d", sequence);
+        digits += CardNumbers.luhnCheckDigit(digits);
+        StringBuilder formatted = new StringBuilder(19);
+        for (int i = 0; i < digits.length(); i++) {
+            if (i > 0 && i % 4 == 0) {
+                formatted.append(' ');
+            }
+            formatted.append(digits.charAt(i));
+        }
+        return formatted.toString();
+    }
+
+    private void report(List<WorkloadResult> results) throws IOException {
+        System.out.println();
+        System.out.printf("%-8s %12s %8s %12s %10s %10s %10s %10s%n",
+                "operação", "total", "erros", "vazão/s", "p50 ms", "p99 ms", "p99.9 ms", "máx ms");
+        for (WorkloadResult result : results) {
+            System.out.printf(Locale.ROOT, "%-8s %12d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    result.name(), result.operations(), result.errors(), result.throughput(),
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9),
+                    result.maxMillis());
+            if (result.latency() != null) {
+                try (PrintStream out = new PrintStream(workDir.resolve(result.name() + ".hgrm").toFile(),
+                        StandardCharsets.UTF_8)) {
+                    result.latency().outputPercentileDistribution(out, 1e6);
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("warmupSeconds", warmup.toSeconds());
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("results", results.stream().map(WorkloadResult::toMap).toList());
+        Path file = Path.of(System.getProperty("load.result", "target/load-result.json"));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        System.out.println("Resultado gravado em " + file);
+    }
+}
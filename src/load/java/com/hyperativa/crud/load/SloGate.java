@@ -0,0 +1,69 @@
+package com.hyperativa.crud.load;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Limites de serviço por operação, lidos de um arquivo {@code <operação>.<limite>=<valor>}. Limites aceitos:
+ * {@code p50-ms}, {@code p99-ms}, {@code p999-ms}, {@code max-ms} (máximos), {@code min-throughput} (operações
+ * por segundo) e {@code max-error-rate} (fração). Propriedades de sistema {@code slo.<operação>.<limite>}
+ * sobrescrevem o arquivo. Operações que não rodaram são ignoradas.
+ */
+final class SloGate {
+
+    private final Map<String, Double> limits = new TreeMap<>();
+
+    SloGate(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("slo."))
+                .forEach(name -> properties.setProperty(name.substring("slo.".length()), System.getProperty(name)));
+        for (String key : properties.stringPropertyNames()) {
+            limits.put(key, Double.parseDouble(properties.getProperty(key).trim()));
+        }
+    }
+
+    /**
+     * @return as violações, vazia se todos os limites foram respeitados
+     */
+    List<String> check(List<WorkloadResult> results) {
+        List<String> violations = new ArrayList<>();
+        for (WorkloadResult result : results) {
+            String prefix = result.name() + ".";
+            limits.forEach((key, limit) -> {
+                if (!key.startsWith(prefix)) {
+                    return;
+                }
+                String metric = key.substring(prefix.length());
+                double value = switch (metric) {
+                    case "p50-ms" -> result.percentileMillis(50);
+                    case "p99-ms" -> result.percentileMillis(99);
+                    case "p999-ms" -> result.percentileMillis(99.9);
+                    case "max-ms" -> result.maxMillis();
+                    case "min-throughput" -> result.throughput();
+                    case "max-error-rate" -> result.errorRate();
+                    default -> throw new IllegalArgumentException("Limite desconhecido: " + key);
+                };
+                boolean violated = metric.startsWith("min-") ? value < limit : value > limit;
+                if (violated || Double.isNaN(value)) {
+                    violations.add(String.format(Locale.ROOT, "%s = %.3f (limite %s %.3f)",
+                            key, value, metric.startsWith("min-") ? ">=" : "<=", limit));
+                }
+            });
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,47 @@
+package com.hyperativa.crud.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resultado de uma operação medida. {@code latency} é {@code null} quando só a vazão interessa (importação).
+ */
+record WorkloadResult(String name, long operations, long errors, double seconds, Histogram latency) {
+
+    double throughput() {
+        return operations / seconds;
+    }
+
+    double errorRate() {
+        return operations == 0 ? 0 : errors / (double) operations;
+    }
+
+    /**
+     * @param percentile entre 0 e 100
+     */
+    double percentileMillis(double percentile) {
+        return latency == null ? Double.NaN : latency.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    double maxMillis() {
+        return latency == null ? Double.NaN : latency.getMaxValue() / 1e6;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("operations", operations);
+        map.put("errors", errors);
+        map.put("seconds", seconds);
+        map.put("throughput", throughput());
+        if (latency != null) {
+            map.put("p50Ms", percentileMillis(50));
+            map.put("p99Ms", percentileMillis(99));
+            map.put("p999Ms", percentileMillis(99.9));
+            map.put("maxMs", maxMillis());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,212 @@
+package com.hyperativa.crud.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log de acesso em linhas JSON gravadas por uma thread própria. As threads das requisições só copiam os campos para
+ * uma posição pré-alocada de um buffer circular sem trava (um CAS no cursor de escrita); com o buffer cheio a
+ * entrada é descartada e contada em {@link #dropped()}, nunca bloqueando a requisição. A thread de escrita esvazia o
+ * buffer em lote e só faz o flush quando não há mais entradas pendentes.
+ */
+@Slf4j
+public class AccessLog implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final OutputStream out;
+    private final StringBuilder line = new StringBuilder(256);
+    private final Thread writer;
+    private long head;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity posições do buffer, arredondadas para a próxima potência de 2
+     */
+    public AccessLog(OutputStream out, int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.writer = new Thread(this::drainLoop, "access-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Enfileira uma entrada; retorna {@code false} (e conta o descarte) quando o buffer está cheio.
+     *
+     * @param sampleRate fração amostrada que esta entrada representa (1 para entradas sempre registradas)
+     */
+    public boolean offer(long timestampMillis, String method, String path, int status, String user,
+                         long durationNanos, double sampleRate) {
+        long position = tail.get();
+        Slot slot;
+        while (true) {
+            slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        slot.timestampMillis = timestampMillis;
+        slot.method = method;
+        slot.path = path;
+        slot.status = status;
+        slot.user = user;
+        slot.durationNanos = durationNanos;
+        slot.sampleRate = sampleRate;
+        slot.sequence = position + 1;
+        return true;
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Para a thread de escrita depois de gravar as entradas pendentes.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                flush();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+        flush();
+    }
+
+    /**
+     * Grava as entradas publicadas até a primeira ainda não publicada (ou até esvaziar o buffer).
+     */
+    int drain() {
+        int written = 0;
+        while (true) {
+            Slot slot = slots[(int) (head & mask)];
+            if (slot.sequence != head + 1) {
+                return written;
+            }
+            write(slot);
+            slot.method = null;
+            slot.path = null;
+            slot.user = null;
+            slot.sequence = head + slots.length;
+            head++;
+            written++;
+        }
+    }
+
+    private void write(Slot slot) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(slot.timestampMillis))
+                .append("\",\"method\":");
+        appendString(slot.method);
+        line.append(",\"path\":");
+        appendString(slot.path);
+        line.append(",\"status\":").append(slot.status)
+                .append(",\"user\":");
+        appendString(slot.user);
+        line.append(",\"durationNs\":").append(slot.durationNanos);
+        if (slot.sampleRate < 1) {
+            line.append(",\"sampleRate\":").append(slot.sampleRate);
+        }
+        line.append("}\n");
+        try {
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Erro ao gravar o log de acesso", e);
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Erro ao gravar o log de acesso", e);
+        }
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Posição do buffer. {@code sequence} igual à posição de escrita indica livre; igual à posição + 1, publicada.
+     */
+    private static final class Slot {
+
+        private volatile long sequence;
+        private long timestampMillis;
+        private String method;
+        private String path;
+        private int status;
+        private String user;
+        private long durationNanos;
+        private double sampleRate;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
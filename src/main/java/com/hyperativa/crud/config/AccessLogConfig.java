@@ -0,0 +1,64 @@
+package com.hyperativa.crud.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * Log de acesso em JSON, uma linha por requisição, gravado em {@code api.access-log.path} (vazio = saída padrão)
+ * fora da thread da requisição. Entradas descartadas com o buffer cheio ficam em {@code access.log.dropped}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.access-log.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public AccessLog accessLog(@Value("${api.access-log.path:}") String path,
+                               @Value("${api.access-log.buffer-size:65536}") int bufferSize,
+                               MeterRegistry meterRegistry) throws IOException {
+        OutputStream out;
+        if (path.isBlank()) {
+            out = new FileOutputStream(FileDescriptor.out);
+        } else {
+            Path file = Path.of(path);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        AccessLog accessLog = new AccessLog(out, bufferSize);
+        FunctionCounter.builder("access.log.dropped", accessLog, AccessLog::dropped)
+                .description("Entradas do log de acesso descartadas com o buffer cheio")
+                .register(meterRegistry);
+        return accessLog;
+    }
+
+    /**
+     * Registrado antes do {@code springSecurityFilterChain}, para medir também a autenticação e registrar as
+     * respostas 401/403 geradas por ele.
+     */
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilter(
+            AccessLog accessLog,
+            @Value("${api.access-log.success-sample-rate:0.01}") double successSampleRate,
+            @Value("${api.access-log.slow-threshold:PT0.5S}") Duration slowThreshold) {
+        FilterRegistrationBean<AccessLogFilter> registration =
+                new FilterRegistrationBean<>(new AccessLogFilter(accessLog, successSampleRate, slowThreshold));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
@@ -0,0 +1,49 @@
+package com.hyperativa.crud.config;
+
+import com.hyperativa.crud.security.SecurityFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Registra cada requisição no {@link AccessLog}: erros (status 4xx e 5xx, exceto 404) e requisições mais lentas
+ * que {@code slowThreshold} sempre; as demais, na fração {@code successSampleRate}. O 404 entra na amostragem por
+ * ser a resposta normal de {@code /cards/exists} para cartão inexistente. Na thread da requisição ficam só a
+ * medição, o sorteio e o enfileiramento; a formatação e a escrita são feitas pela thread do {@link AccessLog}.
+ * <p>
+ * Roda por fora do Spring Security, que já limpou o contexto de segurança quando a resposta volta até aqui: o
+ * usuário vem do atributo {@link SecurityFilter#USERNAME_ATTRIBUTE} da requisição.
+ */
+@RequiredArgsConstructor
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private final AccessLog accessLog;
+    private final double successSampleRate;
+    private final Duration slowThreshold;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long duration = System.nanoTime() - start;
+            int status = response.getStatus();
+            boolean sampled = (status < 400 || status == 404) && duration < slowThreshold.toNanos();
+            if (!sampled || successSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < successSampleRate) {
+                String user = request.getAttribute(SecurityFilter.USERNAME_ATTRIBUTE) instanceof String name
+                        ? name : "anonymous";
+                accessLog.offer(System.currentTimeMillis(), request.getMethod(), request.getRequestURI(), status, user,
+                        duration, sampled ? successSampleRate : 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.hyperativa.crud.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class CardIngestConfig {
+
+    /**
+     * Pool usado para as etapas de CPU da ingestão em lote (hash e cifra dos cartões).
+     * Com {@code api.cards.ingest.workers=0} o tamanho acompanha o número de processadores.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService cardIngestExecutor(@Value("${api.cards.ingest.workers:0}") int workers) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("card-ingest-"));
+    }
+
+    /**
+     * Pool que executa os jobs de importação de arquivos em segundo plano;
+     * limita quantos arquivos são processados ao mesmo tempo. Com {@code spring.threads.virtual.enabled=true}
+     * (Java 21) os jobs rodam em virtual threads, que liberam a thread do sistema enquanto esperam o MySQL.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadJobExecutor(@Value("${api.cards.upload.concurrent-jobs:2}") int concurrentJobs,
+                                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return Executors.newFixedThreadPool(concurrentJobs, virtualThreads
+                ? new VirtualThreadTaskExecutor("upload-job-").getVirtualThreadFactory()
+                : new CustomizableThreadFactory("upload-job-"));
+    }
+}
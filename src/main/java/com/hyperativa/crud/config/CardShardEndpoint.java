@@ -0,0 +1,46 @@
+package com.hyperativa.crud.config;
+
+import com.hyperativa.crud.domain.repository.CardResharding;
+import com.hyperativa.crud.domain.repository.CardShardRange;
+import com.hyperativa.crud.domain.repository.CardShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/cardshards} mostra o mapa de faixas e o andamento da última divisão;
+ * {@code POST /actuator/cardshards} com {@code {"source": 0, "target": 1}} move metade da maior faixa do shard de
+ * origem para o de destino (ou retoma a divisão interrompida entre os dois).
+ */
+@Component
+@Endpoint(id = "cardshards")
+@ConditionalOnExpression("!'${api.cards.sharding.urls:}'.isBlank()")
+@RequiredArgsConstructor
+public class CardShardEndpoint {
+
+    private final CardShardRouter cardShardRouter;
+    private final CardResharding cardResharding;
+
+    @ReadOperation
+    public CardShardsDescriptor shards() {
+        return new CardShardsDescriptor(cardShardRouter.shards().size(), cardShardRouter.ranges(), cardResharding.status());
+    }
+
+    @WriteOperation
+    public CardShardRange split(int source, int target) {
+        try {
+            return cardResharding.split(source, target);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    public record CardShardsDescriptor(int shards, List<CardShardRange> ranges, String resharding) {
+    }
+}
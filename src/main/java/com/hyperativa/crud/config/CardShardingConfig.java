@@ -0,0 +1,67 @@
+package com.hyperativa.crud.config;
+
+import com.hyperativa.crud.domain.repository.CardShard;
+import com.hyperativa.crud.domain.repository.CardShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shards da tabela {@code cards}: o shard 0 é sempre o banco principal e cada URL de
+ * {@code api.cards.sharding.urls} acrescenta um shard, com as mesmas credenciais do {@code spring.datasource}.
+ */
+@Configuration
+public class CardShardingConfig {
+
+    @Bean(initMethod = "initialize", destroyMethod = "close")
+    public CardShardRouter cardShardRouter(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                           DataSourceProperties properties,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${api.cards.sharding.urls:}") List<String> urls,
+                                           @Value("${api.cards.sharding.pool-size:10}") int poolSize,
+                                           @Value("${api.reactive.enabled:false}") boolean reactiveEnabled,
+                                           @Value("${api.cards.sharding.refresh-interval-ms:5000}") long refreshIntervalMillis,
+                                           @Value("${api.cards.sharding.instance-timeout-ms:30000}") long instanceTimeoutMillis,
+                                           MeterRegistry meterRegistry) {
+        List<String> shardUrls = urls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (!shardUrls.isEmpty() && reactiveEnabled) {
+            throw new IllegalStateException("O servidor reativo (api.reactive.enabled) não suporta shards de cartões");
+        }
+        List<CardShard> shards = new ArrayList<>();
+        List<DataSource> shardDataSources = new ArrayList<>();
+        shards.add(new CardShard(0, namedParameterJdbcTemplate));
+        for (String url : shardUrls) {
+            int index = shards.size();
+            HikariDataSource shard = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+            shard.setPoolName("card-shard-" + index);
+            shard.setMaximumPoolSize(poolSize);
+            shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shardDataSources.add(shard);
+            shards.add(new CardShard(index, new NamedParameterJdbcTemplate(shard)));
+        }
+        return new CardShardRouter(shards, shardDataSources, new TransactionTemplate(transactionManager),
+                refreshIntervalMillis, instanceTimeoutMillis);
+    }
+
+    /**
+     * Executa em paralelo as partes de um lote que caem em shards diferentes.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService cardShardExecutor(CardShardRouter cardShardRouter) {
+        return Executors.newFixedThreadPool(cardShardRouter.shards().size(), new CustomizableThreadFactory("card-shard-"));
+    }
+}
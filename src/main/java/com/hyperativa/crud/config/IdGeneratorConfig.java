@@ -0,0 +1,58 @@
+package com.hyperativa.crud.config;
+
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import com.hyperativa.crud.domain.model.SnowflakeIdentifierGenerator;
+import com.hyperativa.crud.domain.repository.CardIdNodeLease;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+@Configuration
+@Slf4j
+public class IdGeneratorConfig {
+
+    /**
+     * Gerador de ids dos cartões. Com {@code api.cards.id.node-id} vazio, o id de nó é reservado no banco por
+     * {@link CardIdNodeLease}, o que garante um nó diferente por instância; um valor fixo só deve ser usado quando
+     * cada instância recebe o seu.
+     */
+    @Bean
+    public SnowflakeIdGenerator cardIdGenerator(@Value("${api.cards.id.node-id:}") String nodeId,
+                                                @Value("${api.cards.id.max-lead-ms:1000}") long maxLeadMillis,
+                                                CardIdNodeLease cardIdNodeLease) {
+        if (StringUtils.hasText(nodeId)) {
+            log.info("Gerador de ids dos cartões com id de nó fixo {}", nodeId.trim());
+            return new SnowflakeIdGenerator(Integer.parseInt(nodeId.trim()), maxLeadMillis, () -> true);
+        }
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(cardIdNodeLease.claim(), maxLeadMillis,
+                cardIdNodeLease::isHeld);
+        cardIdNodeLease.onNodeChanged(generator::reassign);
+        return generator;
+    }
+
+    /**
+     * {@code DOWN} enquanto a instância não tem reserva válida do id de nó e, portanto, recusa novos cartões, para o
+     * orquestrador tirá-la do balanceamento ou reiniciá-la.
+     */
+    @Bean
+    public HealthIndicator cardIdNodeHealthIndicator(@Value("${api.cards.id.node-id:}") String nodeId,
+                                                     CardIdNodeLease cardIdNodeLease,
+                                                     SnowflakeIdGenerator cardIdGenerator) {
+        if (StringUtils.hasText(nodeId)) {
+            return () -> Health.up().withDetail("nodeId", cardIdGenerator.nodeId()).build();
+        }
+        return () -> cardIdNodeLease.isHeld()
+                ? Health.up().withDetail("nodeId", cardIdGenerator.nodeId()).build()
+                : Health.down().withDetail("reason", "Sem reserva válida do id de nó; novos cartões recusados").build();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer snowflakeIdHibernateProperties(SnowflakeIdGenerator cardIdGenerator) {
+        return properties -> properties.put(SnowflakeIdentifierGenerator.GENERATOR_SETTING, cardIdGenerator);
+    }
+}
@@ -0,0 +1,42 @@
+package com.hyperativa.crud.config;
+
+import com.hyperativa.crud.exception.LoginUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class LoginExecutorConfig {
+
+    /**
+     * Pool exclusivo para o login (BCrypt), separado das threads do Tomcat: picos de login ocupam no máximo
+     * {@code api.security.login.threads} processadores e a fila é limitada; com a fila cheia o login responde 503.
+     * Com {@code threads=0} usa metade dos processadores. Tamanho da fila, threads ativas e rejeições ficam em
+     * {@code executor.*{name=auth.login}} e {@code auth.login.rejected}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService loginExecutor(@Value("${api.security.login.threads:0}") int threads,
+                                         @Value("${api.security.login.queue-capacity:100}") int queueCapacity,
+                                         MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        Counter rejected = Counter.builder("auth.login.rejected")
+                .description("Logins recusados com a fila do pool de login cheia")
+                .register(meterRegistry);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("login-"),
+                (task, pool) -> {
+                    rejected.increment();
+                    throw new LoginUnavailableException("Muitas requisições de login; tente novamente em instantes");
+                });
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "auth.login");
+    }
+}
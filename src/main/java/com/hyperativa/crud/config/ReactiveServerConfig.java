@@ -0,0 +1,79 @@
+package com.hyperativa.crud.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyperativa.crud.controller.ReactiveCardRouter;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Servidor Netty opcional, em uma porta separada do Tomcat, para o {@code GET /cards/exists} não bloqueante.
+ * Um número fixo de threads de event loop atende todas as conexões e a consulta ao MySQL é feita via R2DBC,
+ * de modo que o número de conexões simultâneas não depende do número de threads. Os endpoints MVC não mudam.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveServerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveConnectionPool(@Value("${api.reactive.r2dbc.url}") String url,
+                                                 @Value("${spring.datasource.username}") String username,
+                                                 @Value("${spring.datasource.password}") String password,
+                                                 @Value("${api.reactive.r2dbc.pool-size:20}") int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-cards")
+                .initialSize(Math.min(poolSize, 2))
+                .maxSize(poolSize)
+                .maxIdleTime(Duration.ofMinutes(10))
+                .build());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public LoopResources reactiveLoopResources(@Value("${api.reactive.event-loop-threads:0}") int threads) {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return LoopResources.create("reactive-cards", workers, true);
+    }
+
+    @Bean(destroyMethod = "disposeNow")
+    public DisposableServer reactiveCardServer(ReactiveCardRouter reactiveCardRouter,
+                                               LoopResources reactiveLoopResources,
+                                               ObjectMapper objectMapper,
+                                               @Value("${api.reactive.port:8081}") int port,
+                                               @Value("${api.reactive.idle-timeout:PT60S}") Duration idleTimeout) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        DisposableServer server = HttpServer.create()
+                .port(port)
+                .runOn(reactiveLoopResources)
+                .idleTimeout(idleTimeout)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(reactiveCardRouter.routes(), strategies)))
+                .bindNow();
+        log.info("Servidor reativo de consulta de cartões iniciado na porta {}", server.port());
+        return server;
+    }
+}
@@ -0,0 +1,125 @@
+package com.hyperativa.crud.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Garante que um cliente leia as próprias escritas com réplicas de leitura configuradas: depois de uma escrita
+ * ({@link #markWrite()}), as transações somente leitura das requisições seguintes do mesmo cliente continuam no
+ * primário durante {@code api.datasource.replicas.read-your-writes-window}, tempo em que a réplica já deve ter
+ * aplicado a escrita. Com a janela zerada (ou sem réplicas) não tem efeito.
+ * <p>
+ * A marca viaja com o cliente, e não em memória, para valer em qualquer instância atrás do balanceador: a resposta
+ * da escrita leva o prazo (epoch em ms) no cookie {@value #COOKIE} e no cabeçalho {@value #HEADER}, e as requisições
+ * seguintes o devolvem em um dos dois. Prazos além de uma janela no futuro são ignorados, para um cliente não prender
+ * as próprias leituras no primário; os relógios das instâncias precisam estar sincronizados (NTP).
+ * Fora de uma requisição HTTP (jobs em segundo plano) não há marca: esses fluxos leem do primário por conta própria.
+ * <p>
+ * Uma réplica continua recebendo leituras com atraso de até {@code max-lag}, que pode crescer por mais um intervalo
+ * de medição ({@code lag-check-interval-ms}) antes de ela sair do rodízio; uma janela menor que essa soma deixaria o
+ * usuário ler de uma réplica que ainda não tem a escrita, então a aplicação não sobe com ela (a checagem só vale
+ * com réplicas configuradas em {@code api.datasource.replicas.urls}).
+ */
+@Component
+public class ReadYourWrites {
+
+    public static final String COOKIE = "read_primary_until";
+    public static final String HEADER = "X-Read-Primary-Until";
+
+    private static final String ATTRIBUTE = ReadYourWrites.class.getName() + ".until";
+
+    private final Duration window;
+
+    public ReadYourWrites(@Value("${api.datasource.replicas.urls:}") List<String> replicaUrls,
+                          @Value("${api.datasource.replicas.read-your-writes-window:PT6S}") Duration window,
+                          @Value("${api.datasource.replicas.max-lag:PT5S}") Duration maxLag,
+                          @Value("${api.datasource.replicas.lag-check-interval-ms:1000}") long lagCheckIntervalMillis) {
+        boolean replicated = replicaUrls.stream().anyMatch(url -> !url.isBlank());
+        Duration minimum = maxLag.plusMillis(lagCheckIntervalMillis);
+        if (replicated && !window.isZero() && !window.isNegative() && window.compareTo(minimum) < 0) {
+            throw new IllegalStateException("api.datasource.replicas.read-your-writes-window (" + window
+                    + ") deve ser de pelo menos max-lag + lag-check-interval-ms (" + minimum + ")");
+        }
+        this.window = window.isZero() || window.isNegative() ? null : window;
+    }
+
+    public void markWrite() {
+        ServletRequestAttributes attributes = window == null ? null : currentRequest();
+        if (attributes == null) {
+            return;
+        }
+        long until = System.currentTimeMillis() + window.toMillis();
+        attributes.getRequest().setAttribute(ATTRIBUTE, until);
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            response.setHeader(HEADER, Long.toString(until));
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(until))
+                    .path("/")
+                    .maxAge(window)
+                    .httpOnly(true)
+                    .sameSite("Strict")
+                    .build()
+                    .toString());
+        }
+    }
+
+    public boolean mustReadPrimary() {
+        ServletRequestAttributes attributes = window == null ? null : currentRequest();
+        if (attributes == null) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        long until;
+        if (request.getAttribute(ATTRIBUTE) instanceof Long marked) {
+            until = marked;
+        } else {
+            // lido uma vez por requisição; as demais transações usam o atributo
+            until = parse(request.getHeader(HEADER));
+            if (until == 0) {
+                until = parse(cookie(request));
+            }
+            request.setAttribute(ATTRIBUTE, until);
+        }
+        long now = System.currentTimeMillis();
+        return until > now && until <= now + window.toMillis();
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet : null;
+    }
+
+    private static String cookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long parse(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.hyperativa.crud.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envia as transações somente leitura ({@code @Transactional(readOnly = true)}) às réplicas, em rodízio, e todo o
+ * resto ao primário. Precisa estar atrás de um {@code LazyConnectionDataSourceProxy}: o JPA pede a conexão antes de
+ * a transação ser marcada como somente leitura, e o proxy adia a escolha até o primeiro comando.
+ * <p>
+ * O atraso de cada réplica é medido a cada {@code api.datasource.replicas.lag-check-interval-ms}; réplicas com
+ * atraso acima de {@code max-lag}, com a replicação parada ou inacessíveis deixam de receber leituras até se
+ * recuperarem. Sem réplica disponível, ou dentro da janela de {@link ReadYourWrites}, as leituras vão ao primário.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final LagProbe lagProbe;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> available = List.of();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag,
+                                    LagProbe lagProbe, ReadYourWrites readYourWrites) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLag = maxLag;
+        this.lagProbe = lagProbe;
+        this.readYourWrites = readYourWrites;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || readYourWrites.mustReadPrimary()) {
+            return PRIMARY;
+        }
+        List<String> candidates = available;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Réplicas recebendo leituras no momento.
+     */
+    public List<String> availableReplicas() {
+        return available;
+    }
+
+    @Scheduled(fixedDelayString = "${api.datasource.replicas.lag-check-interval-ms:1000}")
+    public void checkReplicaLag() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, replica) -> {
+            OptionalLong lag = measureLag(name, replica);
+            if (lag.isPresent() && lag.getAsLong() <= maxLag.toSeconds()) {
+                healthy.add(name);
+            } else if (available.contains(name)) {
+                log.warn("Réplica {} removida das leituras (atraso: {})", name,
+                        lag.isPresent() ? lag.getAsLong() + "s" : "indisponível");
+            }
+        });
+        if (!healthy.isEmpty() && !available.containsAll(healthy)) {
+            log.info("Réplicas recebendo leituras: {}", healthy);
+        }
+        available = List.copyOf(healthy);
+    }
+
+    public void close() {
+        replicas.values().forEach(replica -> {
+            if (replica instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Erro ao fechar o pool da réplica", e);
+                }
+            }
+        });
+    }
+
+    private OptionalLong measureLag(String name, DataSource replica) {
+        try {
+            return lagProbe.lagSeconds(replica);
+        } catch (SQLException e) {
+            log.debug("Falha ao medir o atraso da réplica {}", name, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Atraso da réplica em segundos; vazio quando não é possível afirmar que ela está replicando.
+     */
+    @FunctionalInterface
+    public interface LagProbe {
+
+        OptionalLong lagSeconds(DataSource replica) throws SQLException;
+
+        /**
+         * {@code Seconds_Behind_Source} de {@code SHOW REPLICA STATUS} (MySQL 8.0.22+), com
+         * {@code SHOW SLAVE STATUS} nas versões anteriores. Replicação parada (valor nulo) ou servidor que não é
+         * réplica (sem linha) contam como indisponíveis. O usuário precisa do privilégio {@code REPLICATION CLIENT}.
+         */
+        static LagProbe mysql() {
+            return replica -> {
+                try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+                    try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+                        return secondsBehind(rs, "Seconds_Behind_Source");
+                    } catch (SQLException e) {
+                        try (ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+                            return secondsBehind(rs, "Seconds_Behind_Master");
+                        }
+                    }
+                }
+            };
+        }
+
+        private static OptionalLong secondsBehind(ResultSet rs, String column) throws SQLException {
+            if (!rs.next()) {
+                return OptionalLong.empty();
+            }
+            long seconds = rs.getLong(column);
+            return rs.wasNull() ? OptionalLong.empty() : OptionalLong.of(seconds);
+        }
+    }
+}
@@ -1,30 +0,0 @@
-package com.hyperativa.crud.config;
-
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-import org.springframework.web.filter.OncePerRequestFilter;
-
-import java.io.IOException;
-
-@Component
-@Slf4j
-public class RequestResponseLoggingFilter extends OncePerRequestFilter {
-
-    @Override
-    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
-            throws ServletException, IOException {
-        long start = System.currentTimeMillis();
-        try {
-            filterChain.doFilter(request, response);
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            String user = request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : "anonymous";
-            log.info("method={}, path={}, user={}, status={}, durationMs={}",
-                    request.getMethod(), request.getRequestURI(), user, response.getStatus(), duration);
-        }
-    }
-}
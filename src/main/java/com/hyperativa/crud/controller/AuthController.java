@@ -1,14 +1,20 @@
 package com.hyperativa.crud.controller;
 
+import com.hyperativa.crud.config.ReadYourWrites;
 import com.hyperativa.crud.domain.model.User;
 import com.hyperativa.crud.domain.repository.UserRepository;
 import com.hyperativa.crud.dto.LoginRequest;
 import com.hyperativa.crud.dto.LoginResponse;
+import com.hyperativa.crud.dto.RefreshTokenRequest;
+import com.hyperativa.crud.exception.TokenException;
+import com.hyperativa.crud.security.RefreshTokenService;
 import com.hyperativa.crud.security.TokenService;
+import com.hyperativa.crud.security.UserCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,6 +26,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
@@ -29,25 +38,61 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
     private final TokenService tokenService;
+    private final RefreshTokenService refreshTokenService;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
+    private final ExecutorService loginExecutor;
+    private final ReadYourWrites readYourWrites;
 
+    /**
+     * A verificação da senha (BCrypt) roda no pool de login, liberando a thread do Tomcat; com o pool
+     * saturado a resposta é 503.
+     */
     @PostMapping("/login")
     @Operation(summary = "Realiza o login do usuário", description = "Retorna um token JWT válido para autenticação nos demais endpoints")
-    public ResponseEntity<LoginResponse> login(@RequestBody @Valid LoginRequest data) {
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(@RequestBody @Valid LoginRequest data) {
+        return CompletableFuture.supplyAsync(() -> authenticate(data), loginExecutor);
+    }
+
+    private ResponseEntity<LoginResponse> authenticate(LoginRequest data) {
         try {
             var usernamePassword = new UsernamePasswordAuthenticationToken(data.username(), data.password());
             var auth = this.authenticationManager.authenticate(usernamePassword);
-            var token = tokenService.generateToken((User) auth.getPrincipal());
-            return ResponseEntity.ok(new LoginResponse(token));
+            var user = (User) auth.getPrincipal();
+            var token = tokenService.generateToken(user);
+            return ResponseEntity.ok(new LoginResponse(token, refreshTokenService.issue(user)));
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
 
+    @PostMapping("/refresh")
+    @Operation(summary = "Renova o token de acesso", description = "Troca um refresh token válido por um novo token JWT e um novo refresh token, sem verificar a senha")
+    public ResponseEntity<LoginResponse> refresh(@RequestBody @Valid RefreshTokenRequest data) {
+        try {
+            var rotation = refreshTokenService.rotate(data.refreshToken());
+            var token = tokenService.generateToken(rotation.user());
+            return ResponseEntity.ok(new LoginResponse(token, rotation.refreshToken()));
+        } catch (TokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Encerra a sessão", description = "Revoga o refresh token informado e todos os renovados a partir do mesmo login")
+    public ResponseEntity<Void> logout(@RequestBody @Valid RefreshTokenRequest data) {
+        refreshTokenService.revoke(data.refreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * A duplicidade é checada no primário; um cadastro concorrente do mesmo usuário esbarra no índice único e também
+     * recebe 400.
+     */
     @PostMapping("/register")
     @Operation(summary = "Registra um novo usuário", description = "Cria um novo usuário para acesso à API")
     public ResponseEntity<Void> register(@RequestBody @Valid LoginRequest data) {
-        if (this.userRepository.findByUsername(data.username()).isPresent()) {
+        if (this.userRepository.existsByUsername(data.username())) {
             return ResponseEntity.badRequest().build();
         }
         String encryptedPassword = passwordEncoder.encode(data.password());
@@ -55,7 +100,13 @@ public class AuthController {
                 .username(data.username())
                 .password(encryptedPassword)
                 .build();
-        this.userRepository.save(newUser);
+        try {
+            this.userRepository.save(newUser);
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        userCache.invalidate(newUser.getUsername());
+        readYourWrites.markWrite();
         return ResponseEntity.ok().build();
     }
 }
@@ -1,26 +1,55 @@
 package com.hyperativa.crud.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyperativa.crud.dto.CardExistsBatchRequest;
+import com.hyperativa.crud.dto.CardExistsBatchResponse;
 import com.hyperativa.crud.dto.CardRequest;
 import com.hyperativa.crud.dto.CardResponse;
+import com.hyperativa.crud.dto.UploadJobResponse;
+import com.hyperativa.crud.service.CardExportService;
 import com.hyperativa.crud.service.CardService;
+import com.hyperativa.crud.service.UploadJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("/cards")
 @RequiredArgsConstructor
 @Tag(name = "Cartões", description = "Endpoints para gerenciamento de cartões (inserção e consulta)")
 public class CardController {
 
+    private static final int NDJSON_CHUNK_SIZE = 1000;
+
     private final CardService cardService;
+    private final UploadJobService uploadJobService;
+    private final CardExportService cardExportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Insere um único cartão", description = "Realiza o cadastro de um número de cartão completo no banco de dados de forma segura")
@@ -30,10 +59,47 @@ public class CardController {
     }
 
     @PostMapping("/upload")
-    @Operation(summary = "Insere cartões via arquivo TXT", description = "Processa um arquivo TXT contendo um número de cartão completo por linha")
-    public ResponseEntity<String> upload(@Parameter(description = "Arquivo TXT com números de cartões") @RequestParam("file") MultipartFile file) {
-        Long processed = cardService.processFile(file);
-        return ResponseEntity.ok("Registros processados: " + processed);
+    @Operation(summary = "Insere cartões via arquivo TXT",
+            description = "Armazena um arquivo TXT contendo um número de cartão completo por linha e o processa em segundo plano, retornando o identificador do job")
+    public ResponseEntity<UploadJobResponse> upload(@Parameter(description = "Arquivo TXT com números de cartões") @RequestParam("file") MultipartFile file) {
+        UploadJobResponse job = uploadJobService.submit(file);
+        return ResponseEntity.accepted()
+                .location(URI.create("/cards/upload/" + job.jobId()))
+                .body(job);
+    }
+
+    @GetMapping("/upload/{jobId}")
+    @Operation(
+            summary = "Consulta o andamento de uma importação",
+            description = "Retorna situação, vazão, estimativa de término e contagem de linhas inseridas, duplicadas e rejeitadas",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Job encontrado"),
+                    @ApiResponse(responseCode = "404", description = "Job não encontrado", content = @Content)
+            }
+    )
+    public ResponseEntity<UploadJobResponse> uploadStatus(@PathVariable String jobId) {
+        return uploadJobService.findJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/upload/{jobId}/resume")
+    @Operation(summary = "Retoma uma importação com falha", description = "Reprocessa o arquivo a partir do último checkpoint gravado")
+    public ResponseEntity<UploadJobResponse> resumeUpload(@PathVariable String jobId) {
+        return uploadJobService.resume(jobId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/upload/{jobId}/report")
+    @Operation(summary = "Baixa o relatório por linha de uma importação", description = "CSV com o id gerado ou o erro de cada linha processada")
+    public ResponseEntity<Resource> uploadReport(@PathVariable String jobId) {
+        return uploadJobService.findReport(jobId)
+                .<ResponseEntity<Resource>>map(report -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jobId + ".csv\"")
+                        .body(new FileSystemResource(report)))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/exists")
@@ -50,4 +116,92 @@ public class CardController {
                 .map(id -> ResponseEntity.ok(new CardResponse(id)))
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @PostMapping(value = "/exists/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Consulta a existência de vários cartões",
+            description = "Recebe até 10000 números de cartão e retorna o id de cada um (ou null) na mesma ordem"
+    )
+    public ResponseEntity<CardExistsBatchResponse> existsBatch(@RequestBody @Valid CardExistsBatchRequest request) {
+        return ResponseEntity.ok(new CardExistsBatchResponse(cardService.findCardIds(request.cardNumbers())));
+    }
+
+    /**
+     * Variante em streaming, sem limite de tamanho: cada linha da entrada é um número de cartão em JSON
+     * ({@code "4111..."} ou {@code {"cardNumber":"4111..."}}) e cada linha da saída é {@code {"id":...}}, na mesma
+     * ordem. A entrada é processada em blocos de {@value #NDJSON_CHUNK_SIZE} linhas; linhas inválidas retornam
+     * {@code null}.
+     */
+    @PostMapping(value = "/exists/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Consulta a existência de cartões em streaming (NDJSON)",
+            description = "Uma linha JSON por cartão na entrada e uma linha {\"id\": ...} por cartão na saída, na mesma ordem"
+    )
+    public void existsBatchStream(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        List<String> chunk = new ArrayList<>(NDJSON_CHUNK_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(parseCardNumber(line));
+            if (chunk.size() == NDJSON_CHUNK_SIZE) {
+                writeIds(writer, chunk);
+            }
+        }
+        writeIds(writer, chunk);
+        writer.flush();
+    }
+
+    private void writeIds(Writer writer, List<String> chunk) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (Long id : cardService.findCardIds(chunk)) {
+            writer.write("{\"id\":");
+            writer.write(String.valueOf(id));
+            writer.write("}\n");
+        }
+        writer.flush();
+        chunk.clear();
+    }
+
+    private String parseCardNumber(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            return node.isTextual() || node.isNumber() ? node.asText() : node.path("cardNumber").asText(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            summary = "Exporta os cartões cadastrados",
+            description = "Id e hash (SHA-256, hexadecimal) de todos os cartões, em ordem de id, em NDJSON ou CSV. "
+                    + "Para retomar uma exportação interrompida, informe em afterId o último id recebido"
+    )
+    public void export(@RequestParam(defaultValue = "NDJSON") CardExportService.Format format,
+                       @RequestParam(defaultValue = "0") long afterId,
+                       HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        cardExportService.export(format, afterId, response.getOutputStream());
+    }
+
+    @GetMapping("/export/decrypted")
+    @Operation(
+            summary = "Exporta os cartões com o número decifrado",
+            description = "Como /cards/export, incluindo o número do cartão; exige a permissão CARD_DECRYPT"
+    )
+    public void exportDecrypted(@RequestParam(defaultValue = "NDJSON") CardExportService.Format format,
+                                @RequestParam(defaultValue = "0") long afterId,
+                                HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        cardExportService.exportDecrypted(format, afterId, response.getOutputStream());
+    }
 }
@@ -0,0 +1,85 @@
+package com.hyperativa.crud.controller;
+
+import com.hyperativa.crud.dto.CardResponse;
+import com.hyperativa.crud.exception.TokenException;
+import com.hyperativa.crud.security.AuthenticatedUser;
+import com.hyperativa.crud.security.TokenService;
+import com.hyperativa.crud.security.UserCache;
+import com.hyperativa.crud.service.ReactiveCardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Objects;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * Rotas do servidor reativo: {@code GET /cards/exists?number=} com o mesmo contrato e a mesma autenticação
+ * (Bearer token) do endpoint MVC.
+ */
+@Component
+@ConditionalOnProperty(name = "api.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveCardRouter {
+
+    private final ReactiveCardService reactiveCardService;
+    private final TokenService tokenService;
+    private final UserCache userCache;
+
+    @Value("${api.security.token.verify-user:false}")
+    private boolean verifyUser;
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route(GET("/cards/exists"), this::exists)
+                .filter(this::authenticated);
+    }
+
+    private Mono<ServerResponse> exists(ServerRequest request) {
+        return request.queryParam("number")
+                .filter(number -> !number.isBlank())
+                .map(number -> reactiveCardService.findCardId(number)
+                        .flatMap(id -> ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(new CardResponse(id)))
+                        .switchIfEmpty(ServerResponse.notFound().build()))
+                .orElseGet(() -> ServerResponse.badRequest().build());
+    }
+
+    private Mono<ServerResponse> authenticated(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        String authHeader = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return unauthorized();
+        }
+        AuthenticatedUser user;
+        try {
+            user = tokenService.extractUser(authHeader.substring("Bearer ".length()));
+        } catch (TokenException e) {
+            return unauthorized();
+        }
+        if (!verifyUser) {
+            return next.handle(request);
+        }
+        // o cache de usuários pode consultar o banco (JDBC), fora do event loop
+        return Mono.fromCallable(() -> userCache.find(user.username())
+                        .filter(found -> Objects.equals(found.userId(), user.userId()))
+                        .isPresent())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(exists -> exists ? next.handle(request) : unauthorized());
+    }
+
+    private static Mono<ServerResponse> unauthorized() {
+        return ServerResponse.status(HttpStatus.UNAUTHORIZED).build();
+    }
+}
@@ -11,17 +11,17 @@ import lombok.*;
 public class Card extends Auditable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
-    @Column(nullable = false, unique = true)
-    private String cardNumberHash;
+    @Column(name = "card_hash", unique = true, columnDefinition = "BINARY(32)")
+    private CardHash cardNumberHash;
 
     @Column(nullable = false)
     private String encryptedCardNumber;
 
     @Builder
-    public Card(Long id, String cardNumberHash, String encryptedCardNumber) {
+    public Card(Long id, CardHash cardNumberHash, String encryptedCardNumber) {
         this.id = id;
         this.cardNumberHash = cardNumberHash;
         this.encryptedCardNumber = encryptedCardNumber;
@@ -0,0 +1,42 @@
+package com.hyperativa.crud.domain.model;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 do número do cartão (32 bytes), gravado como {@code BINARY(32)} na coluna {@code cards.card_hash}.
+ */
+public record CardHash(byte[] value) {
+
+    public static final int LENGTH = 32;
+
+    public CardHash {
+        if (value == null || value.length != LENGTH) {
+            throw new IllegalArgumentException("Hash de cartão deve ter " + LENGTH + " bytes");
+        }
+    }
+
+    public static CardHash fromBase64(String base64) {
+        return new CardHash(Base64.getDecoder().decode(base64));
+    }
+
+    public String toBase64() {
+        return Base64.getEncoder().encodeToString(value);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof CardHash hash && Arrays.equals(value, hash.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return HexFormat.of().formatHex(value);
+    }
+}
@@ -0,0 +1,18 @@
+package com.hyperativa.crud.domain.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class CardHashConverter implements AttributeConverter<CardHash, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(CardHash attribute) {
+        return attribute != null ? attribute.value() : null;
+    }
+
+    @Override
+    public CardHash convertToEntityAttribute(byte[] dbData) {
+        return dbData != null ? new CardHash(dbData) : null;
+    }
+}
@@ -0,0 +1,126 @@
+package com.hyperativa.crud.domain.model;
+
+/**
+ * Normalização e validação dos números de cartão. Espaços, tabulações e hífens entre os dígitos são descartados,
+ * para que {@code "4111 1111 1111 1111"} e {@code "4111111111111111"} gerem o mesmo hash no cadastro, na
+ * importação e na consulta. O número normalizado tem de 13 a 19 dígitos; no cadastro, o dígito verificador
+ * (Luhn) também precisa ser válido.
+ */
+public final class CardNumbers {
+
+    public static final int MIN_LENGTH = 13;
+    public static final int MAX_LENGTH = 19;
+
+    /** Caractere que invalida o número. */
+    public static final int OTHER = 0;
+    public static final int DIGIT = 1;
+    /** Espaço, tabulação ou {@code \r}: ignorado; uma linha só com eles é vazia. */
+    public static final int WHITESPACE = 2;
+    /** Hífen entre grupos de dígitos: ignorado. */
+    public static final int SEPARATOR = 3;
+
+    private static final byte[] TYPES = new byte[256];
+
+    static {
+        for (int c = '0'; c <= '9'; c++) {
+            TYPES[c] = DIGIT;
+        }
+        TYPES[' '] = WHITESPACE;
+        TYPES['\t'] = WHITESPACE;
+        TYPES['\r'] = WHITESPACE;
+        TYPES['-'] = SEPARATOR;
+    }
+
+    private CardNumbers() {
+    }
+
+    /**
+     * Classe de um byte (ASCII) do número: {@link #DIGIT}, {@link #WHITESPACE}, {@link #SEPARATOR} ou
+     * {@link #OTHER}.
+     */
+    public static int type(byte b) {
+        return TYPES[b & 0xFF];
+    }
+
+    /**
+     * Só os dígitos do número, ou {@code null} se houver outro caractere ou a quantidade de dígitos estiver fora de
+     * 13 a 19. Não verifica o dígito verificador. Um número já normalizado é devolvido sem cópia.
+     */
+    public static String normalize(CharSequence cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        int length = cardNumber.length();
+        int digits = 0;
+        for (int i = 0; i < length; i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            switch (type((byte) c)) {
+                case DIGIT -> digits++;
+                case WHITESPACE, SEPARATOR -> {
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        if (digits < MIN_LENGTH || digits > MAX_LENGTH) {
+            return null;
+        }
+        if (digits == length && cardNumber instanceof String normalized) {
+            return normalized;
+        }
+        StringBuilder normalized = new StringBuilder(digits);
+        for (int i = 0; i < length; i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Dígito verificador de um número já normalizado.
+     */
+    public static boolean isLuhnValid(CharSequence digits) {
+        int sum = 0;
+        for (int i = digits.length() - 1, position = 0; i >= 0; i--, position++) {
+            sum += luhnDigit(digits.charAt(i) - '0', position);
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Dígito verificador dos dígitos ASCII em {@code digits[offset, offset + length)}.
+     */
+    public static boolean isLuhnValid(byte[] digits, int offset, int length) {
+        int sum = 0;
+        for (int i = offset + length - 1, position = 0; i >= offset; i--, position++) {
+            sum += luhnDigit(digits[i] - '0', position);
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Dígito verificador que, acrescentado ao fim de {@code digits} (já normalizado), torna o número válido. Usado
+     * para gerar números de cartão nos testes de carga.
+     */
+    public static char luhnCheckDigit(CharSequence digits) {
+        int sum = 0;
+        for (int i = digits.length() - 1, position = 1; i >= 0; i--, position++) {
+            sum += luhnDigit(digits.charAt(i) - '0', position);
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private static int luhnDigit(int digit, int positionFromRight) {
+        if ((positionFromRight & 1) == 0) {
+            return digit;
+        }
+        int doubled = digit * 2;
+        return doubled > 9 ? doubled - 9 : doubled;
+    }
+}
@@ -0,0 +1,18 @@
+package com.hyperativa.crud.domain.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id gerado pelo {@link SnowflakeIdGenerator} da aplicação antes do INSERT, o que permite ao Hibernate agrupar
+ * os INSERTs em lote (com {@code IDENTITY}, cada INSERT precisa ser executado sozinho para obter o id).
+ */
+@IdGeneratorType(SnowflakeIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {
+}
@@ -0,0 +1,118 @@
+package com.hyperativa.crud.domain.model;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Ids ordenados por tempo gerados na aplicação, sem round trip ao banco, no formato
+ * {@code timestamp (41 bits, ms desde 2024-01-01) | nó (4 bits) | sequência (8 bits)}.
+ * <p>
+ * O total de 53 bits mantém os ids dentro de {@code Number.MAX_SAFE_INTEGER}, então clientes JavaScript
+ * leem o id do JSON sem perda de precisão. Cada nó gera até 256 ids por milissegundo; acima disso, ou se o
+ * relógio voltar, o gerador avança o timestamp lógico, mas nunca mais de {@code maxLeadMillis} à frente do relógio:
+ * nesse ponto {@code nextId} espera o relógio alcançar. Como o estado não é persistido, o primeiro id de um gerador
+ * novo já sai {@code maxLeadMillis} à frente do instante da criação, acima de qualquer id que uma execução anterior
+ * do mesmo nó possa ter emitido; a folga para rajadas volta depois de {@code maxLeadMillis} sem gerar ids.
+ * <p>
+ * {@link #reassign(int)} troca o nó (quando a reserva do anterior foi perdida e outro foi tomado) com a mesma regra:
+ * a sequência do nó novo recomeça {@code maxLeadMillis} à frente do relógio, como em um gerador recém-criado.
+ */
+public class SnowflakeIdGenerator {
+
+    public static final int NODE_BITS = 4;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    public static final long DEFAULT_MAX_LEAD_MILLIS = 1000;
+
+    private static final int SEQUENCE_BITS = 8;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long LEAD_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final long maxLead;
+    private final BooleanSupplier active;
+    private final LongSupplier clock;
+    private volatile Timeline timeline;
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, DEFAULT_MAX_LEAD_MILLIS, () -> true);
+    }
+
+    /**
+     * @param maxLeadMillis quanto o timestamp lógico pode ficar à frente do relógio
+     * @param active        se o nó ainda pertence a esta instância; quando falso, {@code nextId} falha
+     */
+    public SnowflakeIdGenerator(int nodeId, long maxLeadMillis, BooleanSupplier active) {
+        this(nodeId, maxLeadMillis, active, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        this(nodeId, DEFAULT_MAX_LEAD_MILLIS, () -> true, clock);
+    }
+
+    SnowflakeIdGenerator(int nodeId, long maxLeadMillis, BooleanSupplier active, LongSupplier clock) {
+        if (maxLeadMillis < 1) {
+            throw new IllegalArgumentException("Avanço máximo do relógio deve ser positivo: " + maxLeadMillis);
+        }
+        this.maxLead = maxLeadMillis;
+        this.active = active;
+        this.clock = clock;
+        this.timeline = newTimeline(nodeId);
+    }
+
+    /**
+     * Passa a gerar ids com outro nó, recomeçando a sequência {@code maxLeadMillis} à frente do relógio. Ids em
+     * geração durante a troca são descartados e gerados de novo no nó novo.
+     */
+    public void reassign(int nodeId) {
+        timeline = newTimeline(nodeId);
+    }
+
+    public int nodeId() {
+        return (int) (timeline.node >>> SEQUENCE_BITS);
+    }
+
+    /**
+     * Menor id possível gerado no instante {@code epochMillis}, por qualquer nó.
+     */
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    public long nextId() {
+        if (!active.getAsBoolean()) {
+            throw new IllegalStateException("Id do nó não pertence mais a esta instância; ids suspensos");
+        }
+        // o estado guarda timestamp e sequência juntos, então passar de 255 na sequência avança o milissegundo
+        while (true) {
+            Timeline current = timeline;
+            long now = clock.getAsLong() - EPOCH;
+            long previous = current.last.get();
+            long state = Math.max(now << SEQUENCE_BITS, previous + 1);
+            if ((state >>> SEQUENCE_BITS) - now > maxLead) {
+                LockSupport.parkNanos(LEAD_WAIT_NANOS);
+            } else if (current.last.compareAndSet(previous, state) && current == timeline) {
+                return (state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | current.node
+                        | (state & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    private Timeline newTimeline(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Id do nó deve estar entre 0 e " + MAX_NODE_ID + ": " + nodeId);
+        }
+        // o primeiro id sai no limite do avanço, acima do que o mesmo nó emitiu antes de reiniciar
+        return new Timeline((long) nodeId << SEQUENCE_BITS,
+                new AtomicLong(((clock.getAsLong() - EPOCH + maxLead) << SEQUENCE_BITS) - 1));
+    }
+
+    /**
+     * Nó e último estado (timestamp e sequência) emitido com ele, trocados juntos em {@link #reassign(int)}.
+     */
+    private record Timeline(long node, AtomicLong last) {
+    }
+}
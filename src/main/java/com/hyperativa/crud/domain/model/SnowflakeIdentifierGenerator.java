@@ -0,0 +1,35 @@
+package com.hyperativa.crud.domain.model;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+/**
+ * Adaptador do Hibernate para o {@link SnowflakeIdGenerator} registrado no Spring, recebido pela propriedade
+ * {@value #GENERATOR_SETTING}; assim, JPA e os INSERTs via JDBC compartilham a mesma sequência.
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator {
+
+    public static final String GENERATOR_SETTING = "hyperativa.id.snowflake-generator";
+
+    private final SnowflakeIdGenerator generator;
+
+    public SnowflakeIdentifierGenerator(SnowflakeId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object generator = context.getServiceRegistry()
+                .requireService(ConfigurationService.class)
+                .getSettings()
+                .get(GENERATOR_SETTING);
+        if (!(generator instanceof SnowflakeIdGenerator snowflake)) {
+            throw new IllegalStateException("Propriedade " + GENERATOR_SETTING + " não configurada para " + member);
+        }
+        this.generator = snowflake;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return generator.nextId();
+    }
+}
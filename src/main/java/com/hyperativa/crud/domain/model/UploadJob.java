@@ -0,0 +1,86 @@
+package com.hyperativa.crud.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class UploadJob extends Auditable {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private UploadJobStatus status;
+
+    private long totalBytes;
+
+    private long processedBytes;
+
+    private long linesProcessed;
+
+    private long inserted;
+
+    private long duplicates;
+
+    private long rejected;
+
+    private long reportBytes;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private String errorMessage;
+
+    /**
+     * Instância que processa o job; outra só o assume por um UPDATE condicional quando o heartbeat ficar antigo.
+     */
+    @Column(length = 36)
+    private String owner;
+
+    /**
+     * Atualizado pelo dono com o relógio do banco ({@code UploadJobRepository#heartbeat}), nunca pelo {@code save}.
+     */
+    @Column(updatable = false)
+    private LocalDateTime heartbeatAt;
+
+    /**
+     * Início da execução atual e o progresso que ela encontrou, para a vazão e a estimativa não contarem execuções
+     * anteriores nem o tempo parado entre elas.
+     */
+    private LocalDateTime runStartedAt;
+
+    private long runStartLines;
+
+    private long runStartBytes;
+
+    /**
+     * Incrementada a cada gravação e por quem assume o job: o checkpoint de um dono que perdeu o job falha. O default
+     * preenche os jobs gravados antes da coluna existir.
+     */
+    @Version
+    @Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
+    @Builder
+    public UploadJob(String id, String filename, UploadJobStatus status, long totalBytes, String owner,
+                     LocalDateTime heartbeatAt) {
+        this.id = id;
+        this.filename = filename;
+        this.status = status;
+        this.totalBytes = totalBytes;
+        this.owner = owner;
+        this.heartbeatAt = heartbeatAt;
+    }
+}
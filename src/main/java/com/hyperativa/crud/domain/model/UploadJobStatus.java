@@ -0,0 +1,8 @@
+package com.hyperativa.crud.domain.model;
+
+public enum UploadJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,471 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.Card;
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Acesso em lote à tabela {@code cards}, particionada pelo {@link CardShardRouter}: cada comando vai ao shard do
+ * hash, as leituras da tabela inteira percorrem todos os shards e os lotes são divididos por shard e gravados em
+ * paralelo. Sem shards adicionais, tudo vai ao banco principal e as consultas por hash usam o {@link CardRepository}.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class CardBatchRepository {
+
+    private static final String FIND_IDS_BY_LEGACY_HASHES =
+            "SELECT id, card_number_hash FROM cards WHERE card_number_hash IN (:hashes) AND card_hash IS NULL";
+
+    private static final String COUNT = "SELECT COUNT(*) FROM cards";
+
+    private static final String ALL_HASHES = "SELECT card_hash AS hash FROM cards";
+
+    private static final String ALL_HASHES_WITH_LEGACY =
+            "SELECT COALESCE(card_hash, FROM_BASE64(card_number_hash)) AS hash FROM cards";
+
+    private static final String HASHES_AFTER_ID =
+            "SELECT id, card_hash AS hash FROM cards WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String HASHES_AFTER_ID_WITH_LEGACY =
+            "SELECT id, COALESCE(card_hash, FROM_BASE64(card_number_hash)) AS hash FROM cards "
+                    + "WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String ENCRYPTED_AFTER_ID =
+            "SELECT id, card_hash AS hash, encrypted_card_number FROM cards WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String ENCRYPTED_AFTER_ID_WITH_LEGACY =
+            "SELECT id, COALESCE(card_hash, FROM_BASE64(card_number_hash)) AS hash, encrypted_card_number FROM cards "
+                    + "WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String LOCK_WAIT_TIMEOUT = "SELECT @@innodb_lock_wait_timeout";
+
+    private static final String FIND_IDS_BY_HASHES =
+            "SELECT id, card_hash FROM cards WHERE card_hash IN (:hashes)";
+
+    // Em conflito no índice único do hash, LAST_INSERT_ID(id) devolve o id da linha existente como chave gerada. Um
+    // conflito só de id (outro cartão com o mesmo id) não pode ser tratado como duplicidade: atribuir NULL à chave
+    // primária faz o comando falhar (sql_mode estrito, padrão do MySQL 8) e o upsert é repetido com outro id.
+    // A linha proposta é lida pelo alias (MySQL 8.0.19+), no lugar de VALUES(), obsoleto desde o 8.0.20
+    private static final String UPSERT_CARD =
+            "INSERT INTO cards (id, card_hash, encrypted_card_number, created_at, updated_at, created_by, updated_by) "
+                    + "VALUES (:id, :hash, :encrypted, :now, :now, :auditor, :auditor) AS new "
+                    + "ON DUPLICATE KEY UPDATE id = IF(card_hash = new.card_hash, LAST_INSERT_ID(id), NULL)";
+
+    // Conflito com uma linha ainda não migrada (índice único da coluna antiga) também preenche o card_hash dela
+    private static final String UPSERT_CARD_WITH_LEGACY_HASH =
+            "INSERT INTO cards (id, card_hash, card_number_hash, encrypted_card_number, created_at, updated_at, created_by, updated_by) "
+                    + "VALUES (:id, :hash, :legacyHash, :encrypted, :now, :now, :auditor, :auditor) AS new "
+                    + "ON DUPLICATE KEY UPDATE card_hash = IF(card_hash IS NULL AND card_number_hash = new.card_number_hash, "
+                    + "new.card_hash, card_hash), "
+                    + "id = IF(card_hash = new.card_hash, LAST_INSERT_ID(id), NULL)";
+
+    private static final int MYSQL_COLUMN_CANNOT_BE_NULL = 1048;
+
+    private static final int MAX_DEADLOCK_ATTEMPTS = 3;
+    private static final int MAX_ID_COLLISION_ATTEMPTS = 3;
+
+    private final CardRepository cardRepository;
+    private final AuditorAware<String> auditorProvider;
+    private final CardHashMigration cardHashMigration;
+    private final SnowflakeIdGenerator cardIdGenerator;
+    private final CardShardRouter cardShardRouter;
+    private final ExecutorService cardShardExecutor;
+
+    /**
+     * Ids dos hashes já cadastrados; hashes não cadastrados ficam fora do mapa.
+     */
+    public Map<CardHash, Long> findIds(Collection<CardHash> hashes) {
+        Map<CardHash, Long> ids = new HashMap<>();
+        if (!cardShardRouter.isSharded()) {
+            ids.putAll(cardRepository.findIdMapByCardNumberHashIn(hashes));
+            ids.putAll(findIdsByLegacyHashes(hashes.stream().filter(hash -> !ids.containsKey(hash)).toList()));
+            return ids;
+        }
+        cardShardRouter.groupByShard(hashes, Function.identity()).forEach((shard, slice) -> {
+            ids.putAll(findIds(shard, slice));
+            if (shard.index() == 0) {
+                ids.putAll(findIdsByLegacyHashes(slice.stream().filter(hash -> !ids.containsKey(hash)).toList()));
+            }
+        });
+        return ids;
+    }
+
+    public Optional<Long> findId(CardHash hash) {
+        if (!cardShardRouter.isSharded()) {
+            return cardRepository.findIdByCardNumberHash(hash).or(() -> findIdByLegacyHash(hash));
+        }
+        CardShard shard = cardShardRouter.shardFor(hash);
+        Optional<Long> id = Optional.ofNullable(findIds(shard, List.of(hash)).get(hash));
+        return shard.index() == 0 ? id.or(() -> findIdByLegacyHash(hash)) : id;
+    }
+
+    /**
+     * Consulta pela coluna Base64 antiga os hashes ainda não migrados; vazio quando a migração de {@code card_hash}
+     * já terminou. A coluna antiga só existe no banco principal.
+     */
+    public Map<CardHash, Long> findIdsByLegacyHashes(Collection<CardHash> hashes) {
+        Map<CardHash, Long> ids = new HashMap<>();
+        if (hashes.isEmpty() || cardHashMigration.isComplete()) {
+            return ids;
+        }
+        List<String> legacyHashes = hashes.stream().map(CardHash::toBase64).toList();
+        mainJdbcTemplate().query(FIND_IDS_BY_LEGACY_HASHES, Map.of("hashes", legacyHashes),
+                rs -> { ids.put(CardHash.fromBase64(rs.getString("card_number_hash")), rs.getLong("id")); });
+        return ids;
+    }
+
+    /**
+     * Consulta pela coluna Base64 antiga; só retorna resultado enquanto a migração de {@code card_hash} não terminou.
+     */
+    public Optional<Long> findIdByLegacyHash(CardHash hash) {
+        if (cardHashMigration.isComplete()) {
+            return Optional.empty();
+        }
+        return mainJdbcTemplate().query(FIND_IDS_BY_LEGACY_HASHES, Map.of("hashes", List.of(hash.toBase64())),
+                rs -> rs.next() ? Optional.of(rs.getLong("id")) : Optional.<Long>empty());
+    }
+
+    /**
+     * Quantidade de cartões, somada entre os shards (uma faixa em movimentação é contada nos dois).
+     */
+    public long count() {
+        long count = 0;
+        for (CardShard shard : cardShardRouter.shards()) {
+            Long rows = shard.jdbcTemplate().getJdbcOperations().queryForObject(COUNT, Long.class);
+            count += rows != null ? rows : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Maior tempo que um upsert pode esperar por travas entre a geração do id e o commit, entre todos os shards:
+     * {@code innodb_lock_wait_timeout} em cada tentativa repetida após deadlock.
+     */
+    public long maxUpsertLockWaitMillis() {
+        long seconds = 0;
+        for (CardShard shard : cardShardRouter.shards()) {
+            Long timeout = shard.jdbcTemplate().getJdbcOperations().queryForObject(LOCK_WAIT_TIMEOUT, Long.class);
+            seconds = Math.max(seconds, timeout != null ? timeout : 0);
+        }
+        return TimeUnit.SECONDS.toMillis(seconds) * MAX_DEADLOCK_ATTEMPTS;
+    }
+
+    /**
+     * Percorre todos os hashes cadastrados sem carregá-los em memória (streaming de linha a linha do MySQL), um
+     * shard por vez.
+     */
+    public void forEachHash(Consumer<CardHash> consumer) {
+        for (CardShard shard : cardShardRouter.shards()) {
+            String sql = withLegacy(shard) ? ALL_HASHES_WITH_LEGACY : ALL_HASHES;
+            shard.jdbcTemplate().getJdbcOperations().query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(Integer.MIN_VALUE);
+                return statement;
+            }, (RowCallbackHandler) rs -> consumer.accept(new CardHash(rs.getBytes("hash"))));
+        }
+    }
+
+    /**
+     * Percorre até {@code limit} cartões com id maior que {@code afterId}, em ordem de id, e retorna o último id lido
+     * (ou {@code afterId} se não houver nenhum).
+     */
+    public long forEachHashAfter(long afterId, int limit, ObjLongConsumer<CardHash> consumer) {
+        return forEachAfter(afterId, limit, false, row -> consumer.accept(row.hash(), row.id()));
+    }
+
+    /**
+     * Como {@link #forEachHashAfter}, incluindo o número cifrado; usado apenas pela exportação com o número
+     * decifrado, para não trafegar a coluna cifrada nas demais leituras.
+     */
+    public long forEachEncryptedAfter(long afterId, int limit, EncryptedCardConsumer consumer) {
+        return forEachAfter(afterId, limit, true, row -> consumer.accept(row.id(), row.hash(), row.encryptedCardNumber()));
+    }
+
+    /**
+     * Insere o cartão ou, se o hash já estiver cadastrado, retorna o id existente, em um único comando e sem
+     * falhar em inserções concorrentes do mesmo cartão. O cartão foi inserido se o id retornado for o dele (que é
+     * trocado por um novo se já pertencer a outro cartão).
+     * Enquanto a faixa do hash está sendo movida, o cartão também é gravado, com o mesmo id, no shard de destino.
+     * Falha com {@link com.hyperativa.crud.exception.CardShardUnavailableException} se o mapa de shards desta
+     * instância estiver desatualizado ({@link CardShardRouter#checkWritable()}).
+     */
+    public long upsert(Card card) {
+        cardShardRouter.checkWritable();
+        CardHash hash = card.getCardNumberHash();
+        long id = upsert(cardShardRouter.shardFor(hash), card, true);
+        cardShardRouter.migrationTargetFor(hash).ifPresent(target -> upsert(target, withId(card, id), false));
+        return id;
+    }
+
+    /**
+     * Versão em lote do {@link #upsert(Card)}: em cada shard, um INSERT multi-linha que ignora os conflitos e uma
+     * consulta {@code IN} que retorna o id canônico de cada hash, com os shards gravados em paralelo. Os cartões
+     * cujo id retornado é diferente do próprio já existiam (ou foram inseridos por outra requisição concorrente).
+     */
+    public Map<CardHash, Long> upsertAll(List<Card> cards) {
+        if (cards.isEmpty()) {
+            return Map.of();
+        }
+        cardShardRouter.checkWritable();
+        Map<CardHash, Long> ids = upsertPerShard(cardShardRouter.groupByShard(cards, Card::getCardNumberHash), true);
+        Map<CardShard, List<Card>> migrating = new HashMap<>();
+        for (Card card : cards) {
+            CardHash hash = card.getCardNumberHash();
+            cardShardRouter.migrationTargetFor(hash).ifPresent(target -> migrating
+                    .computeIfAbsent(target, ignored -> new ArrayList<>())
+                    .add(withId(card, ids.get(hash))));
+        }
+        upsertPerShard(migrating, false);
+        return ids;
+    }
+
+    private Map<CardHash, Long> upsertPerShard(Map<CardShard, List<Card>> cardsByShard, boolean newIdOnCollision) {
+        Map<CardHash, Long> ids = new HashMap<>();
+        if (cardsByShard.size() <= 1) {
+            cardsByShard.forEach((shard, cards) -> ids.putAll(upsertAll(shard, cards, newIdOnCollision)));
+            return ids;
+        }
+        List<CompletableFuture<Map<CardHash, Long>>> futures = cardsByShard.entrySet().stream()
+                .map(entry -> CompletableFuture.supplyAsync(
+                        () -> upsertAll(entry.getKey(), entry.getValue(), newIdOnCollision), cardShardExecutor))
+                .toList();
+        futures.forEach(future -> ids.putAll(future.join()));
+        return ids;
+    }
+
+    private long upsert(CardShard shard, Card card, boolean newIdOnCollision) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        executeWithNewIdOnCollision(shard, List.of(card), newIdOnCollision, parameters -> sql ->
+                shard.jdbcTemplate().update(sql, parameters[0], keyHolder, new String[]{"id"}));
+        // sem chave gerada, a linha foi inserida com o id da aplicação; com ela, é o id da linha já existente
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        return keys.isEmpty() ? card.getId() : ((Number) keys.get(0).values().iterator().next()).longValue();
+    }
+
+    private Map<CardHash, Long> upsertAll(CardShard shard, List<Card> cards, boolean newIdOnCollision) {
+        // a mesma ordem de travas no índice único entre lotes concorrentes reduz os deadlocks do InnoDB
+        List<Card> sorted = cards.stream()
+                .sorted(Comparator.comparing(card -> card.getCardNumberHash().value(), Arrays::compareUnsigned))
+                .toList();
+        executeWithNewIdOnCollision(shard, sorted, newIdOnCollision,
+                batch -> sql -> shard.jdbcTemplate().batchUpdate(sql, batch));
+        return findIds(shard, cards.stream().map(Card::getCardNumberHash).toList());
+    }
+
+    /**
+     * Repete o upsert com novos ids quando um deles já pertence a outro cartão. Na cópia para o shard de destino de
+     * uma faixa em movimentação, o id é o da origem e não pode mudar, então a colisão é repassada.
+     * <p>
+     * O lote roda em autocommit e o driver pode dividi-lo em vários comandos: os anteriores ao da colisão já estão
+     * gravados. Só os cartões cujo hash ainda não está no shard são repetidos, com novos ids; os demais mantêm o id
+     * com que foram gravados, para continuarem sendo reconhecidos como inseridos por esta requisição.
+     */
+    private void executeWithNewIdOnCollision(CardShard shard, List<Card> cards, boolean newIdOnCollision,
+                                             Function<SqlParameterSource[], Consumer<String>> upsert) {
+        List<Card> pending = cards;
+        for (int attempt = 1; ; attempt++) {
+            SqlParameterSource[] parameters = parameters(pending, shard);
+            try {
+                execute(shard, upsert.apply(parameters));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (!newIdOnCollision || !isIdCollision(e) || attempt == MAX_ID_COLLISION_ATTEMPTS) {
+                    throw e;
+                }
+                Map<CardHash, Long> stored = findIds(shard, pending.stream().map(Card::getCardNumberHash).toList());
+                pending = pending.stream().filter(card -> !stored.containsKey(card.getCardNumberHash())).toList();
+                log.warn("Id de cartão já usado por outro cartão no shard {}; repetindo {} cartões com novos ids",
+                        shard.index(), pending.size());
+                if (pending.isEmpty()) {
+                    return;
+                }
+                pending.forEach(card -> card.setId(cardIdGenerator.nextId()));
+            }
+        }
+    }
+
+    private static boolean isIdCollision(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException cause
+                && cause.getErrorCode() == MYSQL_COLUMN_CANNOT_BE_NULL;
+    }
+
+    private Map<CardHash, Long> findIds(CardShard shard, Collection<CardHash> hashes) {
+        Map<CardHash, Long> ids = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return ids;
+        }
+        shard.jdbcTemplate().query(FIND_IDS_BY_HASHES,
+                Map.of("hashes", hashes.stream().map(CardHash::value).toList()),
+                rs -> { ids.put(new CardHash(rs.getBytes("card_hash")), rs.getLong("id")); });
+        return ids;
+    }
+
+    /**
+     * Página por id em todos os shards: cada shard devolve até {@code limit} linhas após {@code afterId} e as
+     * primeiras {@code limit} da intercalação por id formam a página. Uma linha presente em dois shards durante a
+     * divisão de uma faixa (mesmo id) é entregue uma única vez.
+     */
+    private long forEachAfter(long afterId, int limit, boolean withEncrypted, Consumer<CardRow> consumer) {
+        Map<String, Object> parameters = Map.of("afterId", afterId, "limit", limit);
+        List<CardShard> shards = cardShardRouter.shards();
+        if (shards.size() == 1) {
+            long[] lastId = {afterId};
+            queryAfter(shards.get(0), withEncrypted, parameters, row -> {
+                lastId[0] = row.id();
+                consumer.accept(row);
+            });
+            return lastId[0];
+        }
+        List<CardRow> rows = new ArrayList<>();
+        for (CardShard shard : shards) {
+            queryAfter(shard, withEncrypted, parameters, rows::add);
+        }
+        rows.sort(Comparator.comparingLong(CardRow::id));
+        long lastId = afterId;
+        int consumed = 0;
+        for (CardRow row : rows) {
+            if (consumed == limit) {
+                break;
+            }
+            if (row.id() != lastId) {
+                consumer.accept(row);
+                lastId = row.id();
+                consumed++;
+            }
+        }
+        return lastId;
+    }
+
+    private void queryAfter(CardShard shard, boolean withEncrypted, Map<String, Object> parameters,
+                            Consumer<CardRow> consumer) {
+        boolean legacy = withLegacy(shard);
+        String sql = withEncrypted
+                ? legacy ? ENCRYPTED_AFTER_ID_WITH_LEGACY : ENCRYPTED_AFTER_ID
+                : legacy ? HASHES_AFTER_ID_WITH_LEGACY : HASHES_AFTER_ID;
+        shard.jdbcTemplate().query(sql, parameters, (RowCallbackHandler) rs -> consumer.accept(new CardRow(
+                rs.getLong("id"), new CardHash(rs.getBytes("hash")),
+                withEncrypted ? rs.getString("encrypted_card_number") : null)));
+    }
+
+    /**
+     * Executa o upsert com a coluna antiga enquanto ela existir. Se outra instância a removeu depois da última
+     * releitura, o comando falha com "Unknown column" e é repetido sem ela.
+     */
+    private void execute(CardShard shard, Consumer<String> upsert) {
+        boolean writeLegacyHash = writeLegacyHash(shard);
+        try {
+            retryOnDeadlock(() -> upsert.accept(upsertSql(writeLegacyHash)));
+        } catch (BadSqlGrammarException e) {
+            if (!writeLegacyHash || cardHashMigration.recheckLegacyColumn()) {
+                throw e;
+            }
+            retryOnDeadlock(() -> upsert.accept(UPSERT_CARD));
+        }
+    }
+
+    /**
+     * Os upserts são idempotentes, então a transação escolhida como vítima de um deadlock pode ser repetida.
+     */
+    private static void retryOnDeadlock(Runnable statement) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                statement.run();
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == MAX_DEADLOCK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String upsertSql(boolean writeLegacyHash) {
+        return writeLegacyHash ? UPSERT_CARD_WITH_LEGACY_HASH : UPSERT_CARD;
+    }
+
+    // a coluna Base64 antiga só existe no banco principal; os demais shards já são criados só com card_hash
+    private boolean withLegacy(CardShard shard) {
+        return shard.index() == 0 && !cardHashMigration.isComplete();
+    }
+
+    private boolean writeLegacyHash(CardShard shard) {
+        return shard.index() == 0 && cardHashMigration.isLegacyColumnPresent();
+    }
+
+    private NamedParameterJdbcTemplate mainJdbcTemplate() {
+        return cardShardRouter.main().jdbcTemplate();
+    }
+
+    private static Card withId(Card card, long id) {
+        return Card.builder()
+                .id(id)
+                .cardNumberHash(card.getCardNumberHash())
+                .encryptedCardNumber(card.getEncryptedCardNumber())
+                .build();
+    }
+
+    private SqlParameterSource[] parameters(List<Card> cards, CardShard shard) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        SqlParameterSource[] batch = new SqlParameterSource[cards.size()];
+        for (int i = 0; i < cards.size(); i++) {
+            Card card = cards.get(i);
+            if (card.getId() == null) {
+                card.setId(cardIdGenerator.nextId());
+            }
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", card.getId())
+                    .addValue("hash", card.getCardNumberHash().value())
+                    // a coluna antiga só existe no shard 0; o valor é ignorado pelo INSERT que não a usa
+                    .addValue("legacyHash", shard.index() == 0 ? card.getCardNumberHash().toBase64() : null)
+                    .addValue("encrypted", card.getEncryptedCardNumber())
+                    .addValue("now", now)
+                    .addValue("auditor", auditor);
+        }
+        return batch;
+    }
+
+    private record CardRow(long id, CardHash hash, String encryptedCardNumber) {
+    }
+
+    @FunctionalInterface
+    public interface EncryptedCardConsumer {
+
+        void accept(long id, CardHash hash, String encryptedCardNumber);
+    }
+}
@@ -0,0 +1,191 @@
+package com.hyperativa.crud.domain.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migração online de {@code cards.card_number_hash} (Base64 em VARCHAR) para {@code cards.card_hash} (BINARY(32)).
+ * <p>
+ * Enquanto a coluna antiga existir, todo INSERT grava as duas colunas (mantendo o índice único antigo válido)
+ * e as consultas que não encontram o hash novo consultam também a coluna antiga. Em segundo plano, os registros
+ * existentes são preenchidos em lotes por faixa de id, com pausa entre os lotes para não disputar com o tráfego.
+ * <p>
+ * A migração só é dada como concluída depois de uma nova varredura, um intervalo após a passada, que não encontra
+ * registros pendentes (linhas gravadas durante o deploy por instâncias da versão anterior, só com a coluna antiga).
+ * A conclusão fica registrada na tabela {@code card_hash_migration} e cada instância relê essa marca e a existência
+ * da coluna antiga a cada {@code api.cards.hash-migration.refresh-interval-ms}. Ao final, a coluna antiga (e seu
+ * índice) pode ser removida com {@code api.cards.hash-migration.drop-legacy-column}, depois de mais um intervalo
+ * (para as demais instâncias lerem a marca) e de uma última varredura sem pendentes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardHashMigration {
+
+    private static final String LEGACY_COLUMN_EXISTS =
+            "SELECT COUNT(*) FROM information_schema.columns "
+                    + "WHERE table_schema = DATABASE() AND table_name = 'cards' AND column_name = 'card_number_hash'";
+    private static final String CREATE_STATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS card_hash_migration (id INT NOT NULL PRIMARY KEY, "
+                    + "completed_at DATETIME(6) NOT NULL)";
+    private static final String COMPLETED = "SELECT COUNT(*) FROM card_hash_migration";
+    private static final String MARK_COMPLETED =
+            "INSERT IGNORE INTO card_hash_migration (id, completed_at) VALUES (1, NOW(6))";
+    private static final String NEXT_PENDING_ID = "SELECT MIN(id) FROM cards WHERE card_hash IS NULL AND id > ?";
+    private static final String BATCH_UPPER_ID =
+            "SELECT MAX(id) FROM (SELECT id FROM cards WHERE id >= ? ORDER BY id LIMIT ?) batch";
+    private static final String BACKFILL_BATCH =
+            "UPDATE cards SET card_hash = FROM_BASE64(card_number_hash) "
+                    + "WHERE id BETWEEN ? AND ? AND card_hash IS NULL";
+    private static final String DROP_LEGACY_COLUMN =
+            "ALTER TABLE cards DROP COLUMN card_number_hash, ALGORITHM=INPLACE, LOCK=NONE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${api.cards.hash-migration.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${api.cards.hash-migration.pause-ms:50}")
+    private long pauseMillis;
+
+    @Value("${api.cards.hash-migration.drop-legacy-column:false}")
+    private boolean dropLegacyColumn;
+
+    @Value("${api.cards.hash-migration.refresh-interval-ms:10000}")
+    private long refreshIntervalMillis;
+
+    private volatile boolean legacyColumnPresent;
+    private volatile boolean complete;
+
+    @PostConstruct
+    public void detectLegacyColumn() {
+        if (legacyColumnExists()) {
+            jdbcTemplate.execute(CREATE_STATE_TABLE);
+        }
+        refresh();
+    }
+
+    /**
+     * Relê a existência da coluna antiga e a marca de conclusão gravada por qualquer instância.
+     */
+    @Scheduled(initialDelayString = "${api.cards.hash-migration.refresh-interval-ms:10000}",
+            fixedDelayString = "${api.cards.hash-migration.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (complete && !legacyColumnPresent) {
+            return;
+        }
+        boolean present = legacyColumnExists();
+        boolean completed = !present || completedInCluster();
+        if (completed && !complete) {
+            log.info("Migração de card_hash concluída no cluster; consultas pela coluna antiga desativadas");
+        }
+        legacyColumnPresent = present;
+        complete = completed;
+    }
+
+    /**
+     * Chamado quando um INSERT com a coluna antiga falha: se outra instância já a removeu, a próxima tentativa deve
+     * ser feita sem ela.
+     *
+     * @return se a coluna antiga ainda existe
+     */
+    public boolean recheckLegacyColumn() {
+        refresh();
+        return legacyColumnPresent;
+    }
+
+    /**
+     * Indica se a coluna Base64 antiga ainda existe e, portanto, deve continuar sendo gravada.
+     */
+    public boolean isLegacyColumnPresent() {
+        return legacyColumnPresent;
+    }
+
+    /**
+     * Indica se todos os registros já possuem {@code card_hash}, dispensando a consulta pela coluna antiga.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!legacyColumnPresent || complete && !dropLegacyColumn) {
+            return;
+        }
+        Thread worker = new Thread(this::backfill, "card-hash-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void backfill() {
+        try {
+            long migrated = backfillPending();
+            long pass;
+            do {
+                Thread.sleep(refreshIntervalMillis);
+                pass = backfillPending();
+                migrated += pass;
+            } while (pass > 0);
+            jdbcTemplate.update(MARK_COMPLETED);
+            complete = true;
+            log.info("Migração de card_hash concluída; {} registros preenchidos", migrated);
+
+            if (dropLegacyColumn) {
+                // as demais instâncias deixam de consultar a coluna antiga na próxima releitura da marca
+                do {
+                    Thread.sleep(refreshIntervalMillis);
+                } while (backfillPending() > 0);
+                jdbcTemplate.execute(DROP_LEGACY_COLUMN);
+                legacyColumnPresent = false;
+                log.info("Coluna card_number_hash removida");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Erro na migração de card_hash; será retomada no próximo início da aplicação", e);
+        }
+    }
+
+    /**
+     * Uma passada pelos registros sem {@code card_hash}.
+     *
+     * @return a quantidade de registros preenchidos
+     */
+    private long backfillPending() throws InterruptedException {
+        long migrated = 0;
+        Long from = jdbcTemplate.queryForObject(NEXT_PENDING_ID, Long.class, 0L);
+        if (from != null) {
+            log.info("Preenchendo card_hash a partir do id {}", from);
+        }
+        while (from != null) {
+            Long to = jdbcTemplate.queryForObject(BATCH_UPPER_ID, Long.class, from, batchSize);
+            if (to == null) {
+                break;
+            }
+            migrated += jdbcTemplate.update(BACKFILL_BATCH, from, to);
+            from = jdbcTemplate.queryForObject(NEXT_PENDING_ID, Long.class, to);
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+        return migrated;
+    }
+
+    private boolean legacyColumnExists() {
+        Integer columns = jdbcTemplate.queryForObject(LEGACY_COLUMN_EXISTS, Integer.class);
+        return columns != null && columns > 0;
+    }
+
+    private boolean completedInCluster() {
+        Integer rows = jdbcTemplate.queryForObject(COMPLETED, Integer.class);
+        return rows != null && rows > 0;
+    }
+}
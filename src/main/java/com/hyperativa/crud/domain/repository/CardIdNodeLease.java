@@ -0,0 +1,200 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Reserva do id de nó do {@link SnowflakeIdGenerator} na tabela {@code card_id_node_leases} do banco principal,
+ * usada quando {@code api.cards.id.node-id} não é configurado.
+ * <p>
+ * Cada instância toma o primeiro nó livre ou com a reserva expirada e a renova a cada
+ * {@code api.cards.id.lease-renew-interval-ms}. A reserva é considerada válida localmente até o início da última
+ * renovação bem-sucedida mais o {@code lease-ttl-ms}; passado esse prazo sem renovar, o gerador recusa novos ids até
+ * uma renovação voltar a funcionar, o que só acontece se nenhuma outra instância tiver tomado o nó nesse meio tempo.
+ * Como o gerador limita o avanço do relógio lógico a {@code max-lead-ms} (menor que o TTL) e uma instância que toma o
+ * nó começa {@code max-lead-ms} à frente, os ids de quem perdeu a reserva não se repetem.
+ * <p>
+ * Se a renovação encontrar o nó com outro dono, a próxima renovação tenta reservar um nó livre e avisa o gerador
+ * ({@link #onNodeChanged(IntConsumer)}), que recomeça {@code max-lead-ms} à frente no nó novo. Enquanto não houver
+ * reserva válida, {@link #isHeld()} é falso e o health do actuator fica {@code DOWN}.
+ * <p>
+ * A renovação roda em uma thread própria, e não no agendador compartilhado do {@code @Scheduled}: uma tarefa lenta
+ * lá (reconciliação do índice, sincronização do filtro de Bloom) não pode atrasá-la além do TTL e suspender os ids.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardIdNodeLease {
+
+    private static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS card_id_node_leases (node_id INT NOT NULL PRIMARY KEY, "
+                    + "owner VARCHAR(36) NOT NULL, expires_at DATETIME(6) NOT NULL)";
+    // o MySQL aplica as atribuições em ordem: expires_at já enxerga o owner novo quando a reserva foi tomada
+    private static final String CLAIM =
+            "INSERT INTO card_id_node_leases (node_id, owner, expires_at) "
+                    + "VALUES (?, ?, NOW(6) + INTERVAL ? MICROSECOND) AS new ON DUPLICATE KEY UPDATE "
+                    + "owner = IF(expires_at < NOW(6), new.owner, owner), "
+                    + "expires_at = IF(owner = new.owner, new.expires_at, expires_at)";
+    private static final String OWNER = "SELECT owner FROM card_id_node_leases WHERE node_id = ?";
+    private static final String EXTEND =
+            "UPDATE card_id_node_leases SET expires_at = NOW(6) + INTERVAL ? MICROSECOND "
+                    + "WHERE node_id = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${api.cards.id.lease-ttl-ms:30000}")
+    private long ttlMillis;
+
+    @Value("${api.cards.id.max-lead-ms:1000}")
+    private long maxLeadMillis;
+
+    @Value("${api.cards.id.lease-renew-interval-ms:10000}")
+    private long renewIntervalMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile int nodeId = -1;
+    // só renova (e reserva de novo) se o gerador usar a reserva, e não um api.cards.id.node-id fixo
+    private volatile boolean leasing;
+    private volatile long heldUntilNanos;
+    private volatile IntConsumer nodeListener = node -> {
+    };
+    private ScheduledExecutorService renewer;
+
+    /**
+     * Toma o primeiro id de nó livre.
+     *
+     * @throws IllegalStateException se todos os nós estiverem reservados por outras instâncias
+     */
+    public synchronized int claim() {
+        if (ttlMillis <= maxLeadMillis) {
+            throw new IllegalStateException("api.cards.id.lease-ttl-ms deve ser maior que api.cards.id.max-lead-ms");
+        }
+        jdbcTemplate.execute(CREATE_TABLE);
+        int node = claimFreeNode();
+        if (node < 0) {
+            throw new IllegalStateException("Nenhum id de nó livre entre 0 e " + SnowflakeIdGenerator.MAX_NODE_ID
+                    + "; configure api.cards.id.node-id ou aguarde a expiração das reservas");
+        }
+        nodeId = node;
+        leasing = true;
+        if (renewer == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("card-id-node-lease-");
+            threadFactory.setDaemon(true);
+            renewer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            renewer.scheduleWithFixedDelay(this::renew, renewIntervalMillis, renewIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        return node;
+    }
+
+    /**
+     * Chamado com o id do nó novo quando a reserva perdida é substituída por outra.
+     */
+    public void onNodeChanged(IntConsumer listener) {
+        this.nodeListener = listener;
+    }
+
+    public synchronized void renew() {
+        int node = nodeId;
+        if (!leasing) {
+            return;
+        }
+        try {
+            if (node < 0) {
+                reclaim();
+                return;
+            }
+            long start = System.nanoTime();
+            if (jdbcTemplate.update(EXTEND, TimeUnit.MILLISECONDS.toMicros(ttlMillis), node, owner) == 1) {
+                heldUntilNanos = start + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            } else {
+                nodeId = -1;
+                log.error("Id de nó {} foi tomado por outra instância; novos cartões recusados até reservar outro", node);
+                reclaim();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Erro ao renovar a reserva do id de nó {}", node, e);
+        }
+    }
+
+    /**
+     * Id do nó reservado, ou {@code -1} sem reserva.
+     */
+    public int nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Indica se a reserva ainda está dentro do prazo da última renovação.
+     */
+    public boolean isHeld() {
+        return nodeId >= 0 && System.nanoTime() - heldUntilNanos < 0;
+    }
+
+    @PreDestroy
+    public void release() {
+        synchronized (this) {
+            if (renewer != null) {
+                renewer.shutdownNow();
+            }
+        }
+        int node = nodeId;
+        if (node < 0) {
+            return;
+        }
+        // o nó continua reservado pelo avanço máximo do relógio, que pode já ter sido emitido em ids
+        try {
+            jdbcTemplate.update(EXTEND, TimeUnit.MILLISECONDS.toMicros(maxLeadMillis), node, owner);
+        } catch (RuntimeException e) {
+            log.warn("Erro ao liberar a reserva do id de nó {}", node, e);
+        }
+    }
+
+    private void reclaim() {
+        int node = claimFreeNode();
+        if (node < 0) {
+            log.error("Nenhum id de nó livre entre 0 e {}; novos cartões continuam recusados",
+                    SnowflakeIdGenerator.MAX_NODE_ID);
+            return;
+        }
+        // o gerador troca de nó antes de a reserva valer, para nenhum id sair com o nó perdido
+        nodeListener.accept(node);
+        nodeId = node;
+    }
+
+    /**
+     * Reserva o primeiro nó livre e marca o prazo da reserva; cabe a quem chama publicá-la em {@link #nodeId}.
+     *
+     * @return o nó reservado, ou {@code -1} se todos pertencem a outras instâncias
+     */
+    private int claimFreeNode() {
+        for (int node = 0; node <= SnowflakeIdGenerator.MAX_NODE_ID; node++) {
+            long start = System.nanoTime();
+            jdbcTemplate.update(CLAIM, node, owner, TimeUnit.MILLISECONDS.toMicros(ttlMillis));
+            if (owner.equals(currentOwner(node))) {
+                heldUntilNanos = start + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+                log.info("Id de nó {} reservado para o gerador de ids dos cartões", node);
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    private String currentOwner(int node) {
+        List<String> owners = jdbcTemplate.queryForList(OWNER, String.class, node);
+        return owners.isEmpty() ? null : owners.get(0);
+    }
+}
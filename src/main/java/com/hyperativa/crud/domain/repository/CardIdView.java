@@ -0,0 +1,6 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.CardHash;
+
+public record CardIdView(CardHash cardNumberHash, Long id) {
+}
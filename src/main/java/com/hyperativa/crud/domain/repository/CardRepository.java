@@ -1,9 +1,38 @@
 package com.hyperativa.crud.domain.repository;
 
 import com.hyperativa.crud.domain.model.Card;
+import com.hyperativa.crud.domain.model.CardHash;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * As consultas por hash retornam apenas o id (projeção), respondidas pelo índice único de {@code card_hash}
+ * sem ler a linha da tabela e sem colocar entidades {@link Card} no contexto de persistência.
+ */
 public interface CardRepository extends JpaRepository<Card, Long> {
-    Optional<Card> findByCardNumberHash(String cardNumberHash);
+
+    @Transactional(readOnly = true)
+    @Query("select c.id from Card c where c.cardNumberHash = :hash")
+    Optional<Long> findIdByCardNumberHash(@Param("hash") CardHash hash);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.hyperativa.crud.domain.repository.CardIdView(c.cardNumberHash, c.id) "
+            + "from Card c where c.cardNumberHash in :hashes")
+    List<CardIdView> findIdsByCardNumberHashIn(@Param("hashes") Collection<CardHash> hashes);
+
+    default Map<CardHash, Long> findIdMapByCardNumberHashIn(Collection<CardHash> hashes) {
+        Map<CardHash, Long> ids = new HashMap<>();
+        if (!hashes.isEmpty()) {
+            findIdsByCardNumberHashIn(hashes).forEach(view -> ids.put(view.cardNumberHash(), view.id()));
+        }
+        return ids;
+    }
 }
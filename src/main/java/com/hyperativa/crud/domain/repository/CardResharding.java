@@ -0,0 +1,219 @@
+package com.hyperativa.crud.domain.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Divisão online de shards: metade dos buckets da maior faixa do shard de origem passa para o shard de destino,
+ * sem parar a aplicação.
+ * <ol>
+ *     <li>a faixa é marcada como em movimento: as escritas passam a ir aos dois shards (com o mesmo id);</li>
+ *     <li>quando todas as instâncias ativas confirmam a versão do mapa (já gravam nos dois), as linhas existentes da
+ *     faixa são copiadas em lotes, em ordem de {@code card_hash}, pelo índice único;</li>
+ *     <li>a faixa passa a pertencer ao destino, que então responde as leituras;</li>
+ *     <li>quando todas confirmam essa versão (nenhuma lê ou grava mais só na origem), a cópia é repetida, para pegar
+ *     o que uma instância sem confirmação ({@code api.cards.sharding.instance-timeout-ms}) tenha gravado só na origem,
+ *     e as linhas da faixa são removidas da origem.</li>
+ * </ol>
+ * Uma instância só é desconsiderada depois de {@code instance-timeout-ms} mais o maior tempo que uma gravação pode
+ * esperar por locks ({@link CardBatchRepository#maxUpsertLockWaitMillis()}): ela já parou de gravar na metade do
+ * timeout ({@link CardShardRouter#checkWritable()}) e a gravação que estava em andamento já terminou.
+ * Uma divisão interrompida fica registrada no mapa como faixa em movimento e é retomada chamando
+ * {@link #split(int, int)} novamente com os mesmos shards; a cópia é idempotente.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardResharding {
+
+    private static final String SELECT_RANGE_PAGE =
+            "SELECT id, card_hash, encrypted_card_number, created_at, updated_at, created_by, updated_by FROM cards "
+                    + "WHERE card_hash > :after AND card_hash <= :last ORDER BY card_hash LIMIT :limit";
+    private static final String COPY_CARD =
+            "INSERT INTO cards (id, card_hash, encrypted_card_number, created_at, updated_at, created_by, updated_by) "
+                    + "VALUES (:id, :card_hash, :encrypted_card_number, :created_at, :updated_at, :created_by, :updated_by) "
+                    + "ON DUPLICATE KEY UPDATE id = id";
+    private static final String DELETE_RANGE =
+            "DELETE FROM cards WHERE card_hash > :after AND card_hash <= :last LIMIT :limit";
+
+    private final CardShardRouter cardShardRouter;
+    private final CardHashMigration cardHashMigration;
+    private final CardBatchRepository cardBatchRepository;
+
+    @Value("${api.cards.sharding.refresh-interval-ms:5000}")
+    private long refreshIntervalMillis;
+
+    @Value("${api.cards.sharding.copy-batch-size:5000}")
+    private int copyBatchSize;
+
+    @Value("${api.cards.sharding.instance-timeout-ms:30000}")
+    private long instanceTimeoutMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String status = "Nenhuma divisão em andamento";
+
+    /**
+     * Valida e inicia em segundo plano a divisão, retornando a faixa que será movida para {@code target}.
+     */
+    public CardShardRange split(int source, int target) {
+        if (!cardShardRouter.isSharded()) {
+            throw new IllegalStateException("Nenhum shard adicional configurado (api.cards.sharding.urls)");
+        }
+        if (!cardHashMigration.isComplete()) {
+            throw new IllegalStateException("A migração de card_hash precisa terminar antes de dividir shards");
+        }
+        cardShardRouter.shard(source);
+        cardShardRouter.shard(target);
+        if (source == target) {
+            throw new IllegalArgumentException("Os shards de origem e destino devem ser diferentes");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe uma divisão de shard em andamento");
+        }
+        try {
+            CardShardRange moving = startMigration(source, target);
+            Thread worker = new Thread(() -> migrate(moving), "card-resharding");
+            worker.setDaemon(true);
+            worker.start();
+            return moving;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    public String status() {
+        return status;
+    }
+
+    private CardShardRange startMigration(int source, int target) {
+        List<CardShardRange> ranges = cardShardRouter.ranges();
+        CardShardRange pending = ranges.stream().filter(CardShardRange::isMigrating).findFirst().orElse(null);
+        if (pending != null) {
+            if (pending.shard() != source || pending.targetShard() != target) {
+                throw new IllegalStateException("Outra faixa já está sendo movida: " + pending);
+            }
+            log.info("Retomando a divisão da faixa {}", pending);
+            return pending;
+        }
+        CardShardRange widest = ranges.stream()
+                .filter(range -> range.shard() == source)
+                .max(Comparator.comparingInt(range -> range.lastBucket() - range.firstBucket()))
+                .orElseThrow(() -> new IllegalStateException("O shard " + source + " não possui faixas"));
+        if (widest.firstBucket() == widest.lastBucket()) {
+            throw new IllegalStateException("A maior faixa do shard " + source + " tem um único bucket");
+        }
+        int middle = widest.firstBucket() + (widest.lastBucket() - widest.firstBucket()) / 2;
+        // a metade movida nunca começa no bucket 0, então o bucket anterior serve de limite inferior da cópia
+        CardShardRange moving = new CardShardRange(middle + 1, widest.lastBucket(), source, target);
+        cardShardRouter.updateRanges(replace(ranges, widest,
+                new CardShardRange(widest.firstBucket(), middle, source, null), moving));
+        return moving;
+    }
+
+    private void migrate(CardShardRange moving) {
+        CardShard source = cardShardRouter.shard(moving.shard());
+        CardShard target = cardShardRouter.shard(moving.targetShard());
+        try {
+            long liveWithinMillis = instanceTimeoutMillis + cardBatchRepository.maxUpsertLockWaitMillis();
+            awaitInstances(cardShardRouter.version(), liveWithinMillis, "gravarem a faixa " + moving + " nos dois shards");
+
+            long copied = copy(moving, source, target);
+            long flipped = cardShardRouter.updateRanges(replace(cardShardRouter.ranges(), moving,
+                    new CardShardRange(moving.firstBucket(), moving.lastBucket(), target.index(), null)));
+
+            awaitInstances(flipped, liveWithinMillis, "lerem a faixa " + moving + " do destino (" + copied + " cartões copiados)");
+            // o que já está no destino é ignorado pelo índice único
+            copy(moving, source, target);
+
+            long deleted = delete(moving, source);
+            status = "Divisão concluída: buckets " + moving.firstBucket() + "-" + moving.lastBucket() + " do shard "
+                    + source.index() + " para o " + target.index() + " (" + copied + " copiados, " + deleted + " removidos da origem)";
+            log.info(status);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = "Divisão da faixa " + moving + " interrompida; chame a divisão novamente para retomar";
+        } catch (RuntimeException e) {
+            log.error("Erro na divisão da faixa {}", moving, e);
+            status = "Divisão da faixa " + moving + " falhou (" + e.getMessage() + "); chame a divisão novamente para retomar";
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Espera até nenhuma instância que confirmou o mapa nos últimos {@code liveWithinMillis} usar uma versão anterior
+     * a {@code version}, relendo a cada intervalo do mapa.
+     */
+    private void awaitInstances(long version, long liveWithinMillis, String step) throws InterruptedException {
+        int behind;
+        while ((behind = cardShardRouter.instancesBehind(version, liveWithinMillis)) > 0) {
+            status = "Aguardando " + behind + " instância(s) " + step;
+            Thread.sleep(refreshIntervalMillis);
+        }
+    }
+
+    private long copy(CardShardRange moving, CardShard source, CardShard target) {
+        byte[] after = upperBound(moving.firstBucket() - 1);
+        byte[] last = upperBound(moving.lastBucket());
+        long copied = 0;
+        while (true) {
+            List<Map<String, Object>> rows = source.jdbcTemplate().queryForList(SELECT_RANGE_PAGE, new MapSqlParameterSource()
+                    .addValue("after", after)
+                    .addValue("last", last)
+                    .addValue("limit", copyBatchSize));
+            if (rows.isEmpty()) {
+                return copied;
+            }
+            target.jdbcTemplate().batchUpdate(COPY_CARD, rows.stream()
+                    .map(MapSqlParameterSource::new)
+                    .toArray(SqlParameterSource[]::new));
+            after = (byte[]) rows.get(rows.size() - 1).get("card_hash");
+            copied += rows.size();
+            status = "Copiando a faixa " + moving + ": " + copied + " cartões";
+        }
+    }
+
+    private long delete(CardShardRange moving, CardShard source) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("after", upperBound(moving.firstBucket() - 1))
+                .addValue("last", upperBound(moving.lastBucket()))
+                .addValue("limit", copyBatchSize);
+        long deleted = 0;
+        int batch;
+        while ((batch = source.jdbcTemplate().update(DELETE_RANGE, parameters)) > 0) {
+            deleted += batch;
+            status = "Removendo a faixa " + moving + " da origem: " + deleted + " cartões";
+        }
+        return deleted;
+    }
+
+    /**
+     * Maior hash possível do bucket (prefixo do bucket seguido de 30 bytes {@code 0xFF}).
+     */
+    private static byte[] upperBound(int bucket) {
+        byte[] bound = new byte[32];
+        Arrays.fill(bound, (byte) 0xFF);
+        bound[0] = (byte) (bucket >> 8);
+        bound[1] = (byte) bucket;
+        return bound;
+    }
+
+    private static List<CardShardRange> replace(List<CardShardRange> ranges, CardShardRange old, CardShardRange... replacements) {
+        List<CardShardRange> updated = new ArrayList<>(ranges);
+        updated.remove(old);
+        updated.addAll(List.of(replacements));
+        return updated;
+    }
+}
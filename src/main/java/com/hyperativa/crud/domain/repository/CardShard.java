@@ -0,0 +1,9 @@
+package com.hyperativa.crud.domain.repository;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Banco que guarda uma parte da tabela {@code cards}. O shard 0 é sempre o {@code spring.datasource} da aplicação.
+ */
+public record CardShard(int index, NamedParameterJdbcTemplate jdbcTemplate) {
+}
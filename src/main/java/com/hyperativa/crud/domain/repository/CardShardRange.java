@@ -0,0 +1,12 @@
+package com.hyperativa.crud.domain.repository;
+
+/**
+ * Faixa contígua de buckets (dois primeiros bytes do hash) atribuída a um shard. Com {@code targetShard}
+ * preenchido, a faixa está sendo movida: as escritas vão aos dois shards e as leituras continuam no de origem.
+ */
+public record CardShardRange(int firstBucket, int lastBucket, int shard, Integer targetShard) {
+
+    public boolean isMigrating() {
+        return targetShard != null;
+    }
+}
@@ -0,0 +1,338 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.exception.CardShardUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Distribui a tabela {@code cards} entre shards pelos dois primeiros bytes do hash (65536 buckets). Como o SHA-256 é
+ * uniforme, faixas de buckets do mesmo tamanho recebem a mesma quantidade de cartões.
+ * <p>
+ * O mapa de faixas fica na tabela {@code card_shard_ranges} do banco principal (shard 0) e é relido a cada
+ * {@code api.cards.sharding.refresh-interval-ms}, para que todas as instâncias acompanhem uma divisão de shard feita
+ * por {@link CardResharding}. Cada gravação do mapa incrementa a versão em {@code card_shard_map} e cada instância
+ * registra em {@code card_shard_map_acks}, a cada releitura, a versão que está usando; assim a divisão só avança
+ * quando todas as instâncias ativas já seguem o mapa novo. Sem shards adicionais, todos os buckets ficam no shard 0 e
+ * as tabelas não são usadas.
+ * <p>
+ * A releitura roda em uma thread própria, para que uma instância ocupada com outras tarefas agendadas não deixe de
+ * confirmar e seja tomada por parada. Como uma instância sem confirmação há mais de
+ * {@code api.cards.sharding.instance-timeout-ms} é desconsiderada, ela deixa de gravar cartões
+ * ({@link #checkWritable()}) quando a última confirmação passa da metade desse tempo: assim, a falta de confirmação
+ * implica que as escritas pararam, e não apenas que a instância está lenta.
+ */
+@Slf4j
+public class CardShardRouter {
+
+    public static final int BUCKETS = 1 << 16;
+
+    private static final String CREATE_RANGES_TABLE =
+            "CREATE TABLE IF NOT EXISTS card_shard_ranges (first_bucket INT NOT NULL PRIMARY KEY, "
+                    + "last_bucket INT NOT NULL, shard INT NOT NULL, target_shard INT NULL)";
+    private static final String CREATE_SHARD_CARDS_TABLE =
+            "CREATE TABLE IF NOT EXISTS cards (id BIGINT NOT NULL PRIMARY KEY, card_hash BINARY(32) NOT NULL UNIQUE, "
+                    + "encrypted_card_number VARCHAR(255) NOT NULL, created_at DATETIME(6) NOT NULL, "
+                    + "updated_at DATETIME(6), created_by VARCHAR(255), updated_by VARCHAR(255))";
+    private static final String SELECT_RANGES =
+            "SELECT first_bucket, last_bucket, shard, target_shard FROM card_shard_ranges ORDER BY first_bucket";
+    private static final String INSERT_RANGE =
+            "INSERT INTO card_shard_ranges (first_bucket, last_bucket, shard, target_shard) VALUES (?, ?, ?, ?)";
+    private static final String CREATE_VERSION_TABLE =
+            "CREATE TABLE IF NOT EXISTS card_shard_map (id INT NOT NULL PRIMARY KEY, version BIGINT NOT NULL)";
+    private static final String INSERT_VERSION = "INSERT IGNORE INTO card_shard_map (id, version) VALUES (1, 0)";
+    private static final String SELECT_VERSION = "SELECT version FROM card_shard_map WHERE id = 1";
+    private static final String INCREMENT_VERSION = "UPDATE card_shard_map SET version = version + 1 WHERE id = 1";
+    private static final String CREATE_ACKS_TABLE =
+            "CREATE TABLE IF NOT EXISTS card_shard_map_acks (instance VARCHAR(36) NOT NULL PRIMARY KEY, "
+                    + "version BIGINT NOT NULL, seen_at DATETIME(6) NOT NULL)";
+    private static final String ACK =
+            "INSERT INTO card_shard_map_acks (instance, version, seen_at) VALUES (?, ?, NOW(6)) AS new "
+                    + "ON DUPLICATE KEY UPDATE version = new.version, seen_at = new.seen_at";
+    private static final String INSTANCES_BEHIND =
+            "SELECT COUNT(*) FROM card_shard_map_acks WHERE version < ? AND seen_at > NOW(6) - INTERVAL ? MICROSECOND";
+
+    private final List<CardShard> shards;
+    private final List<DataSource> shardDataSources;
+    private final TransactionTemplate transactionTemplate;
+    private final long refreshIntervalMillis;
+    private final long writeFenceNanos;
+    private final String instance = UUID.randomUUID().toString();
+    private volatile Routing routing;
+    private volatile boolean acknowledged;
+    private volatile long acknowledgedAtNanos;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * @param shards                shard 0 (banco principal) seguido dos shards adicionais
+     * @param shardDataSources      pools dos shards adicionais, fechados junto com o roteador
+     * @param refreshIntervalMillis intervalo entre as releituras do mapa
+     * @param instanceTimeoutMillis tempo sem confirmação após o qual a instância é desconsiderada pela divisão
+     */
+    public CardShardRouter(List<CardShard> shards, List<DataSource> shardDataSources,
+                           TransactionTemplate transactionTemplate, long refreshIntervalMillis,
+                           long instanceTimeoutMillis) {
+        this.shards = List.copyOf(shards);
+        this.shardDataSources = List.copyOf(shardDataSources);
+        this.transactionTemplate = transactionTemplate;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.writeFenceNanos = TimeUnit.MILLISECONDS.toNanos(instanceTimeoutMillis / 2);
+        this.routing = Routing.of(0, List.of(new CardShardRange(0, BUCKETS - 1, 0, null)));
+        // ao menos duas releituras antes de a instância parar de gravar
+        if (isSharded() && refreshIntervalMillis * 4 > instanceTimeoutMillis) {
+            throw new IllegalStateException("api.cards.sharding.instance-timeout-ms (" + instanceTimeoutMillis
+                    + ") deve ser ao menos 4x api.cards.sharding.refresh-interval-ms (" + refreshIntervalMillis + ")");
+        }
+    }
+
+    public static int bucket(CardHash hash) {
+        byte[] value = hash.value();
+        return (value[0] & 0xFF) << 8 | value[1] & 0xFF;
+    }
+
+    /**
+     * Cria as tabelas e carrega o mapa de faixas; um mapa vazio é iniciado com todos os buckets no shard 0, onde já
+     * estão os cartões existentes. A distribuição para os demais shards é feita dividindo faixas.
+     */
+    public void initialize() {
+        if (!isSharded()) {
+            return;
+        }
+        for (CardShard shard : shards.subList(1, shards.size())) {
+            shard.jdbcTemplate().getJdbcOperations().execute(CREATE_SHARD_CARDS_TABLE);
+        }
+        JdbcOperations main = main().jdbcTemplate().getJdbcOperations();
+        main.execute(CREATE_RANGES_TABLE);
+        main.execute(CREATE_VERSION_TABLE);
+        main.execute(CREATE_ACKS_TABLE);
+        main.update(INSERT_VERSION);
+        if (loadRanges().isEmpty()) {
+            main.update(INSERT_RANGE, 0, BUCKETS - 1, 0, null);
+        }
+        refresh();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("card-shard-map-");
+        threadFactory.setDaemon(true);
+        refresher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        refresher.scheduleWithFixedDelay(this::scheduledRefresh, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void refresh() {
+        if (!isSharded()) {
+            return;
+        }
+        // a versão é lida antes das faixas: no pior caso, faixas novas são confirmadas como a versão anterior
+        long version = loadVersion();
+        List<CardShardRange> ranges = loadRanges();
+        if (version != routing.version() || !ranges.equals(routing.ranges())) {
+            routing = Routing.of(version, validate(ranges));
+            log.info("Mapa de shards de cartões atualizado (versão {}): {}", version, ranges);
+        }
+        acknowledge(routing.version());
+    }
+
+    /**
+     * Recusa a gravação de cartões quando esta instância não confirma o mapa há mais da metade de
+     * {@code api.cards.sharding.instance-timeout-ms}: a divisão já pode tê-la desconsiderado, e gravar com um mapa
+     * antigo perderia o cartão quando a faixa for removida da origem.
+     */
+    public void checkWritable() {
+        if (!isSharded()) {
+            return;
+        }
+        if (!acknowledged || System.nanoTime() - acknowledgedAtNanos > writeFenceNanos) {
+            throw new CardShardUnavailableException(
+                    "Mapa de shards de cartões desatualizado nesta instância; tente novamente");
+        }
+    }
+
+    /**
+     * Quantas instâncias que releram o mapa nos últimos {@code liveWithinMillis} ainda usam uma versão anterior.
+     */
+    public int instancesBehind(long version, long liveWithinMillis) {
+        Integer behind = main().jdbcTemplate().getJdbcOperations().queryForObject(INSTANCES_BEHIND, Integer.class,
+                version, TimeUnit.MILLISECONDS.toMicros(liveWithinMillis));
+        return behind != null ? behind : 0;
+    }
+
+    public long version() {
+        return routing.version();
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public List<CardShard> shards() {
+        return shards;
+    }
+
+    public CardShard shard(int index) {
+        if (index < 0 || index >= shards.size()) {
+            throw new IllegalArgumentException("Shard inexistente: " + index);
+        }
+        return shards.get(index);
+    }
+
+    public CardShard main() {
+        return shards.get(0);
+    }
+
+    public List<CardShardRange> ranges() {
+        return routing.ranges();
+    }
+
+    /**
+     * Shard que responde as leituras do hash e recebe a escrita principal.
+     */
+    public CardShard shardFor(CardHash hash) {
+        return shards.get(routing.owners()[bucket(hash)]);
+    }
+
+    /**
+     * Shard que também recebe as escritas do hash enquanto a faixa dele está sendo movida.
+     */
+    public Optional<CardShard> migrationTargetFor(CardHash hash) {
+        int target = routing.targets()[bucket(hash)];
+        return target < 0 ? Optional.empty() : Optional.of(shards.get(target));
+    }
+
+    /**
+     * Agrupa os hashes pelo shard de leitura, preservando a ordem de cada grupo.
+     */
+    public <T> Map<CardShard, List<T>> groupByShard(Collection<T> items, Function<T, CardHash> hash) {
+        Map<CardShard, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardFor(hash.apply(item)), ignored -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Grava o novo mapa de faixas e passa a usá-lo imediatamente nesta instância; as demais o recebem no próximo
+     * {@link #refresh()}.
+     *
+     * @return a versão do mapa gravado
+     */
+    public long updateRanges(List<CardShardRange> ranges) {
+        List<CardShardRange> valid = validate(ranges);
+        Long version = transactionTemplate.execute(status -> {
+            JdbcOperations main = main().jdbcTemplate().getJdbcOperations();
+            main.update("DELETE FROM card_shard_ranges");
+            main.batchUpdate(INSERT_RANGE, valid.stream()
+                    .map(range -> new Object[]{range.firstBucket(), range.lastBucket(), range.shard(), range.targetShard()})
+                    .toList());
+            main.update(INCREMENT_VERSION);
+            return main.queryForObject(SELECT_VERSION, Long.class);
+        });
+        routing = Routing.of(version, valid);
+        acknowledge(version);
+        log.info("Mapa de shards de cartões gravado (versão {}): {}", version, valid);
+        return version;
+    }
+
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        shardDataSources.forEach(dataSource -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Erro ao fechar o pool do shard de cartões", e);
+                }
+            }
+        });
+    }
+
+    void apply(List<CardShardRange> ranges) {
+        routing = Routing.of(routing.version() + 1, validate(ranges));
+        acknowledgedAtNanos = System.nanoTime();
+        acknowledged = true;
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao reler o mapa de shards de cartões", e);
+        }
+    }
+
+    /**
+     * O instante é tomado antes da gravação, então nunca é posterior ao {@code seen_at} registrado.
+     */
+    private void acknowledge(long version) {
+        long startedAt = System.nanoTime();
+        main().jdbcTemplate().getJdbcOperations().update(ACK, instance, version);
+        acknowledgedAtNanos = startedAt;
+        acknowledged = true;
+    }
+
+    private long loadVersion() {
+        Long version = main().jdbcTemplate().getJdbcOperations().queryForObject(SELECT_VERSION, Long.class);
+        return version != null ? version : 0;
+    }
+
+    private List<CardShardRange> loadRanges() {
+        return main().jdbcTemplate().getJdbcOperations().query(SELECT_RANGES, (rs, row) -> new CardShardRange(
+                rs.getInt("first_bucket"), rs.getInt("last_bucket"), rs.getInt("shard"),
+                rs.getObject("target_shard", Integer.class)));
+    }
+
+    /**
+     * As faixas devem cobrir todos os buckets, sem sobreposição, e apontar para shards configurados.
+     */
+    private List<CardShardRange> validate(List<CardShardRange> ranges) {
+        List<CardShardRange> sorted = ranges.stream().sorted(Comparator.comparingInt(CardShardRange::firstBucket)).toList();
+        int expected = 0;
+        for (CardShardRange range : sorted) {
+            if (range.firstBucket() != expected || range.lastBucket() < range.firstBucket()) {
+                throw new IllegalStateException("Mapa de shards inválido a partir do bucket " + expected + ": " + sorted);
+            }
+            shard(range.shard());
+            if (range.isMigrating()) {
+                shard(range.targetShard());
+            }
+            expected = range.lastBucket() + 1;
+        }
+        if (expected != BUCKETS) {
+            throw new IllegalStateException("Mapa de shards não cobre todos os buckets: " + sorted);
+        }
+        return sorted;
+    }
+
+    private record Routing(long version, List<CardShardRange> ranges, int[] owners, int[] targets) {
+
+        private static Routing of(long version, List<CardShardRange> ranges) {
+            int[] owners = new int[BUCKETS];
+            int[] targets = new int[BUCKETS];
+            Arrays.fill(targets, -1);
+            for (CardShardRange range : ranges) {
+                Arrays.fill(owners, range.firstBucket(), range.lastBucket() + 1, range.shard());
+                if (range.isMigrating()) {
+                    Arrays.fill(targets, range.firstBucket(), range.lastBucket() + 1, range.targetShard());
+                }
+            }
+            return new Routing(version, List.copyOf(ranges), owners, targets);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Consulta de id por hash via R2DBC, usada pelo servidor reativo ({@code api.reactive.enabled}).
+ */
+@Repository
+@ConditionalOnProperty(name = "api.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveCardRepository {
+
+    private static final String FIND_ID_BY_HASH = "SELECT id FROM cards WHERE card_hash = ?";
+
+    private static final String FIND_ID_BY_HASH_WITH_LEGACY =
+            "SELECT id FROM cards WHERE card_hash = ? "
+                    + "UNION ALL SELECT id FROM cards WHERE card_number_hash = ? AND card_hash IS NULL LIMIT 1";
+
+    private final ConnectionPool reactiveConnectionPool;
+    private final CardHashMigration cardHashMigration;
+
+    public Mono<Long> findIdByCardNumberHash(CardHash hash) {
+        boolean withLegacy = !cardHashMigration.isComplete();
+        return Mono.usingWhen(reactiveConnectionPool.create(), connection -> {
+            Statement statement = connection.createStatement(withLegacy ? FIND_ID_BY_HASH_WITH_LEGACY : FIND_ID_BY_HASH)
+                    .bind(0, hash.value());
+            if (withLegacy) {
+                statement.bind(1, hash.toBase64());
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, metadata) -> row.get("id", Long.class)))
+                    .next();
+        }, Connection::close);
+    }
+}
@@ -0,0 +1,60 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.UploadJob;
+import com.hyperativa.crud.domain.model.UploadJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Leituras em transação de leitura e escrita, para irem ao primário mesmo com réplicas configuradas: o job é lido
+ * pela thread do executor logo após ser gravado, sem usuário nem marca de {@code ReadYourWrites}, e uma réplica
+ * atrasada o retornaria ausente (o job ficaria PENDING para sempre) ou com um checkpoint antigo, que o
+ * {@code save} seguinte gravaria por cima do atual.
+ * <p>
+ * A posse do job entre instâncias usa o relógio do banco: os UPDATEs condicionais abaixo retornam 1 só para quem
+ * ficou com o job, e incrementam a versão para o {@code save} de um dono anterior falhar.
+ */
+public interface UploadJobRepository extends JpaRepository<UploadJob, String> {
+
+    @Override
+    @Transactional
+    Optional<UploadJob> findById(String id);
+
+    @Transactional
+    List<UploadJob> findByStatusIn(Collection<UploadJobStatus> statuses);
+
+    /**
+     * Assume um job PENDING ou RUNNING sem dono ou cujo dono não dá sinal há mais de {@code staleMicros}.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_jobs SET owner = :owner, heartbeat_at = NOW(6), version = version + 1 "
+            + "WHERE id = :id AND status IN ('PENDING', 'RUNNING') AND (owner IS NULL OR heartbeat_at IS NULL "
+            + "OR heartbeat_at < NOW(6) - INTERVAL :staleMicros MICROSECOND)", nativeQuery = true)
+    int claimStale(@Param("id") String id, @Param("owner") String owner, @Param("staleMicros") long staleMicros);
+
+    /**
+     * Volta um job FAILED para PENDING em nome de {@code owner}; retorna 0 se ele não estiver mais FAILED, inclusive
+     * por uma retomada concorrente em outra instância.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_jobs SET status = 'PENDING', error_message = NULL, owner = :owner, "
+            + "heartbeat_at = NOW(6), version = version + 1 WHERE id = :id AND status = 'FAILED'", nativeQuery = true)
+    int claimFailed(@Param("id") String id, @Param("owner") String owner);
+
+    /**
+     * Retorna 0 se o job passou a outra instância.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_jobs SET heartbeat_at = NOW(6) WHERE id = :id AND owner = :owner", nativeQuery = true)
+    int heartbeat(@Param("id") String id, @Param("owner") String owner);
+}
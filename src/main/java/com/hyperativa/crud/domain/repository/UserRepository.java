@@ -2,8 +2,17 @@ package com.hyperativa.crud.domain.repository;
 
 import com.hyperativa.crud.domain.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    // somente leitura: com réplicas configuradas, as consultas de usuário do SecurityFilter vão à réplica
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
+
+    // leitura no primário: o cadastro não pode checar a duplicidade em uma réplica atrasada
+    @Transactional
+    boolean existsByUsername(String username);
 }
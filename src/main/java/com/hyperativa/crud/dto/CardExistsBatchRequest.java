@@ -0,0 +1,15 @@
+package com.hyperativa.crud.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CardExistsBatchRequest(
+        @Schema(description = "Números completos dos cartões a consultar (até 10000)", example = "[\"4111111111111111\", \"5555555555554444\"]")
+        @NotNull(message = "Lista de cartões é obrigatória")
+        @Size(max = 10000, message = "No máximo 10000 cartões por requisição; use NDJSON para volumes maiores")
+        List<String> cardNumbers
+) {
+}
@@ -0,0 +1,11 @@
+package com.hyperativa.crud.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record CardExistsBatchResponse(
+        @Schema(description = "Id de cada cartão na ordem da requisição; null quando não cadastrado", example = "[1, null]")
+        List<Long> ids
+) {
+}
@@ -5,9 +5,11 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 public record CardRequest(
-        @Schema(description = "Número completo do cartão", example = "4111111111111111")
+        @Schema(description = "Número completo do cartão; espaços e hífens entre os dígitos são ignorados",
+                example = "4111111111111111")
         @NotBlank(message = "Número do cartão é obrigatório")
-        @Size(min = 13, max = 19, message = "Número do cartão inválido")
+        // 19 dígitos em grupos de quatro com separadores; tamanho e Luhn são verificados no CardService
+        @Size(min = 13, max = 23, message = "Número do cartão inválido")
         String cardNumber
 ) {
 }
@@ -4,6 +4,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 
 public record LoginResponse(
         @Schema(description = "Token JWT para autenticação")
-        String token
+        String token,
+        @Schema(description = "Refresh token de uso único para obter um novo token em /auth/refresh")
+        String refreshToken
 ) {
 }
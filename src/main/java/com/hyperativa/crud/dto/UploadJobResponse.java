@@ -0,0 +1,38 @@
+package com.hyperativa.crud.dto;
+
+import com.hyperativa.crud.domain.model.UploadJobStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+public record UploadJobResponse(
+        @Schema(description = "Identificador do job de importação", example = "5f0c9a8e-1c2b-4d3e-9f10-2a3b4c5d6e7f")
+        String jobId,
+        @Schema(description = "Situação do job")
+        UploadJobStatus status,
+        @Schema(description = "Nome do arquivo enviado", example = "cartoes.txt")
+        String filename,
+        @Schema(description = "Tamanho do arquivo em bytes")
+        long totalBytes,
+        @Schema(description = "Bytes já processados")
+        long processedBytes,
+        @Schema(description = "Linhas já processadas")
+        long linesProcessed,
+        @Schema(description = "Cartões inseridos")
+        long inserted,
+        @Schema(description = "Linhas com cartões já cadastrados")
+        long duplicates,
+        @Schema(description = "Linhas rejeitadas por conteúdo inválido")
+        long rejected,
+        @Schema(description = "Vazão média em linhas por segundo")
+        double rowsPerSecond,
+        @Schema(description = "Estimativa de segundos restantes; nulo quando não for possível estimar")
+        Long etaSeconds,
+        @Schema(description = "Início do processamento")
+        LocalDateTime startedAt,
+        @Schema(description = "Fim do processamento")
+        LocalDateTime finishedAt,
+        @Schema(description = "Mensagem de erro quando o job falha")
+        String error
+) {
+}
@@ -0,0 +1,11 @@
+package com.hyperativa.crud.exception;
+
+public class CardEncryptionException extends RuntimeException {
+    public CardEncryptionException(String message) {
+        super(message);
+    }
+
+    public CardEncryptionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.hyperativa.crud.exception;
+
+public class CardShardUnavailableException extends RuntimeException {
+    public CardShardUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.hyperativa.crud.exception;
+
+public class InvalidCardNumberException extends RuntimeException {
+    public InvalidCardNumberException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.hyperativa.crud.exception;
+
+public class LoginUnavailableException extends RuntimeException {
+    public LoginUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.hyperativa.crud.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Usuário autenticado montado a partir das claims do token ({@code sub}, {@code userId} e {@code roles}),
+ * sem consulta ao banco. {@link #getName()} retorna o username, usado pela auditoria.
+ */
+public record AuthenticatedUser(Long userId, String username, List<GrantedAuthority> authorities) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,244 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.exception.CardEncryptionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cifra dos números de cartão com chaves derivadas uma única vez por versão.
+ * <p>
+ * O valor gravado tem o formato {@code v<versão>:<base64(iv + cifra)>} (AES-GCM, IV aleatório por mensagem),
+ * o que permite rotacionar a chave ativa sem perder a leitura de registros antigos. Valores sem prefixo
+ * são os gerados anteriormente por {@code Encryptors.text(secret, "deadbeef")} e continuam legíveis.
+ * <p>
+ * Chaves adicionais podem ser declaradas no arquivo {@code api.security.card-cipher.keyring-file}
+ * (formato properties: {@code active=2}, {@code key.2.secret=...}, {@code key.2.salt=<hex>}),
+ * recarregado automaticamente quando modificado.
+ * <p>
+ * A chave AES-GCM de cada versão é derivada por HKDF-SHA256, com um rótulo próprio, da chave PBKDF2 do segredo e
+ * salt da versão; assim a versão 1 não reutiliza a chave AES-CBC dos valores sem prefixo, que vem do mesmo segredo.
+ * Valores com prefixo gravados antes da HKDF foram cifrados direto com a chave PBKDF2 e, quando a tag GCM não
+ * confere com a chave nova, são decifrados com ela.
+ */
+@Component
+@Slf4j
+public class CardCipher {
+
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String LEGACY_SALT = "deadbeef";
+    private static final int DEFAULT_VERSION = 1;
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int LEGACY_IV_LENGTH = 16;
+    private static final byte[] GCM_KEY_LABEL = "hyperativa card-cipher aes-256-gcm".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+    private static final ThreadLocal<Cipher> LEGACY_CIPHER = ThreadLocal.withInitial(() -> newCipher(LEGACY_TRANSFORMATION));
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKey legacyKey;
+    private final Path keyringFile;
+    private volatile long keyringLastModified;
+    private volatile Keyring keyring;
+
+    public CardCipher(@Value("${api.security.token.secret}") String secret,
+                      @Value("${api.security.card-cipher.keyring-file:}") String keyringFile) {
+        this.legacyKey = deriveKey(secret, LEGACY_SALT);
+        this.keyringFile = StringUtils.hasText(keyringFile) ? Path.of(keyringFile) : null;
+        this.keyring = loadKeyring();
+    }
+
+    public String encrypt(String cardNumber) {
+        byte[] plain = cardNumber.getBytes(StandardCharsets.UTF_8);
+        return encrypt(plain, 0, plain.length);
+    }
+
+    /**
+     * Cifra o número a partir dos bytes (UTF-8) em {@code cardNumber[offset, offset + length)}, sem exigir uma
+     * {@link String}; o resultado é o mesmo de {@link #encrypt(String)}.
+     */
+    public String encrypt(byte[] cardNumber, int offset, int length) {
+        Keyring current = keyring;
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = GCM_CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, current.activeKey(), new GCMParameterSpec(GCM_TAG_BITS, iv));
+            ByteBuffer out = ByteBuffer.allocate(GCM_IV_LENGTH + cipher.getOutputSize(length));
+            out.put(iv);
+            cipher.doFinal(ByteBuffer.wrap(cardNumber, offset, length), out);
+            return "v" + current.activeVersion() + ":" + Base64.getEncoder().encodeToString(out.array());
+        } catch (GeneralSecurityException e) {
+            throw new CardEncryptionException("Erro ao cifrar número do cartão", e);
+        }
+    }
+
+    public String decrypt(String encryptedCardNumber) {
+        int separator = encryptedCardNumber.indexOf(':');
+        try {
+            if (separator < 0) {
+                return decryptLegacy(encryptedCardNumber);
+            }
+            int version = Integer.parseInt(encryptedCardNumber.substring(1, separator));
+            VersionKey key = keyring.keys().get(version);
+            if (key == null) {
+                throw new CardEncryptionException("Versão de chave desconhecida: " + version);
+            }
+            byte[] payload = Base64.getDecoder().decode(encryptedCardNumber.substring(separator + 1));
+            try {
+                return decryptGcm(key.gcmKey(), payload);
+            } catch (AEADBadTagException e) {
+                return decryptGcm(key.pbkdf2Key(), payload);
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new CardEncryptionException("Erro ao decifrar número do cartão", e);
+        }
+    }
+
+    public int activeVersion() {
+        return keyring.activeVersion();
+    }
+
+    @Scheduled(fixedDelayString = "${api.security.card-cipher.refresh-interval-ms:60000}")
+    public void refreshKeyring() {
+        if (keyringFile == null) {
+            return;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(keyringFile).toMillis();
+            if (lastModified != keyringLastModified) {
+                keyring = loadKeyring();
+                log.info("Chaves de cifra de cartões recarregadas; versão ativa {}", keyring.activeVersion());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Erro ao recarregar chaves de cifra de cartões; mantendo a versão {}", keyring.activeVersion(), e);
+        }
+    }
+
+    private static String decryptGcm(SecretKey key, byte[] payload) throws GeneralSecurityException {
+        Cipher cipher = GCM_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, payload, 0, GCM_IV_LENGTH));
+        byte[] plain = cipher.doFinal(payload, GCM_IV_LENGTH, payload.length - GCM_IV_LENGTH);
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    private String decryptLegacy(String encryptedCardNumber) throws GeneralSecurityException {
+        byte[] payload = Hex.decode(encryptedCardNumber);
+        Cipher cipher = LEGACY_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, legacyKey, new IvParameterSpec(payload, 0, LEGACY_IV_LENGTH));
+        byte[] plain = cipher.doFinal(payload, LEGACY_IV_LENGTH, payload.length - LEGACY_IV_LENGTH);
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    private Keyring loadKeyring() {
+        Map<Integer, VersionKey> keys = new HashMap<>();
+        keys.put(DEFAULT_VERSION, VersionKey.of(legacyKey));
+        int active = DEFAULT_VERSION;
+        if (keyringFile != null) {
+            Properties properties = new Properties();
+            try {
+                keyringLastModified = Files.getLastModifiedTime(keyringFile).toMillis();
+                try (Reader reader = Files.newBufferedReader(keyringFile, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } catch (IOException e) {
+                throw new CardEncryptionException("Erro ao ler arquivo de chaves " + keyringFile, e);
+            }
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith("key.") && name.endsWith(".secret")) {
+                    int version = Integer.parseInt(name.substring("key.".length(), name.length() - ".secret".length()));
+                    String salt = properties.getProperty("key." + version + ".salt", LEGACY_SALT);
+                    keys.put(version, VersionKey.of(deriveKey(properties.getProperty(name), salt)));
+                }
+            }
+            active = Integer.parseInt(properties.getProperty("active", String.valueOf(DEFAULT_VERSION)));
+        }
+        if (!keys.containsKey(active)) {
+            throw new CardEncryptionException("Versão de chave ativa sem chave configurada: " + active);
+        }
+        return new Keyring(active, Map.copyOf(keys));
+    }
+
+    /**
+     * HKDF-SHA256 (RFC 5869) sem salt, com {@link #GCM_KEY_LABEL} como {@code info}: um único bloco de expansão
+     * gera os 256 bits da chave.
+     */
+    static SecretKey deriveGcmKey(SecretKey pbkdf2Key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(new byte[mac.getMacLength()], "HmacSHA256"));
+            byte[] pseudoRandomKey = mac.doFinal(pbkdf2Key.getEncoded());
+            mac.init(new SecretKeySpec(pseudoRandomKey, "HmacSHA256"));
+            mac.update(GCM_KEY_LABEL);
+            mac.update((byte) 1);
+            return new SecretKeySpec(mac.doFinal(), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new CardEncryptionException("Erro ao derivar chave de cifra de cartões", e);
+        }
+    }
+
+    /**
+     * Mesma derivação usada por {@code Encryptors.text}: PBKDF2WithHmacSHA1, 1024 iterações, chave de 256 bits.
+     */
+    private static SecretKey deriveKey(String password, String hexSalt) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), Hex.decode(hexSalt), 1024, 256);
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1").generateSecret(spec).getEncoded();
+            return new SecretKeySpec(key, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new CardEncryptionException("Erro ao derivar chave de cifra de cartões", e);
+        }
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new CardEncryptionException("Algoritmo de cifra indisponível: " + transformation, e);
+        }
+    }
+
+    private record Keyring(int activeVersion, Map<Integer, VersionKey> keys) {
+
+        private SecretKey activeKey() {
+            return keys.get(activeVersion).gcmKey();
+        }
+    }
+
+    /**
+     * Chave GCM da versão e a chave PBKDF2 de que ela é derivada, ainda usada para ler os valores anteriores à HKDF.
+     */
+    private record VersionKey(SecretKey gcmKey, SecretKey pbkdf2Key) {
+
+        private static VersionKey of(SecretKey pbkdf2Key) {
+            return new VersionKey(deriveGcmKey(pbkdf2Key), pbkdf2Key);
+        }
+    }
+}
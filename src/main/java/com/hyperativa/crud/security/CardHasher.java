@@ -0,0 +1,131 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.exception.HashGenerationException;
+import com.hyperativa.crud.exception.InvalidCardNumberException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * SHA-256 dos números de cartão sem alocações no caminho quente: cada thread reutiliza o próprio
+ * {@link MessageDigest} e o buffer de bytes de entrada, zerado após cada hash. As variantes com {@code char[]} e {@code byte[]}
+ * permitem calcular o hash sem que o número do cartão precise existir como {@link String}.
+ * <p>
+ * O resultado é idêntico ao hash anterior ({@code SHA-256(cardNumber.getBytes())} em UTF-8);
+ * {@link #toBase64(byte[])} e {@link #fromBase64(String)} convertem de/para a representação Base64 legada
+ * da coluna {@code cards.card_number_hash}.
+ */
+@Component
+public class CardHasher {
+
+    public static final int HASH_LENGTH = 32;
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int INITIAL_BUFFER_SIZE = 32;
+    private static final String INVALID_CARD_NUMBER = "Número do cartão inválido";
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(CardHasher::newDigest);
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+    public CardHasher() {
+        newDigest();
+    }
+
+    public byte[] hash(CharSequence cardNumber) {
+        byte[] out = new byte[HASH_LENGTH];
+        int length = cardNumber.length();
+        byte[] input = buffer(length);
+        try {
+            for (int i = 0; i < length; i++) {
+                char c = cardNumber.charAt(i);
+                if (c >= 0x80) {
+                    return hashUtf8(cardNumber.toString().getBytes(StandardCharsets.UTF_8), out);
+                }
+                input[i] = (byte) c;
+            }
+            hash(input, 0, length, out, 0);
+            return out;
+        } finally {
+            // o buffer fica com a thread: não guarda o número depois do hash
+            Arrays.fill(input, 0, length, (byte) 0);
+        }
+    }
+
+    /**
+     * Um número fora do ASCII não pode ser de cartão e é rejeitado, em vez de virar {@link String} para ser
+     * codificado em UTF-8.
+     */
+    public byte[] hash(char[] cardNumber, int offset, int length) {
+        byte[] out = new byte[HASH_LENGTH];
+        byte[] input = buffer(length);
+        try {
+            for (int i = 0; i < length; i++) {
+                char c = cardNumber[offset + i];
+                if (c >= 0x80) {
+                    throw new InvalidCardNumberException(INVALID_CARD_NUMBER);
+                }
+                input[i] = (byte) c;
+            }
+            hash(input, 0, length, out, 0);
+            return out;
+        } finally {
+            Arrays.fill(input, 0, length, (byte) 0);
+        }
+    }
+
+    public byte[] hash(byte[] cardNumber, int offset, int length) {
+        byte[] out = new byte[HASH_LENGTH];
+        hash(cardNumber, offset, length, out, 0);
+        return out;
+    }
+
+    /**
+     * Escreve os 32 bytes do hash em {@code out} a partir de {@code outOffset}, sem nenhuma alocação.
+     */
+    public void hash(byte[] cardNumber, int offset, int length, byte[] out, int outOffset) {
+        MessageDigest digest = digests.get();
+        digest.update(cardNumber, offset, length);
+        try {
+            digest.digest(out, outOffset, HASH_LENGTH);
+        } catch (DigestException e) {
+            digest.reset();
+            throw new HashGenerationException("Erro ao gerar hash do cartão", e);
+        }
+    }
+
+    public static String toBase64(byte[] hash) {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    public static byte[] fromBase64(String legacyHash) {
+        return Base64.getDecoder().decode(legacyHash);
+    }
+
+    private byte[] hashUtf8(byte[] input, byte[] out) {
+        hash(input, 0, input.length, out, 0);
+        Arrays.fill(input, (byte) 0);
+        return out;
+    }
+
+    private byte[] buffer(int length) {
+        byte[] buffer = buffers.get();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new HashGenerationException("Erro ao gerar hash do cartão", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.hyperativa.crud.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt com custo configurável ({@code api.security.password.bcrypt-cost}) que pede a regravação do hash sempre
+ * que o custo armazenado for diferente do configurado, para mais ou para menos; o {@link BCryptPasswordEncoder}
+ * padrão só regrava quando o custo armazenado é menor. O tempo de cada hash é registrado em
+ * {@code auth.password.hash}.
+ */
+public class CostAwareBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}$");
+
+    private final int cost;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public CostAwareBCryptPasswordEncoder(int cost, MeterRegistry meterRegistry) {
+        super(cost);
+        this.cost = cost;
+        this.encodeTimer = timer(meterRegistry, "encode");
+        this.matchesTimer = timer(meterRegistry, "matches");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> super.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return matchesTimer.record(() -> super.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT.matcher(encodedPassword);
+        return matcher.matches() && Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hash")
+                .tag("operation", operation)
+                .description("Tempo de cálculo do BCrypt das senhas")
+                .register(meterRegistry);
+    }
+}
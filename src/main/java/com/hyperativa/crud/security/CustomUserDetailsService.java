@@ -1,21 +1,44 @@
 package com.hyperativa.crud.security;
 
+import com.hyperativa.crud.domain.model.User;
 import com.hyperativa.crud.domain.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
+    /**
+     * Transação de leitura e escrita para consultar o primário mesmo com réplicas configuradas: o login logo após o
+     * registro não pode depender de a réplica já ter recebido o novo usuário.
+     */
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuário não encontrado"));
     }
+
+    /**
+     * Chamado pelo {@code DaoAuthenticationProvider} após um login bem-sucedido cujo hash precisa ser regravado
+     * (formato antigo ou custo do BCrypt diferente do configurado).
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = user instanceof User found ? found : userRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Usuário não encontrado"));
+        entity.setPassword(newPassword);
+        log.info("Hash de senha do usuário {} regravado com o custo atual", entity.getUsername());
+        return userRepository.save(entity);
+    }
 }
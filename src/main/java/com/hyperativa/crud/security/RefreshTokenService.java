@@ -0,0 +1,117 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.domain.model.RefreshToken;
+import com.hyperativa.crud.domain.model.User;
+import com.hyperativa.crud.domain.repository.RefreshTokenRepository;
+import com.hyperativa.crud.exception.HashGenerationException;
+import com.hyperativa.crud.exception.TokenException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Emite, renova e revoga os refresh tokens. A renovação custa uma consulta pelo hash do token (sem BCrypt);
+ * o token usado é marcado e um novo da mesma família é emitido. Apresentar de novo um token já usado indica
+ * vazamento, e a família inteira é revogada.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${api.security.refresh-token.ttl:P30D}")
+    private Duration ttl;
+
+    @Value("${api.security.refresh-token.cleanup-batch-size:1000}")
+    private int cleanupBatchSize;
+
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    /**
+     * Inicia uma nova família de refresh tokens para o usuário (login).
+     */
+    @Transactional
+    public String issue(User user) {
+        return issue(user, random.nextLong());
+    }
+
+    @Transactional(noRollbackFor = TokenException.class)
+    public Rotation rotate(String token) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(token))
+                .orElseThrow(() -> new TokenException("Refresh token inválido"));
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new TokenException("Refresh token expirado");
+        }
+        if (current.isUsed() || refreshTokenRepository.markUsed(current.getId()) == 0) {
+            refreshTokenRepository.deleteByFamilyId(current.getFamilyId());
+            log.warn("Refresh token reutilizado para o usuário {}; família revogada", current.getUser().getUsername());
+            throw new TokenException("Refresh token já utilizado");
+        }
+        return new Rotation(current.getUser(), issue(current.getUser(), current.getFamilyId()));
+    }
+
+    /**
+     * Revoga a família do token (logout); tokens desconhecidos são ignorados.
+     */
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(current -> refreshTokenRepository.deleteByFamilyId(current.getFamilyId()));
+    }
+
+    /**
+     * Remove os tokens expirados em lotes pequenos, usando o índice de {@code expires_at}.
+     */
+    @Scheduled(fixedDelayString = "${api.security.refresh-token.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        long total = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpired(now, cleanupBatchSize);
+            total += deleted;
+        } while (deleted == cleanupBatchSize);
+        if (total > 0) {
+            log.info("{} refresh tokens expirados removidos", total);
+        }
+    }
+
+    private String issue(User user, long familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = ENCODER.encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .user(user)
+                .familyId(familyId)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build());
+        return token;
+    }
+
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new HashGenerationException("Erro ao gerar hash do refresh token", e);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.hyperativa.crud.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -10,10 +12,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -22,6 +27,9 @@ public class SecurityConfig {
 
     private final SecurityFilter securityFilter;
 
+    @Value("${management.server.port:}")
+    private Integer managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http
@@ -30,20 +38,45 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                         .requestMatchers(HttpMethod.POST, "/auth/register").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/auth/refresh", "/auth/logout").permitAll()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .requestMatchers(prometheusOnManagementPort()).permitAll()
+                        .requestMatchers("/cards/export/decrypted").hasAuthority(TokenService.CARD_DECRYPT_AUTHORITY)
+                        .requestMatchers("/actuator/cardshards").hasAuthority(TokenService.CARD_SHARD_ADMIN_AUTHORITY)
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 
+    /**
+     * Com o actuator em uma porta própria ({@code MANAGEMENT_PORT}), fora do alcance dos clientes da API, o
+     * Prometheus coleta as métricas sem token; na porta da API, {@code /actuator/prometheus} exige autenticação.
+     */
+    private RequestMatcher prometheusOnManagementPort() {
+        return request -> managementPort != null
+                && request.getLocalPort() == managementPort
+                && HttpMethod.GET.matches(request.getMethod())
+                && "/actuator/prometheus".equals(request.getRequestURI());
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration) throws Exception {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /**
+     * Novos hashes são gravados como {@code {bcrypt}...} com o custo configurado; hashes antigos sem prefixo
+     * continuam sendo lidos como BCrypt. Hashes sem prefixo ou com outro custo são regravados no próximo login
+     * bem-sucedido (via {@link CustomUserDetailsService#updatePassword}).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${api.security.password.bcrypt-cost:10}") int bcryptCost,
+                                           MeterRegistry meterRegistry) {
+        PasswordEncoder bcrypt = new CostAwareBCryptPasswordEncoder(bcryptCost, meterRegistry);
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return passwordEncoder;
     }
 }
@@ -1,40 +1,57 @@
 package com.hyperativa.crud.security;
 
-import com.hyperativa.crud.domain.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class SecurityFilter extends OncePerRequestFilter {
 
+    /**
+     * Usuário autenticado, para os filtros que rodam fora do Spring Security (log de acesso).
+     */
+    public static final String USERNAME_ATTRIBUTE = SecurityFilter.class.getName() + ".username";
+
     private final TokenService tokenService;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
+
+    /**
+     * Com {@code false} (padrão) a autenticação é totalmente stateless: o usuário vem das claims do token.
+     * Com {@code true}, o usuário também precisa existir (consultado pelo {@link UserCache}).
+     */
+    @Value("${api.security.token.verify-user:false}")
+    private boolean verifyUser;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         var token = this.recoverToken(request);
         if (token != null) {
-            var login = tokenService.extractUsername(token);
-            UserDetails user = userRepository.findByUsername(login).orElse(null);
+            Optional<AuthenticatedUser> user = Optional.of(tokenService.extractUser(token));
+            if (verifyUser) {
+                user = user.flatMap(claims -> userCache.find(claims.username())
+                        .filter(found -> Objects.equals(found.userId(), claims.userId())));
+            }
 
-            if (user != null && tokenService.isTokenValid(token, user)) {
-                var authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+            user.ifPresent(principal -> {
+                var authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.authorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-            }
+                request.setAttribute(USERNAME_ATTRIBUTE, principal.username());
+            });
         }
         filterChain.doFilter(request, response);
     }
@@ -1,29 +1,60 @@
 package com.hyperativa.crud.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.hyperativa.crud.domain.model.User;
 import com.hyperativa.crud.exception.TokenException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Emite e valida os JWTs de acesso. A chave HMAC e o {@link JwtParser} (imutável e thread-safe) são criados uma
+ * única vez; cada token é verificado uma vez e o usuário resultante fica em um cache limitado
+ * ({@code api.security.token.verified-cache.maximum-size}) até a expiração do próprio token, de modo que clientes
+ * que repetem o mesmo token não refazem o HMAC nem o parse do JSON.
+ */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class TokenService {
 
+    /**
+     * Permissão para exportar os números de cartão decifrados, concedida aos usuários de
+     * {@code api.security.card-decrypt-users}.
+     */
+    public static final String CARD_DECRYPT_AUTHORITY = "CARD_DECRYPT";
+
+    /**
+     * Permissão para consultar e dividir os shards de cartões ({@code /actuator/cardshards}), concedida aos usuários
+     * de {@code api.security.card-shard-admin-users}.
+     */
+    public static final String CARD_SHARD_ADMIN_AUTHORITY = "CARD_SHARD_ADMIN";
+
     @Value("${api.security.token.secret}")
     private String secret;
 
@@ -36,8 +67,43 @@ public class TokenService {
     @Value("${api.security.token.audience}")
     private String audience;
 
+    @Value("${api.security.token.verified-cache.maximum-size:10000}")
+    private long verifiedCacheSize;
+
+    @Value("${api.security.card-decrypt-users:}")
+    private Set<String> cardDecryptUsers = Set.of();
+
+    @Value("${api.security.card-shard-admin-users:}")
+    private Set<String> cardShardAdminUsers = Set.of();
+
+    private final MeterRegistry meterRegistry;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verifiedTokens;
+    private Timer cachedValidation;
+    private Timer validValidation;
+    private Timer invalidValidation;
+
     @PostConstruct
-    public void validateConfiguration() {
+    public void init() {
+        validateConfiguration();
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .requireIssuer(issuer)
+                .requireAudience(audience)
+                .build();
+        verifiedTokens = verifiedCacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new ExpireAtTokenExpiration())
+                .build();
+        cachedValidation = validationTimer("hit", "valid");
+        validValidation = validationTimer("miss", "valid");
+        invalidValidation = validationTimer("miss", "invalid");
+    }
+
+    private void validateConfiguration() {
         if (secret == null || secret.length() < 32) {
             log.warn("JWT_SECRET deve ter no mínimo 32 caracteres (256 bits) para HS256!");
         }
@@ -53,9 +119,16 @@ public class TokenService {
             claims.put("userId", ( user).getId());
         }
         
-        claims.put("roles", userDetails.getAuthorities().stream()
+        List<String> roles = new ArrayList<>(userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .toList());
+        if (cardDecryptUsers.contains(userDetails.getUsername())) {
+            roles.add(CARD_DECRYPT_AUTHORITY);
+        }
+        if (cardShardAdminUsers.contains(userDetails.getUsername())) {
+            roles.add(CARD_SHARD_ADMIN_AUTHORITY);
+        }
+        claims.put("roles", roles);
 
         return Jwts.builder()
                 .setClaims(claims)
@@ -64,7 +137,7 @@ public class TokenService {
                 .setAudience(audience)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -72,17 +145,30 @@ public class TokenService {
         return extractClaim(token, Claims::getSubject);
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Valida o token (assinatura, emissor, audiência e expiração) e monta o usuário a partir das claims,
+     * sem consultar o banco. Um token já verificado e ainda não expirado é respondido pelo cache.
+     */
+    public AuthenticatedUser extractUser(String token) {
+        long start = System.nanoTime();
+        VerifiedToken verified = verifiedTokens == null || token == null ? null : verifiedTokens.getIfPresent(token);
+        if (verified != null && verified.expiresAt() > System.currentTimeMillis()) {
+            cachedValidation.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return verified.user();
+        }
+        Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (TokenException e) {
+            invalidValidation.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        AuthenticatedUser user = toAuthenticatedUser(claims);
+        if (verifiedTokens != null && claims.getExpiration() != null) {
+            verifiedTokens.put(token, new VerifiedToken(user, claims.getExpiration().getTime()));
+        }
+        validValidation.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return user;
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -90,15 +176,18 @@ public class TokenService {
         return claimsResolver.apply(claims);
     }
 
+    private static AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+        List<?> roles = claims.get("roles", List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return new AuthenticatedUser(userId != null ? userId.longValue() : null, claims.getSubject(), authorities);
+    }
+
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .requireIssuer(issuer)
-                    .requireAudience(audience)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
             log.warn("Token JWT expirado: {}", e.getMessage());
             throw new TokenException("Token expirado", e);
@@ -117,8 +206,35 @@ public class TokenService {
         }
     }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private Timer validationTimer(String cache, String result) {
+        return Timer.builder("auth.token.validation")
+                .tag("cache", cache)
+                .tag("result", result)
+                .description("Tempo de validação dos JWTs recebidos (HMAC e parse, ou acerto no cache de verificados)")
+                .register(meterRegistry);
+    }
+
+    private record VerifiedToken(AuthenticatedUser user, long expiresAt) {
+    }
+
+    /**
+     * Cada entrada expira junto com o token que a originou.
+     */
+    private static final class ExpireAtTokenExpiration implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, verified.expiresAt() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, verified, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,50 @@
+package com.hyperativa.crud.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hyperativa.crud.domain.model.User;
+import com.hyperativa.crud.domain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache limitado em tamanho e tempo dos usuários consultados pelo {@link SecurityFilter} quando
+ * {@code api.security.token.verify-user=true}. Usuários inexistentes também ficam em cache (como vazio);
+ * qualquer alteração de usuário deve chamar {@link #invalidate(String)}.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, Optional<AuthenticatedUser>> users;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${api.security.user-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${api.security.user-cache.ttl:PT1M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Optional<AuthenticatedUser> find(String username) {
+        return users.get(username, this::load);
+    }
+
+    public void invalidate(String username) {
+        users.invalidate(username);
+    }
+
+    private Optional<AuthenticatedUser> load(String username) {
+        return userRepository.findByUsername(username).map(UserCache::toAuthenticatedUser);
+    }
+
+    private static AuthenticatedUser toAuthenticatedUser(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), List.copyOf(user.getAuthorities()));
+    }
+}
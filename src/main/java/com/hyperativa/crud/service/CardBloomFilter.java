@@ -0,0 +1,364 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtro de Bloom com os hashes dos cartões cadastrados, consultado antes do banco: se o hash não está
+ * no filtro, o cartão certamente não existe e a consulta ao MySQL é evitada.
+ * <p>
+ * O filtro é dimensionado por {@code api.cards.bloom-filter.expected-cards} e {@code false-positive-rate} (ou
+ * pela quantidade de cartões no banco, com folga, se for maior), construído na inicialização percorrendo a tabela
+ * {@code cards} e atualizado a cada cartão inserido. Enquanto não estiver pronto, {@link #mightContain(CardHash)}
+ * sempre retorna {@code true}.
+ * <p>
+ * Inserções feitas por outras instâncias da aplicação são incorporadas a cada {@code sync-interval-ms}, lendo os
+ * cartões com id acima do último sincronizado. Como os ids são atribuídos antes do commit e vêm do relógio de
+ * cada instância, cada leitura recomeça {@code sync-overlap-ms} antes; rever um hash já presente não altera o
+ * filtro. Um cartão cadastrado em outra instância pode ser dado como inexistente por esta até a sincronização
+ * seguinte; para limitar essa janela, o filtro só descarta hashes enquanto a última sincronização concluída tiver
+ * começado há no máximo {@code max-staleness-ms}. Com sincronizações falhando, atrasadas ou bloqueadas por uma
+ * reconstrução, todas as consultas vão ao banco até a próxima sincronização.
+ * <p>
+ * Um cartão confirmado mais de {@code sync-overlap-ms} depois do instante do seu id (upsert esperando travas do
+ * InnoDB, relógios adiantados) escapa da sincronização frequente. Para esses, a cada {@code late-sync-interval-ms}
+ * os cartões dos últimos {@code late-sync-window-ms} são relidos; a janela precisa cobrir a maior espera por travas
+ * de um upsert ({@code innodb_lock_wait_timeout} em cada tentativa) mais a diferença de relógio tolerada entre as
+ * instâncias ({@code max-clock-skew-ms}), o que é verificado na inicialização.
+ * <p>
+ * A reconstrução, que relê a tabela inteira para redimensionar o filtro, é feita na inicialização e pelo
+ * {@code rebuild-cron}, por padrão uma vez por dia em um minuto sorteado por instância, para as instâncias não lerem
+ * todos os shards ao mesmo tempo. Ela também corrige qualquer cartão que tenha escapado das sincronizações. Durante
+ * a reconstrução, novas inserções são gravadas nos dois filtros.
+ * <p>
+ * Como o hash do cartão já é um SHA-256, as {@code k} posições são obtidas por hashing duplo
+ * (Kirsch-Mitzenmacher) sobre os dois primeiros blocos de 8 bytes, sem nenhum hash adicional.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardBloomFilter {
+
+    private static final double GROWTH_FACTOR = 1.5;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final CardBatchRepository cardBatchRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${api.cards.bloom-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${api.cards.bloom-filter.expected-cards:1000000}")
+    private long expectedCards;
+
+    @Value("${api.cards.bloom-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${api.cards.bloom-filter.sync-overlap-ms:10000}")
+    private long syncOverlapMillis;
+
+    @Value("${api.cards.bloom-filter.sync-batch-size:10000}")
+    private int syncBatchSize;
+
+    @Value("${api.cards.bloom-filter.sync-interval-ms:2000}")
+    private long syncIntervalMillis;
+
+    @Value("${api.cards.bloom-filter.max-staleness-ms:5000}")
+    private long maxStalenessMillis;
+
+    @Value("${api.cards.bloom-filter.late-sync-window-ms:180000}")
+    private long lateSyncWindowMillis;
+
+    @Value("${api.cards.bloom-filter.max-clock-skew-ms:1000}")
+    private long maxClockSkewMillis;
+
+    private volatile Bits bits;
+    private volatile Bits rebuilding;
+    private volatile boolean ready;
+    private volatile long syncedId;
+    // início da última sincronização (ou reconstrução) concluída: tudo o que foi confirmado antes está no filtro
+    private volatile long syncedAt;
+    // evita synchronized: a reconstrução espera o MySQL e, em uma virtual thread, prenderia a thread portadora
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Counter negatives;
+    private Counter positives;
+    private Counter stale;
+
+    @PostConstruct
+    public void init() {
+        if (maxStalenessMillis < syncIntervalMillis) {
+            throw new IllegalStateException("api.cards.bloom-filter.max-staleness-ms (" + maxStalenessMillis
+                    + ") deve ser de pelo menos sync-interval-ms (" + syncIntervalMillis + ")");
+        }
+        bits = newBits(expectedCards);
+        negatives = Counter.builder("cards.bloom.checks").tag("result", "negative")
+                .description("Consultas resolvidas pelo filtro sem acesso ao banco").register(meterRegistry);
+        positives = Counter.builder("cards.bloom.checks").tag("result", "positive")
+                .description("Consultas que precisaram ir ao banco").register(meterRegistry);
+        stale = Counter.builder("cards.bloom.checks").tag("result", "stale")
+                .description("Consultas enviadas ao banco por o filtro estar sem sincronização recente")
+                .register(meterRegistry);
+        Gauge.builder("cards.bloom.fill.ratio", this, filter -> filter.bits.fillRatio())
+                .description("Fração dos bits do filtro ligados").register(meterRegistry);
+        Gauge.builder("cards.bloom.false.positive.rate", this, filter -> filter.bits.falsePositiveRate())
+                .description("Taxa de falso positivo estimada a partir do preenchimento atual").register(meterRegistry);
+        Gauge.builder("cards.bloom.insertions", this, filter -> filter.bits.insertions.get())
+                .description("Hashes adicionados ao filtro").register(meterRegistry);
+        log.info("Filtro de cartões dimensionado para {} cartões: {} bits, {} funções de hash",
+                expectedCards, bits.size, bits.hashFunctions);
+    }
+
+    /**
+     * {@code false} significa que o cartão não estava cadastrado até, no máximo, {@code max-staleness-ms} atrás.
+     */
+    public boolean mightContain(CardHash hash) {
+        if (!ready) {
+            return true;
+        }
+        if (System.currentTimeMillis() - syncedAt > maxStalenessMillis) {
+            stale.increment();
+            return true;
+        }
+        boolean result = bits.mightContain(hash.value());
+        (result ? positives : negatives).increment();
+        return result;
+    }
+
+    public void put(CardHash hash) {
+        // lê o filtro em reconstrução antes do atual: se já for null, a troca já ocorreu e bits é o novo
+        Bits next = rebuilding;
+        bits.put(hash.value());
+        if (next != null) {
+            next.put(hash.value());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Incorpora os cartões inseridos desde a última sincronização, inclusive por outras instâncias. Durante uma
+     * reconstrução não faz nada: a reconstrução já lê a tabela inteira e define o ponto de partida seguinte.
+     */
+    @Scheduled(initialDelayString = "${api.cards.bloom-filter.sync-interval-ms:2000}",
+            fixedDelayString = "${api.cards.bloom-filter.sync-interval-ms:2000}")
+    public void sync() {
+        if (!enabled || !ready || !rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long from = syncedId;
+            long last;
+            do {
+                last = from;
+                from = cardBatchRepository.forEachHashAfter(last, syncBatchSize, (hash, id) -> put(hash));
+            } while (from != last);
+            syncedId = Math.min(from, SnowflakeIdGenerator.firstIdAt(start - syncOverlapMillis));
+            syncedAt = start;
+        } catch (RuntimeException e) {
+            log.error("Erro ao sincronizar filtro de cartões com o banco", e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Relê os cartões dos últimos {@code late-sync-window-ms}, para incorporar os confirmados depois da janela de
+     * sobreposição da sincronização frequente. Não altera o ponto de partida nem o prazo de {@link #sync()}, então
+     * roda sem o lock dela: só adiciona hashes, o que {@link #put(CardHash)} já faz com segurança.
+     */
+    @Scheduled(initialDelayString = "${api.cards.bloom-filter.late-sync-interval-ms:60000}",
+            fixedDelayString = "${api.cards.bloom-filter.late-sync-interval-ms:60000}")
+    public void lateSync() {
+        if (!enabled || !ready) {
+            return;
+        }
+        try {
+            long from = SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() - lateSyncWindowMillis);
+            long before = bits.insertions.get();
+            long last;
+            do {
+                last = from;
+                from = cardBatchRepository.forEachHashAfter(last, syncBatchSize, (hash, id) -> put(hash));
+            } while (from != last);
+            long late = bits.insertions.get() - before;
+            if (late > 0) {
+                log.warn("{} cartões confirmados depois da janela de sincronização incorporados ao filtro", late);
+            }
+        } catch (RuntimeException e) {
+            log.error("Erro ao reler cartões recentes para o filtro de cartões", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(() -> {
+            checkLateSyncWindow();
+            rebuild();
+        }, "card-bloom-filter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Scheduled(cron = "${api.cards.bloom-filter.rebuild-cron:0 ${random.int[60]} 4 * * *}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            rebuildBits();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildBits() {
+        try {
+            long start = System.currentTimeMillis();
+            long capacity = capacity(cardBatchRepository.count());
+            Bits next = newBits(capacity);
+            rebuilding = next;
+            cardBatchRepository.forEachHash(hash -> next.put(hash.value()));
+            bits = next;
+            syncedId = SnowflakeIdGenerator.firstIdAt(start - syncOverlapMillis);
+            syncedAt = start;
+            ready = true;
+            log.info("Filtro de cartões construído com {} hashes em {} ms (falso positivo estimado {})",
+                    next.insertions.get(), System.currentTimeMillis() - start, next.falsePositiveRate());
+            if (next.insertions.get() > capacity) {
+                log.warn("Filtro de cartões acima da capacidade ({} > {}); aumente api.cards.bloom-filter.expected-cards",
+                        next.insertions.get(), capacity);
+            }
+        } catch (RuntimeException e) {
+            log.error("Erro ao construir filtro de cartões; mantendo o filtro anterior", e);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private void checkLateSyncWindow() {
+        try {
+            long required = cardBatchRepository.maxUpsertLockWaitMillis() + maxClockSkewMillis;
+            if (lateSyncWindowMillis < required) {
+                log.warn("api.cards.bloom-filter.late-sync-window-ms ({}) menor que a maior espera por travas de um "
+                        + "upsert mais max-clock-skew-ms ({}); cartões confirmados com esse atraso só entram no filtro "
+                        + "na próxima reconstrução", lateSyncWindowMillis, required);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Erro ao consultar innodb_lock_wait_timeout para validar late-sync-window-ms", e);
+        }
+    }
+
+    /**
+     * {@code expected-cards}, ou a quantidade de cartões no banco com folga para o crescimento até a próxima
+     * reconstrução quando ela for maior.
+     */
+    private long capacity(long cards) {
+        if (cards <= expectedCards) {
+            return expectedCards;
+        }
+        long capacity = (long) (cards * GROWTH_FACTOR);
+        log.warn("{} cartões no banco, acima de api.cards.bloom-filter.expected-cards ({}); filtro dimensionado "
+                + "para {} cartões (~{} MB de heap)", cards, expectedCards, capacity, size(capacity) / 8 / 1024 / 1024);
+        return capacity;
+    }
+
+    private long size(long expectedCards) {
+        return Math.max(Long.SIZE,
+                (long) Math.ceil(-expectedCards * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    }
+
+    private Bits newBits(long expectedCards) {
+        long size = size(expectedCards);
+        int hashFunctions = Math.max(1, (int) Math.round((double) size / expectedCards * Math.log(2)));
+        return new Bits(size, hashFunctions);
+    }
+
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashFunctions;
+        private final AtomicLong bitCount = new AtomicLong();
+        private final AtomicLong insertions = new AtomicLong();
+
+        private Bits(long size, int hashFunctions) {
+            this.words = new AtomicLongArray(Math.toIntExact((size + Long.SIZE - 1) / Long.SIZE));
+            this.size = size;
+            this.hashFunctions = hashFunctions;
+        }
+
+        /**
+         * Só conta como inserção o hash que ligou algum bit: um hash revisto na sincronização não altera o filtro.
+         */
+        private void put(byte[] hash) {
+            long h1 = (long) LONGS.get(hash, 0);
+            long h2 = (long) LONGS.get(hash, Long.BYTES);
+            boolean changed = false;
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = Math.floorMod(h1 + i * h2, size);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current = words.get(word);
+                while ((current & mask) == 0) {
+                    long witness = words.compareAndExchange(word, current, current | mask);
+                    if (witness == current) {
+                        bitCount.incrementAndGet();
+                        changed = true;
+                        break;
+                    }
+                    current = witness;
+                }
+            }
+            if (changed) {
+                insertions.incrementAndGet();
+            }
+        }
+
+        private boolean mightContain(byte[] hash) {
+            long h1 = (long) LONGS.get(hash, 0);
+            long h2 = (long) LONGS.get(hash, Long.BYTES);
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = Math.floorMod(h1 + i * h2, size);
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private double fillRatio() {
+            return (double) bitCount.get() / size;
+        }
+
+        private double falsePositiveRate() {
+            return Math.pow(fillRatio(), hashFunctions);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.hyperativa.crud.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import com.hyperativa.crud.security.CardCipher;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exportação dos cartões cadastrados (id e hash SHA-256 em hexadecimal) em NDJSON ou CSV, escrita direto no
+ * {@link OutputStream} da resposta. A tabela é percorrida em páginas por id ({@code id > :afterId ORDER BY id
+ * LIMIT :pageSize}, sem OFFSET): a memória usada é constante, cada página custa o mesmo em qualquer ponto da
+ * tabela e a exportação pode ser retomada a partir do último id recebido.
+ * <p>
+ * O número do cartão só é decifrado em {@link #exportDecrypted}, exposto em um endpoint com autorização própria.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CardExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final CardBatchRepository cardBatchRepository;
+    private final CardCipher cardCipher;
+
+    @Value("${api.cards.export.page-size:10000}")
+    private int pageSize;
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+    }
+
+    /**
+     * Escreve id e hash dos cartões com id maior que {@code afterId}, em ordem de id, e retorna a quantidade exportada.
+     */
+    public long export(Format format, long afterId, OutputStream out) throws IOException {
+        RowWriter writer = new RowWriter(out, format, false);
+        return writePages(writer, afterId, (lastId, limit) -> cardBatchRepository.forEachHashAfter(lastId, limit,
+                (hash, id) -> writer.write(id, hash, null)));
+    }
+
+    /**
+     * Como {@link #export}, incluindo o número do cartão decifrado.
+     */
+    public long exportDecrypted(Format format, long afterId, OutputStream out) throws IOException {
+        log.info("Exportação de cartões com número decifrado iniciada após o id {}", afterId);
+        RowWriter writer = new RowWriter(out, format, true);
+        long rows = writePages(writer, afterId, (lastId, limit) -> cardBatchRepository.forEachEncryptedAfter(lastId, limit,
+                (id, hash, encrypted) -> writer.write(id, hash, cardCipher.decrypt(encrypted))));
+        log.info("Exportação de cartões com número decifrado concluída: {} cartões", rows);
+        return rows;
+    }
+
+    private long writePages(RowWriter writer, long afterId, PageReader pageReader) throws IOException {
+        try {
+            writer.header();
+            long lastId = afterId;
+            while (true) {
+                long before = writer.rows;
+                lastId = pageReader.read(lastId, pageSize);
+                // cada página é enviada ao cliente assim que lida, para que ele possa retomar do último id recebido
+                writer.flush();
+                if (writer.rows - before < pageSize) {
+                    return writer.rows;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageReader {
+
+        long read(long afterId, int limit);
+    }
+
+    /**
+     * Formata cada linha direto em bytes, sem montar objetos JSON nem strings intermediárias para o hash.
+     */
+    private static final class RowWriter {
+
+        private final OutputStream out;
+        private final Format format;
+        private final boolean withCardNumber;
+        private final byte[] hex = new byte[CardHash.LENGTH * 2];
+        private long rows;
+
+        private RowWriter(OutputStream out, Format format, boolean withCardNumber) {
+            this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+            this.format = format;
+            this.withCardNumber = withCardNumber;
+        }
+
+        private void header() throws IOException {
+            if (format == Format.CSV) {
+                ascii(withCardNumber ? "id,hash,card_number\n" : "id,hash\n");
+            }
+        }
+
+        private void write(long id, CardHash hash, String cardNumber) {
+            byte[] value = hash.value();
+            for (int i = 0; i < value.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(value[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX_DIGITS[value[i] & 0xF];
+            }
+            try {
+                if (format == Format.NDJSON) {
+                    ascii("{\"id\":");
+                    ascii(Long.toString(id));
+                    ascii(",\"hash\":\"");
+                    out.write(hex);
+                    if (withCardNumber) {
+                        ascii("\",\"cardNumber\":\"");
+                        out.write(JsonStringEncoder.getInstance().quoteAsUTF8(cardNumber));
+                    }
+                    ascii("\"}\n");
+                } else {
+                    ascii(Long.toString(id));
+                    out.write(',');
+                    out.write(hex);
+                    if (withCardNumber) {
+                        out.write(',');
+                        out.write(csvField(cardNumber).getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+
+        private void flush() throws IOException {
+            out.flush();
+        }
+
+        private void ascii(String value) throws IOException {
+            out.write(value.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private static String csvField(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
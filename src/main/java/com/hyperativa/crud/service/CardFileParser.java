@@ -0,0 +1,146 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardNumbers;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Lê o arquivo de importação armazenado direto do arquivo mapeado em memória, sem decodificar texto nem criar uma
+ * {@link String} por linha. Em uma única passada pelos bytes da linha, os dígitos são copiados para o buffer do
+ * lote, espaços e hífens são descartados e o tamanho (e, com {@code luhnCheck}, o Luhn) é verificado; ao primeiro
+ * caractere inválido a linha é só percorrida até o fim, sem cópia. O arquivo é mapeado em janelas, então o tamanho do upload não é
+ * limitado pelo espaço de endereçamento de um {@link MappedByteBuffer}.
+ * <p>
+ * {@link #position()} aponta sempre para o início da próxima linha e serve de checkpoint do job.
+ */
+public final class CardFileParser {
+
+    public static final int EOF = -3;
+    public static final int BLANK = -2;
+    public static final int INVALID = -1;
+
+    private static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final boolean luhnCheck;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    /**
+     * @param luhnCheck se linhas com dígito verificador inválido são rejeitadas
+     */
+    public CardFileParser(FileChannel channel, long position, boolean luhnCheck) throws IOException {
+        this(channel, position, DEFAULT_WINDOW_SIZE, luhnCheck);
+    }
+
+    CardFileParser(FileChannel channel, long position, long windowSize, boolean luhnCheck) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.luhnCheck = luhnCheck;
+        seek(position);
+    }
+
+    /**
+     * Reposiciona a leitura no início de uma linha, reaproveitando a janela já mapeada quando possível.
+     */
+    public void seek(long position) throws IOException {
+        this.position = position == 0 && startsWithBom() ? UTF8_BOM.length : position;
+    }
+
+    /**
+     * Lê a próxima linha, escrevendo os dígitos em {@code out} a partir de {@code offset} (espaço para
+     * {@link CardNumbers#MAX_LENGTH} bytes).
+     *
+     * @return a quantidade de dígitos de um número válido, {@link #INVALID}, {@link #BLANK} (linha vazia ou só com
+     * espaços) ou {@link #EOF}
+     */
+    public int nextLine(byte[] out, int offset) throws IOException {
+        if (position >= size) {
+            return EOF;
+        }
+        int i = map(position);
+        int end = window.limit();
+        int length = 0;
+        boolean blank = true;
+        boolean invalid = false;
+        while (true) {
+            if (i == end) {
+                long next = windowStart + end;
+                if (next >= size) {
+                    break;
+                }
+                i = map(next);
+                end = window.limit();
+            }
+            byte b = window.get(i++);
+            if (b == '\n') {
+                break;
+            }
+            if (invalid) {
+                continue;
+            }
+            switch (CardNumbers.type(b)) {
+                case CardNumbers.DIGIT -> {
+                    if (length == CardNumbers.MAX_LENGTH) {
+                        invalid = true;
+                    } else {
+                        out[offset + length++] = b;
+                    }
+                    blank = false;
+                }
+                case CardNumbers.WHITESPACE -> {
+                }
+                case CardNumbers.SEPARATOR -> blank = false;
+                default -> {
+                    invalid = true;
+                    blank = false;
+                }
+            }
+        }
+        position = windowStart + i;
+        if (blank) {
+            return BLANK;
+        }
+        return invalid || length < CardNumbers.MIN_LENGTH || luhnCheck && !CardNumbers.isLuhnValid(out, offset, length)
+                ? INVALID
+                : length;
+    }
+
+    /**
+     * Byte do arquivo em que começa a próxima linha.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Garante {@code absolute} dentro da janela mapeada e devolve o índice correspondente na janela.
+     */
+    private int map(long absolute) throws IOException {
+        if (window == null || absolute < windowStart || absolute >= windowStart + window.limit()) {
+            windowStart = absolute;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, absolute, Math.min(windowSize, size - absolute));
+        }
+        return (int) (absolute - windowStart);
+    }
+
+    private boolean startsWithBom() throws IOException {
+        if (size < UTF8_BOM.length) {
+            return false;
+        }
+        map(0);
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (window.get(i) != UTF8_BOM[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
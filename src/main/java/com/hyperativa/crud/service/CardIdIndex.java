@@ -0,0 +1,298 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice opcional hash → id fora do heap, em um arquivo mapeado em memória ({@code api.cards.index.*}).
+ * <p>
+ * Tabela de endereçamento aberto com sondagem linear: cada posição tem 40 bytes (32 do hash e 8 do id) e
+ * {@code id == 0} indica posição livre. O escritor reserva a posição com CAS, grava o hash e publica o id com
+ * semântica release; o leitor lê o id com acquire antes de comparar o hash, sem nenhum lock. O arquivo é dividido
+ * em segmentos de até {@value #SEGMENT_SLOTS} posições, pois um {@link MappedByteBuffer} é limitado a 2 GB.
+ * <p>
+ * O índice só responde acertos: como ids nunca mudam, um acerto é sempre correto, e uma ausência (cartão inserido
+ * por outra instância ou ainda não reconciliado) segue para o banco. O arquivo sobrevive a reinícios: o cabeçalho
+ * guarda o último id reconciliado e um indicador de encerramento limpo; sem ele, o índice é zerado e reconstruído
+ * em segundo plano a partir da tabela {@code cards}.
+ * <p>
+ * A reconciliação periódica lê no máximo {@code reconcile-max-batches} lotes por execução, para não prender o
+ * agendador das tarefas {@code @Scheduled}. Quando ainda há cartões depois disso (reconstrução após encerramento
+ * abrupto, instância parada por muito tempo), a leitura continua em uma thread própria até alcançar o fim da tabela,
+ * e as execuções periódicas são ignoradas enquanto ela roda.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardIdIndex {
+
+    static final int SEGMENT_SLOTS = 1 << 24;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle HASH_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long MAGIC = 0x4341524449445831L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int SIZE_OFFSET = 24;
+    private static final int RECONCILED_ID_OFFSET = 32;
+
+    private static final int SLOT_SIZE = CardHash.LENGTH + Long.BYTES;
+    private static final int ID_OFFSET = CardHash.LENGTH;
+    private static final long EMPTY = 0L;
+    private static final long CLAIMED = -1L;
+    private static final double MAX_LOAD_FACTOR = 0.9;
+
+    private final CardBatchRepository cardBatchRepository;
+
+    @Value("${api.cards.index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${api.cards.index.path:data/card-index.bin}")
+    private Path path;
+
+    @Value("${api.cards.index.capacity:16777216}")
+    private long capacity;
+
+    @Value("${api.cards.index.reconcile-batch-size:10000}")
+    private int reconcileBatchSize;
+
+    @Value("${api.cards.index.reconcile-max-batches:10}")
+    private int reconcileMaxBatches;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private final AtomicLong size = new AtomicLong();
+    // serializa reconcile() e close(); não é synchronized porque, em virtual thread, a consulta ao banco fixaria a portadora
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private long maxSize;
+    private volatile boolean full;
+    private volatile boolean open;
+    private final AtomicBoolean catchingUp = new AtomicBoolean();
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        boolean reusable = header.getLong(MAGIC_OFFSET) == MAGIC
+                && header.getInt(VERSION_OFFSET) == FORMAT_VERSION
+                && header.getLong(CAPACITY_OFFSET) == capacity
+                && header.getInt(CLEAN_OFFSET) == 1;
+        if (!reusable) {
+            // truncar e estender gera um arquivo esparso zerado, sem escrever os bytes
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(1), HEADER_SIZE + capacity * SLOT_SIZE - 1);
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putLong(MAGIC_OFFSET, MAGIC);
+            header.putInt(VERSION_OFFSET, FORMAT_VERSION);
+            header.putLong(CAPACITY_OFFSET, capacity);
+            header.putLong(SIZE_OFFSET, 0);
+            header.putLong(RECONCILED_ID_OFFSET, 0);
+            log.info("Índice de cartões criado em {} com {} posições; será reconstruído a partir do banco", path, capacity);
+        } else {
+            log.info("Índice de cartões reaproveitado de {}: {} entradas, reconciliado até o id {}",
+                    path, header.getLong(SIZE_OFFSET), header.getLong(RECONCILED_ID_OFFSET));
+        }
+        header.putInt(CLEAN_OFFSET, 0);
+        header.force();
+
+        int segmentCount = (int) ((capacity + SEGMENT_SLOTS - 1) / SEGMENT_SLOTS);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long slots = Math.min(SEGMENT_SLOTS, capacity - (long) i * SEGMENT_SLOTS);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + (long) i * SEGMENT_SLOTS * SLOT_SIZE, slots * SLOT_SIZE);
+        }
+        size.set(header.getLong(SIZE_OFFSET));
+        maxSize = (long) (capacity * MAX_LOAD_FACTOR);
+        full = size.get() >= maxSize;
+        open = true;
+    }
+
+    public Optional<Long> find(CardHash hash) {
+        if (!open) {
+            return Optional.empty();
+        }
+        byte[] key = hash.value();
+        long slot = homeSlot(key);
+        for (long probes = 0; probes < capacity; probes++) {
+            MappedByteBuffer segment = segments[(int) (slot / SEGMENT_SLOTS)];
+            int offset = (int) (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+            long id = (long) LONGS.getAcquire(segment, offset + ID_OFFSET);
+            if (id == EMPTY) {
+                return Optional.empty();
+            }
+            if (id != CLAIMED && matches(segment, offset, key)) {
+                return Optional.of(id);
+            }
+            slot = next(slot);
+        }
+        return Optional.empty();
+    }
+
+    public void put(CardHash hash, long id) {
+        if (!open || full) {
+            return;
+        }
+        byte[] key = hash.value();
+        long slot = homeSlot(key);
+        for (long probes = 0; probes < capacity; probes++) {
+            MappedByteBuffer segment = segments[(int) (slot / SEGMENT_SLOTS)];
+            int offset = (int) (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+            long current = (long) LONGS.getAcquire(segment, offset + ID_OFFSET);
+            if (current == EMPTY && LONGS.compareAndSet(segment, offset + ID_OFFSET, EMPTY, CLAIMED)) {
+                for (int i = 0; i < CardHash.LENGTH; i += Long.BYTES) {
+                    LONGS.set(segment, offset + i, (long) HASH_LONGS.get(key, i));
+                }
+                LONGS.setRelease(segment, offset + ID_OFFSET, id);
+                if (size.incrementAndGet() >= maxSize) {
+                    full = true;
+                    log.warn("Índice de cartões atingiu {} entradas; aumente api.cards.index.capacity", maxSize);
+                }
+                return;
+            }
+            while (current == EMPTY || current == CLAIMED) {
+                Thread.onSpinWait();
+                current = (long) LONGS.getAcquire(segment, offset + ID_OFFSET);
+            }
+            if (matches(segment, offset, key)) {
+                return;
+            }
+            slot = next(slot);
+        }
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Incorpora ao índice os cartões com id acima do último reconciliado, em lotes ordenados por id, até
+     * {@code reconcile-max-batches} lotes; o restante fica com a thread de recuperação.
+     */
+    @Scheduled(fixedDelayString = "${api.cards.index.reconcile-interval-ms:10000}")
+    public void reconcile() {
+        if (catchingUp.get()) {
+            return;
+        }
+        boolean more = true;
+        for (int batch = 0; more && batch < reconcileMaxBatches; batch++) {
+            more = reconcileBatch();
+        }
+        if (more && catchingUp.compareAndSet(false, true)) {
+            log.info("Índice de cartões atrasado em relação ao banco; reconciliando em segundo plano");
+            Thread worker = new Thread(this::catchUp, "card-id-index-reconcile");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void catchUp() {
+        try {
+            boolean more;
+            do {
+                more = reconcileBatch();
+            } while (more);
+            log.info("Índice de cartões reconciliado até o id {} ({} entradas)",
+                    header.getLong(RECONCILED_ID_OFFSET), size.get());
+        } finally {
+            catchingUp.set(false);
+        }
+    }
+
+    /**
+     * Lê um lote após o último id reconciliado; o lock é tomado por lote, para o {@link #close()} não esperar uma
+     * reconstrução inteira.
+     *
+     * @return se o lote trouxe cartões, ou seja, se ainda pode haver mais depois dele
+     */
+    private boolean reconcileBatch() {
+        reconcileLock.lock();
+        try {
+            if (!open || full) {
+                return false;
+            }
+            long from = header.getLong(RECONCILED_ID_OFFSET);
+            long last = cardBatchRepository.forEachHashAfter(from, reconcileBatchSize, this::put);
+            header.putLong(RECONCILED_ID_OFFSET, last);
+            header.putLong(SIZE_OFFSET, size.get());
+            if (last != from) {
+                log.debug("Índice de cartões reconciliado até o id {} ({} entradas)", last, size.get());
+            }
+            return last != from;
+        } catch (RuntimeException e) {
+            log.error("Erro ao reconciliar índice de cartões com o banco", e);
+            return false;
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        reconcileLock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.putLong(SIZE_OFFSET, size.get());
+            header.putInt(CLEAN_OFFSET, 1);
+            header.force();
+            channel.close();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private long homeSlot(byte[] key) {
+        return Math.floorMod((long) HASH_LONGS.get(key, 0), capacity);
+    }
+
+    private long next(long slot) {
+        return slot + 1 == capacity ? 0 : slot + 1;
+    }
+
+    private static boolean matches(MappedByteBuffer segment, int offset, byte[] key) {
+        for (int i = 0; i < CardHash.LENGTH; i += Long.BYTES) {
+            if ((long) LONGS.get(segment, offset + i) != (long) HASH_LONGS.get(key, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
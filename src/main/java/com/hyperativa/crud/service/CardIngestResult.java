@@ -0,0 +1,22 @@
+package com.hyperativa.crud.service;
+
+public record CardIngestResult(Outcome outcome, Long id, String error) {
+
+    public enum Outcome {
+        INSERTED,
+        DUPLICATE,
+        REJECTED
+    }
+
+    public static CardIngestResult inserted(Long id) {
+        return new CardIngestResult(Outcome.INSERTED, id, null);
+    }
+
+    public static CardIngestResult duplicate(Long id) {
+        return new CardIngestResult(Outcome.DUPLICATE, id, null);
+    }
+
+    public static CardIngestResult rejected(String error) {
+        return new CardIngestResult(Outcome.REJECTED, null, error);
+    }
+}
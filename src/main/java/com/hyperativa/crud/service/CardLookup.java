@@ -0,0 +1,23 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+
+/**
+ * Resultado da etapa em memória da consulta de um cartão (filtro de Bloom e índice). Quando {@code resolved} é
+ * {@code false}, só o banco pode responder; caso contrário {@code id} é a resposta ({@code null} = não cadastrado).
+ * {@code hash} é {@code null} quando o número nem chega a ser de cartão.
+ */
+public record CardLookup(CardHash hash, boolean resolved, Long id) {
+
+    public static CardLookup absent(CardHash hash) {
+        return new CardLookup(hash, true, null);
+    }
+
+    public static CardLookup found(CardHash hash, long id) {
+        return new CardLookup(hash, true, id);
+    }
+
+    public static CardLookup unresolved(CardHash hash) {
+        return new CardLookup(hash, false, null);
+    }
+}
@@ -0,0 +1,120 @@
+package com.hyperativa.crud.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas dos caminhos quentes de cartões. Os medidores são registrados uma única vez e as medições usam
+ * {@link System#nanoTime()} direto, sem {@code Timer.Sample} nem lambdas, para não alocar por cartão.
+ */
+@Component
+public class CardMetrics {
+
+    private final Timer hash;
+    private final Timer encrypt;
+    private final Map<RepositoryOperation, Timer> repository = new EnumMap<>(RepositoryOperation.class);
+    private final Counter inserted;
+    private final Counter duplicates;
+    private final Counter rejected;
+    private final DistributionSummary uploadSize;
+    private final DistributionSummary uploadRows;
+    private final DistributionSummary uploadThroughput;
+
+    public CardMetrics(MeterRegistry meterRegistry) {
+        hash = Timer.builder("cards.hash")
+                .description("Tempo do SHA-256 de um número de cartão")
+                .register(meterRegistry);
+        encrypt = Timer.builder("cards.encrypt")
+                .description("Tempo da cifra (AES-GCM) de um número de cartão")
+                .register(meterRegistry);
+        for (RepositoryOperation operation : RepositoryOperation.values()) {
+            repository.put(operation, Timer.builder("cards.repository")
+                    .tag("operation", operation.tag)
+                    .description("Tempo das consultas e gravações de cartões no banco")
+                    .register(meterRegistry));
+        }
+        inserted = ingested(meterRegistry, "inserted");
+        duplicates = ingested(meterRegistry, "duplicate");
+        rejected = ingested(meterRegistry, "rejected");
+        uploadSize = DistributionSummary.builder("cards.upload.size")
+                .baseUnit(BaseUnits.BYTES)
+                .description("Tamanho dos arquivos de cartões enviados")
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(10.0 * 1024 * 1024 * 1024)
+                .register(meterRegistry);
+        uploadRows = DistributionSummary.builder("cards.upload.rows")
+                .baseUnit("rows")
+                .description("Linhas dos arquivos de cartões importados")
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1e9)
+                .register(meterRegistry);
+        uploadThroughput = DistributionSummary.builder("cards.upload.throughput")
+                .baseUnit("rows_per_second")
+                .description("Linhas por segundo de cada importação concluída")
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1e7)
+                .register(meterRegistry);
+    }
+
+    public void hashed(long startNanos) {
+        hash.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void encrypted(long startNanos) {
+        encrypt.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Chamado em um {@code finally}, para que as chamadas que falham também sejam medidas.
+     */
+    public void repository(RepositoryOperation operation, long startNanos) {
+        repository.get(operation).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void ingested(long insertedCards, long duplicateCards, long rejectedCards) {
+        inserted.increment(insertedCards);
+        duplicates.increment(duplicateCards);
+        rejected.increment(rejectedCards);
+    }
+
+    public void uploadReceived(long bytes) {
+        uploadSize.record(bytes);
+    }
+
+    /**
+     * Registra uma importação concluída; {@code elapsed} é o tempo desta execução (desde a última retomada).
+     */
+    public void uploadCompleted(long rows, long rowsThisRun, Duration elapsed) {
+        uploadRows.record(rows);
+        uploadThroughput.record(rowsThisRun * 1000.0 / Math.max(1, elapsed.toMillis()));
+    }
+
+    private static Counter ingested(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cards.ingested")
+                .tag("result", result)
+                .description("Cartões recebidos (cadastro e importação) por resultado")
+                .register(meterRegistry);
+    }
+
+    public enum RepositoryOperation {
+        FIND_ID("findId"),
+        FIND_IDS("findIds"),
+        UPSERT("upsert"),
+        UPSERT_ALL("upsertAll");
+
+        private final String tag;
+
+        RepositoryOperation(String tag) {
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardNumbers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lote de números de cartão normalizados para a ingestão, em um único buffer reutilizado entre lotes: cada entrada
+ * ocupa {@link CardNumbers#MAX_LENGTH} bytes e só os dígitos ASCII são guardados, sem uma {@link String} por
+ * linha. Entradas inválidas (caracteres, tamanho ou, se verificado, Luhn) também ocupam posição, para que o resultado de cada linha
+ * fique no mesmo índice, mas não têm dígitos e nunca chegam ao hash nem ao banco.
+ */
+public final class CardNumberBatch {
+
+    private static final int INVALID = -1;
+
+    private final byte[] digits;
+    private final int[] lengths;
+    private int size;
+
+    public CardNumberBatch(int capacity) {
+        this.digits = new byte[capacity * CardNumbers.MAX_LENGTH];
+        this.lengths = new int[capacity];
+    }
+
+    public static CardNumberBatch of(List<String> cardNumbers, boolean luhnCheck) {
+        CardNumberBatch batch = new CardNumberBatch(cardNumbers.size());
+        cardNumbers.forEach(cardNumber -> batch.add(cardNumber, luhnCheck));
+        return batch;
+    }
+
+    /**
+     * Normaliza e valida um número recebido como texto.
+     *
+     * @param luhnCheck se um número com dígito verificador inválido é rejeitado
+     */
+    public void add(CharSequence cardNumber, boolean luhnCheck) {
+        String normalized = CardNumbers.normalize(cardNumber);
+        if (normalized == null || luhnCheck && !CardNumbers.isLuhnValid(normalized)) {
+            append(INVALID);
+            return;
+        }
+        int offset = nextOffset();
+        for (int i = 0; i < normalized.length(); i++) {
+            digits[offset + i] = (byte) normalized.charAt(i);
+        }
+        append(normalized.length());
+    }
+
+    /**
+     * Buffer em que o leitor do arquivo escreve os dígitos da próxima entrada, a partir de {@link #nextOffset()}.
+     */
+    byte[] buffer() {
+        return digits;
+    }
+
+    int nextOffset() {
+        return size * CardNumbers.MAX_LENGTH;
+    }
+
+    /**
+     * Fecha a próxima entrada com {@code length} dígitos já escritos no buffer; negativo indica entrada inválida.
+     */
+    void append(int length) {
+        lengths[size++] = length < 0 ? INVALID : length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == lengths.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean isValid(int index) {
+        return lengths[index] != INVALID;
+    }
+
+    int offset(int index) {
+        return index * CardNumbers.MAX_LENGTH;
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Números normalizados, {@code null} para as entradas inválidas.
+     */
+    public List<String> cardNumbers() {
+        List<String> cardNumbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cardNumbers.add(isValid(i) ? new String(digits, offset(i), lengths[i], StandardCharsets.US_ASCII) : null);
+        }
+        return cardNumbers;
+    }
+}
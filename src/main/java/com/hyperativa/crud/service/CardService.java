@@ -1,83 +1,294 @@
 package com.hyperativa.crud.service;
 
+import com.hyperativa.crud.config.ReadYourWrites;
 import com.hyperativa.crud.domain.model.Card;
-import com.hyperativa.crud.domain.repository.CardRepository;
-import com.hyperativa.crud.exception.FileProcessingException;
-import com.hyperativa.crud.exception.HashGenerationException;
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.model.CardNumbers;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import com.hyperativa.crud.exception.InvalidCardNumberException;
+import com.hyperativa.crud.security.CardCipher;
+import com.hyperativa.crud.security.CardHasher;
+import com.hyperativa.crud.service.CardMetrics.RepositoryOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.encrypt.Encryptors;
-import org.springframework.security.crypto.encrypt.TextEncryptor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CardService {
 
-    private final CardRepository cardRepository;
+    private static final String INVALID_CARD_NUMBER = "Número do cartão inválido";
 
-    @Value("${api.security.token.secret}")
-    private String secret;
+    private final CardBatchRepository cardBatchRepository;
+    private final CardHasher cardHasher;
+    private final CardCipher cardCipher;
+    private final CardBloomFilter cardBloomFilter;
+    private final CardIdIndex cardIdIndex;
+    private final ExecutorService cardIngestExecutor;
+    private final ReadYourWrites readYourWrites;
+    private final CardMetrics cardMetrics;
 
-    private TextEncryptor getEncryptor() {
-        return Encryptors.text(secret, "deadbeef"); 
-    }
+    @Value("${api.cards.lookup.in-clause-size:1000}")
+    private int inClauseSize;
+
+    // desligado por padrão: números sem dígito verificador válido eram aceitos antes da validação
+    @Value("${api.cards.validation.luhn-check:false}")
+    private boolean luhnCheck;
 
+    /**
+     * Cadastra o número normalizado (sem espaços e hífens), o mesmo que a importação grava para a mesma linha.
+     *
+     * @throws InvalidCardNumberException se o número tiver outros caracteres, tamanho fora de 13 a 19 dígitos ou,
+     *                                    com {@code api.cards.validation.luhn-check}, dígito verificador inválido
+     */
     public Long saveCard(String cardNumber) {
-        String hash = hashCardNumber(cardNumber);
-        Optional<Card> existing = cardRepository.findByCardNumberHash(hash);
+        String normalized = CardNumbers.normalize(cardNumber);
+        if (normalized == null || luhnCheck && !CardNumbers.isLuhnValid(normalized)) {
+            cardMetrics.ingested(0, 0, 1);
+            throw new InvalidCardNumberException(INVALID_CARD_NUMBER);
+        }
+        CardHash hash = hashCardNumber(normalized);
+        Optional<Long> existing = cardIdIndex.find(hash);
         if (existing.isPresent()) {
-            return existing.get().getId();
+            cardMetrics.ingested(0, 1, 0);
+            return existing.get();
         }
 
-        String encrypted = getEncryptor().encrypt(cardNumber);
+        String encrypted = encrypt(normalized);
         Card card = Card.builder()
                 .cardNumberHash(hash)
                 .encryptedCardNumber(encrypted)
                 .build();
-        
-        return cardRepository.save(card).getId();
+
+        long id;
+        long start = System.nanoTime();
+        try {
+            id = cardBatchRepository.upsert(card);
+        } finally {
+            cardMetrics.repository(RepositoryOperation.UPSERT, start);
+        }
+        boolean inserted = card.getId() != null && card.getId() == id;
+        cardMetrics.ingested(inserted ? 1 : 0, inserted ? 0 : 1, 0);
+        readYourWrites.markWrite();
+        cardBloomFilter.put(hash);
+        cardIdIndex.put(hash, id);
+        return id;
     }
 
-    public Long processFile(MultipartFile file) {
-        long count = 0;
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.isBlank()) {
-                    saveCard(line.trim());
-                    count++;
-                }
+    public List<CardIngestResult> ingest(List<String> lines) {
+        return ingest(CardNumberBatch.of(lines, luhnCheck));
+    }
+
+    /**
+     * Ingestão de um lote já normalizado: as entradas inválidas são rejeitadas sem hash nem acesso ao banco, e o
+     * hash e a cifra leem os dígitos direto do buffer do lote.
+     */
+    public List<CardIngestResult> ingest(CardNumberBatch batch) {
+        CardIngestResult[] results = new CardIngestResult[batch.size()];
+        List<Integer> accepted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isValid(i)) {
+                accepted.add(i);
+            } else {
+                results[i] = CardIngestResult.rejected(INVALID_CARD_NUMBER);
             }
-        } catch (Exception e) {
-            log.error("Erro ao processar arquivo TXT", e);
-            throw new FileProcessingException("Falha ao processar arquivo");
         }
-        return count;
+        if (accepted.isEmpty()) {
+            cardMetrics.ingested(0, 0, batch.size());
+            return Arrays.asList(results);
+        }
+
+        List<CardHash> hashes = mapParallel(accepted, entry -> hashCardNumber(batch, entry)).join();
+        Map<CardHash, Integer> entriesByHash = new LinkedHashMap<>();
+        for (int i = 0; i < hashes.size(); i++) {
+            entriesByHash.putIfAbsent(hashes.get(i), accepted.get(i));
+        }
+
+        Map<CardHash, Long> ids = findIds(entriesByHash.keySet());
+        Set<CardHash> existing = new HashSet<>(ids.keySet());
+        List<Map.Entry<CardHash, Integer>> missing = entriesByHash.entrySet().stream()
+                .filter(entry -> !existing.contains(entry.getKey()))
+                .toList();
+        List<Card> cards = mapParallel(missing, entry -> Card.builder()
+                .cardNumberHash(entry.getKey())
+                .encryptedCardNumber(encrypt(batch, entry.getValue()))
+                .build()).join();
+        Map<CardHash, Long> upserted;
+        long start = System.nanoTime();
+        try {
+            upserted = cardBatchRepository.upsertAll(cards);
+        } finally {
+            cardMetrics.repository(RepositoryOperation.UPSERT_ALL, start);
+        }
+        for (Card card : cards) {
+            CardHash hash = card.getCardNumberHash();
+            Long id = upserted.get(hash);
+            if (!id.equals(card.getId())) {
+                // inserido por outra requisição entre a consulta e o INSERT
+                existing.add(hash);
+            }
+            ids.put(hash, id);
+            cardBloomFilter.put(hash);
+            cardIdIndex.put(hash, id);
+        }
+
+        Set<CardHash> seen = new HashSet<>();
+        int inserted = 0;
+        for (int i = 0; i < hashes.size(); i++) {
+            CardHash hash = hashes.get(i);
+            Long id = ids.get(hash);
+            if (!existing.contains(hash) && seen.add(hash)) {
+                results[accepted.get(i)] = CardIngestResult.inserted(id);
+                inserted++;
+            } else {
+                results[accepted.get(i)] = CardIngestResult.duplicate(id);
+            }
+        }
+        cardMetrics.ingested(inserted, hashes.size() - inserted, batch.size() - hashes.size());
+        return Arrays.asList(results);
     }
 
-    public Optional<Long> findCardId(String cardNumber) {
-        String hash = hashCardNumber(cardNumber);
-        return cardRepository.findByCardNumberHash(hash).map(Card::getId);
+    /**
+     * Consulta em lote: retorna o id (ou {@code null}) de cada número na ordem recebida. Os hashes são calculados
+     * em paralelo e os que não se resolvem em memória são buscados com consultas {@code IN}.
+     */
+    public List<Long> findCardIds(List<String> cardNumbers) {
+        List<CardHash> hashes = mapParallel(cardNumbers, cardNumber -> {
+            String normalized = CardNumbers.normalize(cardNumber);
+            return normalized == null ? null : hashCardNumber(normalized);
+        }).join();
+        Set<CardHash> unique = new LinkedHashSet<>(hashes);
+        unique.remove(null);
+        Map<CardHash, Long> ids = findIds(unique);
+        return hashes.stream().map(hash -> hash == null ? null : ids.get(hash)).toList();
     }
 
-    private String hashCardNumber(String cardNumber) {
+    public Optional<Long> findCardId(String cardNumber) {
+        CardLookup lookup = lookup(cardNumber);
+        if (lookup.resolved()) {
+            return Optional.ofNullable(lookup.id());
+        }
+        CardHash hash = lookup.hash();
+        Optional<Long> id;
+        long start = System.nanoTime();
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash = digest.digest(cardNumber.getBytes());
-            return Base64.getEncoder().encodeToString(encodedhash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new HashGenerationException("Erro ao gerar hash do cartão", e);
+            id = cardBatchRepository.findId(hash);
+        } finally {
+            cardMetrics.repository(RepositoryOperation.FIND_ID, start);
         }
+        id.ifPresent(found -> remember(hash, found));
+        return id;
+    }
+
+    /**
+     * Parte da consulta que não faz I/O: normalização, hash, filtro de Bloom e índice. Compartilhada com a consulta
+     * reativa, que só vai ao banco quando o resultado não está resolvido. Um número que não pode ser de cartão
+     * (caracteres ou tamanho) é resolvido como ausente, sem hash; o Luhn não é verificado, para não esconder cartões
+     * cadastrados antes da validação. Dentro da janela de {@link ReadYourWrites} o descarte do filtro é ignorado: o
+     * cartão pode ter sido cadastrado pelo mesmo cliente em outra instância, ainda não sincronizada com esta.
+     */
+    public CardLookup lookup(String cardNumber) {
+        String normalized = CardNumbers.normalize(cardNumber);
+        if (normalized == null) {
+            return CardLookup.absent(null);
+        }
+        CardHash hash = hashCardNumber(normalized);
+        if (!cardBloomFilter.mightContain(hash) && !readYourWrites.mustReadPrimary()) {
+            return CardLookup.absent(hash);
+        }
+        return cardIdIndex.find(hash)
+                .map(id -> CardLookup.found(hash, id))
+                .orElseGet(() -> CardLookup.unresolved(hash));
+    }
+
+    /**
+     * Registra no índice um id encontrado no banco.
+     */
+    public void remember(CardHash hash, long id) {
+        cardIdIndex.put(hash, id);
+    }
+
+    private Map<CardHash, Long> findIds(Collection<CardHash> hashes) {
+        Map<CardHash, Long> ids = new HashMap<>();
+        List<CardHash> candidates = new ArrayList<>();
+        // ver lookup: dentro da janela de leitura das próprias escritas, o descarte do filtro é ignorado
+        boolean skipFilter = readYourWrites.mustReadPrimary();
+        for (CardHash hash : hashes) {
+            if (skipFilter || cardBloomFilter.mightContain(hash)) {
+                cardIdIndex.find(hash).ifPresentOrElse(id -> ids.put(hash, id), () -> candidates.add(hash));
+            }
+        }
+        for (int from = 0; from < candidates.size(); from += inClauseSize) {
+            List<CardHash> slice = candidates.subList(from, Math.min(from + inClauseSize, candidates.size()));
+            Map<CardHash, Long> found;
+            long start = System.nanoTime();
+            try {
+                found = cardBatchRepository.findIds(slice);
+            } finally {
+                cardMetrics.repository(RepositoryOperation.FIND_IDS, start);
+            }
+            ids.putAll(found);
+            found.forEach(cardIdIndex::put);
+        }
+        return ids;
+    }
+
+    private <T, R> CompletableFuture<List<R>> mapParallel(List<T> items, Function<T, R> mapper) {
+        int sliceSize = Math.max(1, items.size() / Runtime.getRuntime().availableProcessors());
+        List<CompletableFuture<List<R>>> slices = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += sliceSize) {
+            List<T> slice = items.subList(from, Math.min(from + sliceSize, items.size()));
+            slices.add(CompletableFuture.supplyAsync(
+                    () -> slice.stream().map(mapper).toList(), cardIngestExecutor));
+        }
+        return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> slices.stream()
+                        .flatMap(slice -> slice.join().stream())
+                        .toList());
+    }
+
+    private CardHash hashCardNumber(String cardNumber) {
+        long start = System.nanoTime();
+        CardHash hash = new CardHash(cardHasher.hash(cardNumber));
+        cardMetrics.hashed(start);
+        return hash;
+    }
+
+    private CardHash hashCardNumber(CardNumberBatch batch, int entry) {
+        long start = System.nanoTime();
+        CardHash hash = new CardHash(cardHasher.hash(batch.buffer(), batch.offset(entry), batch.length(entry)));
+        cardMetrics.hashed(start);
+        return hash;
+    }
+
+    private String encrypt(String cardNumber) {
+        long start = System.nanoTime();
+        String encrypted = cardCipher.encrypt(cardNumber);
+        cardMetrics.encrypted(start);
+        return encrypted;
+    }
+
+    private String encrypt(CardNumberBatch batch, int entry) {
+        long start = System.nanoTime();
+        String encrypted = cardCipher.encrypt(batch.buffer(), batch.offset(entry), batch.length(entry));
+        cardMetrics.encrypted(start);
+        return encrypted;
     }
 }
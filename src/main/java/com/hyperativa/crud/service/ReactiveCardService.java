@@ -0,0 +1,31 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.repository.ReactiveCardRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versão não bloqueante de {@link CardService#findCardId(String)}: a etapa em memória é a mesma
+ * ({@link CardService#lookup(String)}) e apenas a consulta ao banco passa a ser R2DBC.
+ */
+@Service
+@ConditionalOnProperty(name = "api.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveCardService {
+
+    private final CardService cardService;
+    private final ReactiveCardRepository reactiveCardRepository;
+
+    public Mono<Long> findCardId(String cardNumber) {
+        return Mono.defer(() -> {
+            CardLookup lookup = cardService.lookup(cardNumber);
+            if (lookup.resolved()) {
+                return Mono.justOrEmpty(lookup.id());
+            }
+            return reactiveCardRepository.findIdByCardNumberHash(lookup.hash())
+                    .doOnNext(id -> cardService.remember(lookup.hash(), id));
+        });
+    }
+}
@@ -0,0 +1,340 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.config.ReadYourWrites;
+import com.hyperativa.crud.domain.model.UploadJob;
+import com.hyperativa.crud.domain.model.UploadJobStatus;
+import com.hyperativa.crud.domain.repository.UploadJobRepository;
+import com.hyperativa.crud.dto.UploadJobResponse;
+import com.hyperativa.crud.exception.FileProcessingException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importações em segundo plano, retomáveis a partir do último checkpoint. Com várias instâncias compartilhando o
+ * {@code spool-dir}, cada job tem um dono: a instância que o recebeu (ou retomou) o processa e renova o heartbeat a
+ * cada {@code heartbeat-interval-ms}, inclusive enquanto ele espera na fila. Um job PENDING ou RUNNING sem heartbeat
+ * há mais de {@code stale-after-ms} é assumido, por um UPDATE condicional, por outra instância que enxergue o
+ * arquivo; o dono anterior descobre a perda no heartbeat do lote seguinte (ou no checkpoint, pela versão do job) e
+ * para sem gravar mais nada.
+ * <p>
+ * O heartbeat roda em uma thread própria, e não no agendador compartilhado em que a busca por jobs abandonados é
+ * executada: uma busca lenta (ou outra tarefa agendada) não atrasa o heartbeat a ponto de o job parecer abandonado.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadJobService {
+
+    private static final List<UploadJobStatus> UNFINISHED = List.of(UploadJobStatus.PENDING, UploadJobStatus.RUNNING);
+    private static final String REPORT_HEADER = "line,status,id,error\n";
+
+    private final UploadJobRepository uploadJobRepository;
+    private final CardService cardService;
+    private final ExecutorService uploadJobExecutor;
+    private final CardMetrics cardMetrics;
+    private final ReadYourWrites readYourWrites;
+
+    @Value("${api.cards.upload.spool-dir}")
+    private Path spoolDir;
+
+    @Value("${api.cards.ingest.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${api.cards.upload.stale-after-ms:60000}")
+    private long staleAfterMillis;
+
+    @Value("${api.cards.validation.luhn-check:false}")
+    private boolean luhnCheck;
+
+    @Value("${api.cards.upload.heartbeat-interval-ms:10000}")
+    private long heartbeatIntervalMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+    // jobs desta instância na fila ou em execução, que recebem heartbeat
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService heartbeatExecutor;
+
+    public UploadJobResponse submit(MultipartFile file) {
+        String jobId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(spoolDir);
+            file.transferTo(spoolFile(jobId));
+        } catch (IOException e) {
+            log.error("Erro ao armazenar arquivo TXT", e);
+            throw new FileProcessingException("Falha ao armazenar arquivo");
+        }
+
+        UploadJob job = uploadJobRepository.save(UploadJob.builder()
+                .id(jobId)
+                .filename(Objects.requireNonNullElse(file.getOriginalFilename(), jobId + ".txt"))
+                .status(UploadJobStatus.PENDING)
+                .totalBytes(file.getSize())
+                .owner(owner)
+                .heartbeatAt(LocalDateTime.now())
+                .build());
+        cardMetrics.uploadReceived(file.getSize());
+        readYourWrites.markWrite();
+        schedule(jobId);
+        return toResponse(job);
+    }
+
+    public Optional<UploadJobResponse> findJob(String jobId) {
+        return findOwnedJob(jobId).map(this::toResponse);
+    }
+
+    public Optional<Path> findReport(String jobId) {
+        return findOwnedJob(jobId)
+                .map(job -> reportFile(job.getId()))
+                .filter(Files::exists);
+    }
+
+    public Optional<UploadJobResponse> resume(String jobId) {
+        return findOwnedJob(jobId).map(job -> {
+            if (job.getStatus() == UploadJobStatus.FAILED && uploadJobRepository.claimFailed(jobId, owner) == 1) {
+                readYourWrites.markWrite();
+                schedule(jobId);
+                job = uploadJobRepository.findById(jobId).orElse(job);
+            }
+            return toResponse(job);
+        });
+    }
+
+    /**
+     * Assume os jobs interrompidos: na inicialização e, depois, periodicamente, para os jobs de uma instância que
+     * parou de dar sinal enquanto as demais continuam no ar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${api.cards.upload.heartbeat-interval-ms:10000}",
+            fixedDelayString = "${api.cards.upload.heartbeat-interval-ms:10000}")
+    public void resumeInterruptedJobs() {
+        for (UploadJob job : uploadJobRepository.findByStatusIn(UNFINISHED)) {
+            if (!activeJobs.contains(job.getId()) && Files.exists(spoolFile(job.getId()))
+                    && uploadJobRepository.claimStale(job.getId(), owner,
+                    TimeUnit.MILLISECONDS.toMicros(staleAfterMillis)) == 1) {
+                log.info("Retomando job de importação {} a partir do byte {}", job.getId(), job.getProcessedBytes());
+                schedule(job.getId());
+            }
+        }
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("upload-job-heartbeat-");
+        threadFactory.setDaemon(true);
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMillis, heartbeatIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopHeartbeat() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+    }
+
+    public void heartbeat() {
+        for (String jobId : activeJobs) {
+            try {
+                if (uploadJobRepository.heartbeat(jobId, owner) == 0) {
+                    log.warn("Job de importação {} assumido por outra instância", jobId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Erro ao renovar o heartbeat do job de importação {}", jobId, e);
+            }
+        }
+    }
+
+    private void schedule(String jobId) {
+        activeJobs.add(jobId);
+        uploadJobExecutor.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                activeJobs.remove(jobId);
+            }
+        });
+    }
+
+    private void run(String jobId) {
+        UploadJob job = uploadJobRepository.findById(jobId).orElse(null);
+        if (job == null || !owner.equals(job.getOwner()) || !UNFINISHED.contains(job.getStatus())) {
+            return;
+        }
+        job.setStatus(UploadJobStatus.RUNNING);
+        job.setFinishedAt(null);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        job.setRunStartedAt(LocalDateTime.now());
+        job.setRunStartLines(job.getLinesProcessed());
+        job.setRunStartBytes(job.getProcessedBytes());
+        try {
+            job = uploadJobRepository.save(job);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("Job de importação {} assumido por outra instância antes de começar", jobId);
+            return;
+        }
+        long runStart = System.nanoTime();
+        long linesBeforeRun = job.getLinesProcessed();
+
+        try (FileChannel input = FileChannel.open(spoolFile(jobId), StandardOpenOption.READ);
+             FileChannel report = FileChannel.open(reportFile(jobId), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            report.truncate(job.getReportBytes());
+            report.position(job.getReportBytes());
+            if (job.getReportBytes() == 0) {
+                report.write(ByteBuffer.wrap(REPORT_HEADER.getBytes(StandardCharsets.UTF_8)));
+            }
+
+            CardFileParser parser = new CardFileParser(input, job.getProcessedBytes(), luhnCheck);
+            CardNumberBatch batch = new CardNumberBatch(chunkSize);
+            long[] lineNumbers = new long[chunkSize];
+            long lineNumber = job.getLinesProcessed();
+            boolean eof = false;
+            while (!eof) {
+                while (!batch.isFull()) {
+                    int length = parser.nextLine(batch.buffer(), batch.nextOffset());
+                    if (length == CardFileParser.EOF) {
+                        break;
+                    }
+                    lineNumber++;
+                    if (length != CardFileParser.BLANK) {
+                        lineNumbers[batch.size()] = lineNumber;
+                        batch.append(length);
+                    }
+                }
+                eof = !batch.isFull();
+
+                List<CardIngestResult> results = batch.isEmpty() ? List.of() : cardService.ingest(batch);
+                // o relatório só é escrito por quem ainda é dono: o novo dono o trunca no próprio checkpoint
+                if (uploadJobRepository.heartbeat(jobId, owner) == 0) {
+                    log.warn("Job de importação {} assumido por outra instância; interrompido na linha {}",
+                            jobId, job.getLinesProcessed() + 1);
+                    return;
+                }
+                // contadores só entram no job junto com o checkpoint, para uma falha no meio do lote não contá-lo
+                // de novo na retomada
+                int[] outcomes = writeReport(report, lineNumbers, results);
+                job.setInserted(job.getInserted() + outcomes[CardIngestResult.Outcome.INSERTED.ordinal()]);
+                job.setDuplicates(job.getDuplicates() + outcomes[CardIngestResult.Outcome.DUPLICATE.ordinal()]);
+                job.setRejected(job.getRejected() + outcomes[CardIngestResult.Outcome.REJECTED.ordinal()]);
+                job.setProcessedBytes(parser.position());
+                job.setLinesProcessed(lineNumber);
+                job.setReportBytes(report.position());
+                job = uploadJobRepository.save(job);
+
+                batch.clear();
+            }
+            job.setStatus(UploadJobStatus.COMPLETED);
+            cardMetrics.uploadCompleted(job.getLinesProcessed(), job.getLinesProcessed() - linesBeforeRun,
+                    Duration.ofNanos(System.nanoTime() - runStart));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("Job de importação {} assumido por outra instância; interrompido na linha {}",
+                    jobId, job.getLinesProcessed() + 1);
+            return;
+        } catch (Exception e) {
+            log.error("Erro ao processar arquivo TXT do job {}", jobId, e);
+            job.setStatus(UploadJobStatus.FAILED);
+            job.setErrorMessage("Falha ao processar arquivo na linha " + (job.getLinesProcessed() + 1));
+        }
+        job.setFinishedAt(LocalDateTime.now());
+        try {
+            uploadJobRepository.save(job);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("Job de importação {} assumido por outra instância ao terminar", jobId);
+        }
+    }
+
+    /**
+     * Grava as linhas do lote no relatório.
+     *
+     * @return a quantidade de resultados por {@link CardIngestResult.Outcome}, indexada pelo ordinal
+     */
+    private int[] writeReport(FileChannel report, long[] lineNumbers, List<CardIngestResult> results)
+            throws IOException {
+        int[] outcomes = new int[CardIngestResult.Outcome.values().length];
+        StringBuilder csv = new StringBuilder(results.size() * 32);
+        for (int i = 0; i < results.size(); i++) {
+            CardIngestResult result = results.get(i);
+            outcomes[result.outcome().ordinal()]++;
+            csv.append(lineNumbers[i]).append(',')
+                    .append(result.outcome()).append(',')
+                    .append(result.id() != null ? result.id() : "").append(',')
+                    .append(result.error() != null ? result.error() : "").append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(csv.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            report.write(buffer);
+        }
+        return outcomes;
+    }
+
+    private Optional<UploadJob> findOwnedJob(String jobId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = authentication != null ? authentication.getName() : null;
+        return uploadJobRepository.findById(jobId)
+                .filter(job -> Objects.equals(job.getCreatedBy(), user));
+    }
+
+    /**
+     * Vazão e estimativa da execução atual (ou da última), sem o tempo parado nem as linhas de execuções anteriores.
+     */
+    private UploadJobResponse toResponse(UploadJob job) {
+        double rowsPerSecond = 0;
+        Long etaSeconds = null;
+        if (job.getRunStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            long elapsedMillis = Math.max(1, Duration.between(job.getRunStartedAt(), end).toMillis());
+            rowsPerSecond = (job.getLinesProcessed() - job.getRunStartLines()) * 1000.0 / elapsedMillis;
+            long runBytes = job.getProcessedBytes() - job.getRunStartBytes();
+            if (job.getStatus() == UploadJobStatus.RUNNING && runBytes > 0) {
+                double bytesPerMilli = (double) runBytes / elapsedMillis;
+                etaSeconds = (long) ((job.getTotalBytes() - job.getProcessedBytes()) / bytesPerMilli / 1000);
+            }
+        }
+        return new UploadJobResponse(job.getId(), job.getStatus(), job.getFilename(), job.getTotalBytes(),
+                job.getProcessedBytes(), job.getLinesProcessed(), job.getInserted(), job.getDuplicates(),
+                job.getRejected(), rowsPerSecond, etaSeconds, job.getStartedAt(), job.getFinishedAt(),
+                job.getErrorMessage());
+    }
+
+    private Path spoolFile(String jobId) {
+        return spoolDir.resolve(jobId + ".txt");
+    }
+
+    private Path reportFile(String jobId) {
+        return spoolDir.resolve(jobId + ".report.csv");
+    }
+}
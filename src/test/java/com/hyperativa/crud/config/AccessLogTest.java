@@ -0,0 +1,135 @@
+package com.hyperativa.crud.config;
+
+import com.hyperativa.crud.security.SecurityFilter;
+import jakarta.servlet.http.HttpServlet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    @DisplayName("Deve gravar uma linha JSON por entrada, com os textos escapados")
+    void writesJsonLines() {
+        AccessLog accessLog = new AccessLog(out, 16);
+        accessLog.start();
+
+        accessLog.offer(0, "GET", "/cards/exists", 200, "joao", 183_250, 0.25);
+        accessLog.offer(1000, "POST", "/cards/\"x\"", 500, null, 42, 1);
+        accessLog.close();
+
+        assertThat(lines()).containsExactly(
+                "{\"ts\":\"1970-01-01T00:00:00Z\",\"method\":\"GET\",\"path\":\"/cards/exists\",\"status\":200,"
+                        + "\"user\":\"joao\",\"durationNs\":183250,\"sampleRate\":0.25}",
+                "{\"ts\":\"1970-01-01T00:00:01Z\",\"method\":\"POST\",\"path\":\"/cards/\\\"x\\\"\",\"status\":500,"
+                        + "\"user\":null,\"durationNs\":42}");
+    }
+
+    @Test
+    @DisplayName("Deve descartar e contar as entradas com o buffer cheio, sem bloquear")
+    void dropsWhenFull() {
+        AccessLog accessLog = new AccessLog(out, 4);
+
+        for (int i = 0; i < 6; i++) {
+            accessLog.offer(0, "GET", "/" + i, 200, "u", i, 1);
+        }
+        assertThat(accessLog.dropped()).isEqualTo(2);
+        assertThat(accessLog.drain()).isEqualTo(4);
+        assertThat(accessLog.offer(0, "GET", "/6", 200, "u", 6, 1)).isTrue();
+        accessLog.start();
+        accessLog.close();
+
+        assertThat(lines()).hasSize(5).last().asString().contains("\"path\":\"/6\"");
+    }
+
+    @Test
+    @DisplayName("Deve gravar todas as entradas de várias threads, sem perder nem repetir")
+    void concurrentProducers() throws Exception {
+        AccessLog accessLog = new AccessLog(out, 1 << 16);
+        accessLog.start();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    accessLog.offer(0, "GET", "/" + thread + "/" + i, 200, "u", i, 1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        accessLog.close();
+
+        assertThat(lines()).hasSize(8000).doesNotHaveDuplicates();
+        assertThat(accessLog.dropped()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve registrar sempre erros e requisições lentas e amostrar as respostas de sucesso e 404")
+    void filterSampling() throws Exception {
+        AccessLog accessLog = new AccessLog(out, 16);
+        accessLog.start();
+        AccessLogFilter neverSampled = new AccessLogFilter(accessLog, 0, Duration.ofMinutes(1));
+        AccessLogFilter slow = new AccessLogFilter(accessLog, 0, Duration.ZERO);
+
+        neverSampled.doFilter(request("/ok"), response(200), new MockFilterChain());
+        neverSampled.doFilter(request("/missing"), response(404), new MockFilterChain());
+        neverSampled.doFilter(request("/denied"), response(403), new MockFilterChain());
+        neverSampled.doFilter(request("/error"), response(500), new MockFilterChain());
+        slow.doFilter(request("/slow"), response(200), new MockFilterChain());
+        new AccessLogFilter(accessLog, 1, Duration.ofMinutes(1))
+                .doFilter(request("/all"), response(200), new MockFilterChain());
+        accessLog.close();
+
+        assertThat(lines()).extracting(line -> line.replaceAll(".*\"path\":\"([^\"]*)\".*", "$1"))
+                .containsExactly("/denied", "/error", "/slow", "/all");
+        assertThat(lines()).allMatch(line -> line.contains("\"user\":\"anonymous\"") && !line.contains("sampleRate"));
+    }
+
+    @Test
+    @DisplayName("Deve registrar o usuário marcado na requisição pelo SecurityFilter")
+    void filterUsesAuthenticatedUsername() throws Exception {
+        AccessLog accessLog = new AccessLog(out, 16);
+        accessLog.start();
+        AccessLogFilter filter = new AccessLogFilter(accessLog, 1, Duration.ofMinutes(1));
+
+        filter.doFilter(request("/cards"), response(200), new MockFilterChain(new HttpServlet() {
+        }, (request, response, chain) -> request.setAttribute(SecurityFilter.USERNAME_ATTRIBUTE, "user")));
+        accessLog.close();
+
+        assertThat(lines()).singleElement().satisfies(line -> assertThat(line).contains("\"user\":\"user\""));
+    }
+
+    private List<String> lines() {
+        String content = out.toString(StandardCharsets.UTF_8);
+        return content.isEmpty() ? List.of() : List.of(content.split("\n"));
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        return new MockHttpServletRequest("GET", path);
+    }
+
+    private static MockHttpServletResponse response(int status) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        return response;
+    }
+}
@@ -0,0 +1,196 @@
+package com.hyperativa.crud.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Primário e réplicas simulados por {@code DataSource}s falsos, cada um com a própria conexão; o atraso medido de
+ * cada réplica vem de {@link #lags} (réplica ausente do mapa = inacessível).
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final List<String> REPLICA_URLS = List.of("jdbc:mysql://replica-0/hyperativa");
+
+    private final Map<Connection, String> owners = new HashMap<>();
+    private final Map<String, OptionalLong> lags = new HashMap<>();
+    private final ReadYourWrites readYourWrites =
+            new ReadYourWrites(REPLICA_URLS, Duration.ofMinutes(1), Duration.ofSeconds(2), 1000);
+
+    private ReplicaRoutingDataSource routing;
+    private LazyConnectionDataSourceProxy dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", dataSource("replica-0"));
+        replicas.put("replica-1", dataSource("replica-1"));
+        routing = new ReplicaRoutingDataSource(dataSource("primary"), replicas, Duration.ofSeconds(2),
+                replica -> {
+                    OptionalLong lag = lags.get(owners.get(replica.getConnection()));
+                    if (lag == null) {
+                        throw new SQLException("Réplica inacessível");
+                    }
+                    return lag;
+                }, readYourWrites);
+        routing.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+        dataSource.setDefaultAutoCommit(false);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        lags.put("replica-0", OptionalLong.of(0));
+        lags.put("replica-1", OptionalLong.of(1));
+        routing.checkReplicaLag();
+    }
+
+    @AfterEach
+    void clearContext() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("Deve enviar transações somente leitura às réplicas em rodízio e escritas ao primário")
+    void routesByTransactionType() {
+        assertThat(connectionSource(false)).isEqualTo("primary");
+        assertThat(connectionSource(true)).isEqualTo("replica-0");
+        assertThat(connectionSource(true)).isEqualTo("replica-1");
+        assertThat(connectionSource(true)).isEqualTo("replica-0");
+    }
+
+    @Test
+    @DisplayName("Deve retirar das leituras a réplica atrasada, parada ou inacessível e voltar ao primário sem réplicas")
+    void excludesLaggingReplicas() {
+        lags.put("replica-0", OptionalLong.of(30));
+        routing.checkReplicaLag();
+
+        assertThat(routing.availableReplicas()).containsExactly("replica-1");
+        assertThat(connectionSource(true)).isEqualTo("replica-1");
+
+        lags.put("replica-1", OptionalLong.empty());
+        lags.remove("replica-0");
+        routing.checkReplicaLag();
+
+        assertThat(routing.availableReplicas()).isEmpty();
+        assertThat(connectionSource(true)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Deve devolver a réplica às leituras quando o atraso voltar ao limite")
+    void replicaRecovers() {
+        lags.put("replica-0", OptionalLong.of(30));
+        routing.checkReplicaLag();
+        lags.put("replica-0", OptionalLong.of(2));
+        routing.checkReplicaLag();
+
+        assertThat(routing.availableReplicas()).containsExactly("replica-0", "replica-1");
+    }
+
+    @Test
+    @DisplayName("Deve recusar uma janela de leitura das próprias escritas menor que o atraso tolerado das réplicas")
+    void rejectsWindowShorterThanMaxLag() {
+        assertThatThrownBy(() -> new ReadYourWrites(REPLICA_URLS, Duration.ofSeconds(2), Duration.ofSeconds(5), 1000))
+                .isInstanceOf(IllegalStateException.class);
+        new ReadYourWrites(REPLICA_URLS, Duration.ofSeconds(6), Duration.ofSeconds(5), 1000);
+        new ReadYourWrites(REPLICA_URLS, Duration.ZERO, Duration.ofSeconds(5), 1000);
+    }
+
+    @Test
+    @DisplayName("Não deve validar a janela de leitura das próprias escritas sem réplicas configuradas")
+    void acceptsShortWindowWithoutReplicas() {
+        new ReadYourWrites(List.of(), Duration.ofSeconds(2), Duration.ofSeconds(5), 1000);
+        new ReadYourWrites(List.of(""), Duration.ofSeconds(2), Duration.ofSeconds(5), 1000);
+    }
+
+    @Test
+    @DisplayName("Deve ler do primário logo após uma escrita do mesmo cliente, em qualquer instância")
+    void readYourWrites() {
+        MockHttpServletResponse write = inRequest(new MockHttpServletRequest());
+        readYourWrites.markWrite();
+        assertThat(connectionSource(true)).isEqualTo("primary");
+
+        String until = write.getHeader(ReadYourWrites.HEADER);
+        assertThat(until).isNotNull();
+        assertThat(write.getCookie(ReadYourWrites.COOKIE).getValue()).isEqualTo(until);
+
+        MockHttpServletRequest withCookie = new MockHttpServletRequest();
+        withCookie.setCookies(new Cookie(ReadYourWrites.COOKIE, until));
+        inRequest(withCookie);
+        assertThat(connectionSource(true)).isEqualTo("primary");
+
+        MockHttpServletRequest withHeader = new MockHttpServletRequest();
+        withHeader.addHeader(ReadYourWrites.HEADER, until);
+        inRequest(withHeader);
+        assertThat(connectionSource(true)).isEqualTo("primary");
+
+        inRequest(new MockHttpServletRequest());
+        assertThat(connectionSource(true)).isEqualTo("replica-0");
+    }
+
+    @Test
+    @DisplayName("Deve ignorar marcas de escrita vencidas ou além de uma janela no futuro")
+    void ignoresOutOfWindowMarks() {
+        MockHttpServletRequest expired = new MockHttpServletRequest();
+        expired.addHeader(ReadYourWrites.HEADER, System.currentTimeMillis() - 1);
+        inRequest(expired);
+        assertThat(connectionSource(true)).isEqualTo("replica-0");
+
+        MockHttpServletRequest forged = new MockHttpServletRequest();
+        forged.addHeader(ReadYourWrites.HEADER, System.currentTimeMillis() + Duration.ofDays(1).toMillis());
+        inRequest(forged);
+        assertThat(connectionSource(true)).isEqualTo("replica-1");
+
+        RequestContextHolder.resetRequestAttributes();
+        readYourWrites.markWrite();
+        assertThat(connectionSource(true)).isEqualTo("replica-0");
+    }
+
+    private static MockHttpServletResponse inRequest(MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        return response;
+    }
+
+    /**
+     * Abre uma transação como o JPA faz (a conexão é pedida antes de a transação ser marcada como somente leitura)
+     * e retorna de qual {@code DataSource} veio a conexão usada no primeiro comando.
+     */
+    private String connectionSource(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                owners.get(((ConnectionProxy) DataSourceUtils.getConnection(dataSource)).getTargetConnection()));
+    }
+
+    private DataSource dataSource(String name) throws SQLException {
+        Connection connection = mock(Connection.class);
+        owners.put(connection, name);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
@@ -1,9 +1,13 @@
 package com.hyperativa.crud.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyperativa.crud.config.ReadYourWrites;
 import com.hyperativa.crud.domain.model.User;
 import com.hyperativa.crud.domain.repository.UserRepository;
 import com.hyperativa.crud.dto.LoginRequest;
+import com.hyperativa.crud.dto.RefreshTokenRequest;
+import com.hyperativa.crud.exception.TokenException;
+import com.hyperativa.crud.security.RefreshTokenService;
 import com.hyperativa.crud.security.TokenService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -18,14 +23,17 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -34,6 +42,7 @@ class AuthControllerTest {
 
     public static final String AUTH_LOGIN = "/auth/login";
     public static final String AUTH_REGISTER = "/auth/register";
+    public static final String AUTH_REFRESH = "/auth/refresh";
     @Autowired
     private MockMvc mockMvc;
 
@@ -52,6 +61,9 @@ class AuthControllerTest {
     @MockBean
     private PasswordEncoder passwordEncoder;
 
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
     @Test
     @DisplayName("POST /auth/login - Deve fazer login com sucesso")
     void loginSuccess() throws Exception {
@@ -61,12 +73,46 @@ class AuthControllerTest {
 
         when(authenticationManager.authenticate(any())).thenReturn(auth);
         when(tokenService.generateToken(any(User.class))).thenReturn("mock-jwt-token");
+        when(refreshTokenService.issue(user)).thenReturn("mock-refresh-token");
 
-        mockMvc.perform(post(AUTH_LOGIN)
+        MvcResult result = mockMvc.perform(post(AUTH_LOGIN)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("mock-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("mock-refresh-token"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/refresh - Deve trocar o refresh token por novos tokens")
+    void refreshSuccess() throws Exception {
+        User user = User.builder().username("user").password("encoded").build();
+
+        when(refreshTokenService.rotate("refresh-antigo"))
+                .thenReturn(new RefreshTokenService.Rotation(user, "refresh-novo"));
+        when(tokenService.generateToken(user)).thenReturn("mock-jwt-token");
+
+        mockMvc.perform(post(AUTH_REFRESH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh-antigo"))))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token").value("mock-jwt-token"));
+                .andExpect(jsonPath("$.token").value("mock-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("refresh-novo"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/refresh - Deve retornar 401 quando refresh token inválido")
+    void refreshUnauthorized() throws Exception {
+        when(refreshTokenService.rotate(anyString())).thenThrow(new TokenException("Refresh token inválido"));
+
+        mockMvc.perform(post(AUTH_REFRESH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("desconhecido"))))
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
@@ -77,9 +123,13 @@ class AuthControllerTest {
         when(authenticationManager.authenticate(any()))
                 .thenThrow(new BadCredentialsException("Invalid credentials"));
 
-        mockMvc.perform(post(AUTH_LOGIN)
+        MvcResult result = mockMvc.perform(post(AUTH_LOGIN)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isUnauthorized());
     }
 
@@ -99,23 +149,38 @@ class AuthControllerTest {
     void registerSuccess() throws Exception {
         LoginRequest request = new LoginRequest("newuser", "password123");
 
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userRepository.existsByUsername(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encoded-password");
         when(userRepository.save(any(User.class))).thenReturn(User.builder().id(1L).build());
 
         mockMvc.perform(post(AUTH_REGISTER)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ReadYourWrites.HEADER));
     }
 
     @Test
     @DisplayName("POST /auth/register - Deve retornar 400 quando usuário já existe")
     void registerUserAlreadyExists() throws Exception {
         LoginRequest request = new LoginRequest("existinguser", "password123");
-        User existingUser = User.builder().username("existinguser").build();
 
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(existingUser));
+        when(userRepository.existsByUsername(anyString())).thenReturn(true);
+
+        mockMvc.perform(post(AUTH_REGISTER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /auth/register - Deve retornar 400 quando um cadastro concorrente grava o mesmo usuário antes")
+    void registerConcurrentDuplicate() throws Exception {
+        LoginRequest request = new LoginRequest("newuser", "password123");
+
+        when(userRepository.existsByUsername(anyString())).thenReturn(false);
+        when(passwordEncoder.encode(anyString())).thenReturn("encoded-password");
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
 
         mockMvc.perform(post(AUTH_REGISTER)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -1,8 +1,14 @@
 package com.hyperativa.crud.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyperativa.crud.domain.model.UploadJobStatus;
+import com.hyperativa.crud.dto.CardExistsBatchRequest;
 import com.hyperativa.crud.dto.CardRequest;
+import com.hyperativa.crud.dto.UploadJobResponse;
+import com.hyperativa.crud.exception.InvalidCardNumberException;
+import com.hyperativa.crud.service.CardExportService;
 import com.hyperativa.crud.service.CardService;
+import com.hyperativa.crud.service.UploadJobService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,14 +20,21 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -31,6 +44,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class CardControllerTest {
 
     public static final String CARD_NUMBER = "1234567890123456";
+    public static final String JOB_ID = "5f0c9a8e-1c2b-4d3e-9f10-2a3b4c5d6e7f";
     @Autowired
     private MockMvc mockMvc;
 
@@ -40,6 +54,12 @@ class CardControllerTest {
     @MockBean
     private CardService cardService;
 
+    @MockBean
+    private UploadJobService uploadJobService;
+
+    @MockBean
+    private CardExportService cardExportService;
+
     @Test
     @DisplayName("POST /cards - Deve criar um cartão com sucesso")
     void createCardSuccess() throws Exception {
@@ -65,7 +85,20 @@ class CardControllerTest {
     }
 
     @Test
-    @DisplayName("POST /cards/upload - Deve fazer upload de arquivo com sucesso")
+    @DisplayName("POST /cards - Deve retornar erro 400 quando o dígito verificador for inválido")
+    void createCardInvalidLuhn() throws Exception {
+        CardRequest request = new CardRequest("4111 1111 1111 1112");
+        when(cardService.saveCard(anyString())).thenThrow(new InvalidCardNumberException("Número do cartão inválido"));
+
+        mockMvc.perform(post("/cards")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Número do cartão inválido"));
+    }
+
+    @Test
+    @DisplayName("POST /cards/upload - Deve aceitar o arquivo e retornar o job de importação")
     void uploadFileSuccess() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -73,11 +106,33 @@ class CardControllerTest {
                 "text/plain",
                 "1234567890123456\n9876543210987654".getBytes()
         );
-        when(cardService.processFile(any())).thenReturn(2L);
+        when(uploadJobService.submit(any())).thenReturn(job(UploadJobStatus.PENDING));
 
         mockMvc.perform(multipart("/cards/upload").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/cards/upload/" + JOB_ID))
+                .andExpect(jsonPath("$.jobId").value(JOB_ID))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @DisplayName("GET /cards/upload/{jobId} - Deve retornar o andamento do job")
+    void uploadStatusFound() throws Exception {
+        when(uploadJobService.findJob(JOB_ID)).thenReturn(Optional.of(job(UploadJobStatus.COMPLETED)));
+
+        mockMvc.perform(get("/cards/upload/" + JOB_ID))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").value("Registros processados: 2"));
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.inserted").value(2));
+    }
+
+    @Test
+    @DisplayName("GET /cards/upload/{jobId} - Deve retornar 404 quando job não existe")
+    void uploadStatusNotFound() throws Exception {
+        when(uploadJobService.findJob(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/cards/upload/" + JOB_ID))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -100,4 +155,65 @@ class CardControllerTest {
                         .param("number", CARD_NUMBER))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    @DisplayName("POST /cards/exists/batch - Deve retornar o id ou null de cada cartão na ordem recebida")
+    void existsBatch() throws Exception {
+        List<String> cardNumbers = List.of(CARD_NUMBER, "9999999999999999");
+        when(cardService.findCardIds(cardNumbers)).thenReturn(Arrays.asList(5L, null));
+
+        mockMvc.perform(post("/cards/exists/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardExistsBatchRequest(cardNumbers))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids[0]").value(5L))
+                .andExpect(jsonPath("$.ids[1]").isEmpty());
+    }
+
+    @Test
+    @DisplayName("POST /cards/exists/batch - Deve responder uma linha NDJSON por cartão")
+    void existsBatchNdjson() throws Exception {
+        when(cardService.findCardIds(Arrays.asList(CARD_NUMBER, "9999999999999999", null)))
+                .thenReturn(Arrays.asList(5L, null, null));
+
+        mockMvc.perform(post("/cards/exists/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("\"" + CARD_NUMBER + "\"\n{\"cardNumber\":\"9999999999999999\"}\n\nnão é json\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"id\":5}\n{\"id\":null}\n{\"id\":null}\n"));
+    }
+
+    @Test
+    @DisplayName("GET /cards/export - Deve exportar no formato pedido a partir do id informado")
+    void exportCards() throws Exception {
+        when(cardExportService.export(eq(CardExportService.Format.CSV), eq(10L), any())).thenReturn(0L);
+
+        mockMvc.perform(get("/cards/export").param("format", "CSV").param("afterId", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"));
+    }
+
+    @Test
+    @DisplayName("GET /cards/export/decrypted - Deve retornar 403 sem a permissão CARD_DECRYPT")
+    void exportDecryptedForbidden() throws Exception {
+        mockMvc.perform(get("/cards/export/decrypted"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(cardExportService);
+    }
+
+    @Test
+    @WithMockUser(authorities = "CARD_DECRYPT")
+    @DisplayName("GET /cards/export/decrypted - Deve exportar com a permissão CARD_DECRYPT")
+    void exportDecrypted() throws Exception {
+        mockMvc.perform(get("/cards/export/decrypted"))
+                .andExpect(status().isOk());
+
+        verify(cardExportService).exportDecrypted(eq(CardExportService.Format.NDJSON), eq(0L), any());
+    }
+
+    private UploadJobResponse job(UploadJobStatus status) {
+        return new UploadJobResponse(JOB_ID, status, "test.txt", 34, 34, 2, 2, 0, 0,
+                0, null, null, null, null);
+    }
 }
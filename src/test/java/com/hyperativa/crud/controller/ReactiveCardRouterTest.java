@@ -0,0 +1,95 @@
+package com.hyperativa.crud.controller;
+
+import com.hyperativa.crud.exception.TokenException;
+import com.hyperativa.crud.security.AuthenticatedUser;
+import com.hyperativa.crud.security.TokenService;
+import com.hyperativa.crud.security.UserCache;
+import com.hyperativa.crud.service.ReactiveCardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCardRouterTest {
+
+    private static final AuthenticatedUser USER = new AuthenticatedUser(1L, "user", List.of());
+
+    @Mock
+    private ReactiveCardService reactiveCardService;
+
+    @Mock
+    private TokenService tokenService;
+
+    @Mock
+    private UserCache userCache;
+
+    @InjectMocks
+    private ReactiveCardRouter reactiveCardRouter;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToRouterFunction(reactiveCardRouter.routes()).build();
+    }
+
+    @Test
+    @DisplayName("GET /cards/exists - Deve retornar o id do cartão encontrado")
+    void existsFound() {
+        when(tokenService.extractUser("token")).thenReturn(USER);
+        when(reactiveCardService.findCardId("4456897999999999")).thenReturn(Mono.just(1L));
+
+        client.get().uri("/cards/exists?number=4456897999999999")
+                .header("Authorization", "Bearer token")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /cards/exists - Deve retornar 404 quando o cartão não existe")
+    void existsNotFound() {
+        when(tokenService.extractUser("token")).thenReturn(USER);
+        when(reactiveCardService.findCardId("4456897999999999")).thenReturn(Mono.empty());
+
+        client.get().uri("/cards/exists?number=4456897999999999")
+                .header("Authorization", "Bearer token")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("GET /cards/exists - Deve retornar 401 sem token ou com token inválido")
+    void unauthorized() {
+        when(tokenService.extractUser("invalido")).thenThrow(new TokenException("Token inválido"));
+
+        client.get().uri("/cards/exists?number=4456897999999999").exchange().expectStatus().isUnauthorized();
+        client.get().uri("/cards/exists?number=4456897999999999")
+                .header("Authorization", "Bearer invalido")
+                .exchange()
+                .expectStatus().isUnauthorized();
+        verifyNoInteractions(reactiveCardService);
+    }
+
+    @Test
+    @DisplayName("GET /cards/exists - Deve retornar 400 sem o número do cartão")
+    void missingNumber() {
+        when(tokenService.extractUser("token")).thenReturn(USER);
+
+        client.get().uri("/cards/exists")
+                .header("Authorization", "Bearer token")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,58 @@
+package com.hyperativa.crud.domain.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardNumbersTest {
+
+    @Test
+    @DisplayName("Deve descartar espaços, tabulações e hífens e devolver o número já normalizado sem cópia")
+    void normalizeStripsSeparators() {
+        String normalized = "4111111111111111";
+
+        assertThat(CardNumbers.normalize(" 4111 1111-1111\t1111\r")).isEqualTo(normalized);
+        assertThat(CardNumbers.normalize(normalized)).isSameAs(normalized);
+    }
+
+    @Test
+    @DisplayName("Deve recusar outros caracteres e números fora de 13 a 19 dígitos")
+    void normalizeRejectsInvalidNumbers() {
+        assertThat(CardNumbers.normalize(null)).isNull();
+        assertThat(CardNumbers.normalize("4111 1111 1111 111a")).isNull();
+        assertThat(CardNumbers.normalize("4111.1111.1111.1111")).isNull();
+        assertThat(CardNumbers.normalize("４111111111111111")).isNull();
+        assertThat(CardNumbers.normalize("411111111111")).isNull();
+        assertThat(CardNumbers.normalize("41111111111111111111")).isNull();
+        assertThat(CardNumbers.normalize("4222222222222")).isEqualTo("4222222222222");
+        assertThat(CardNumbers.normalize("4111111111111111110")).isEqualTo("4111111111111111110");
+    }
+
+    @Test
+    @DisplayName("Deve validar o dígito verificador em texto e em bytes")
+    void luhn() {
+        assertThat(CardNumbers.isLuhnValid("4111111111111111")).isTrue();
+        assertThat(CardNumbers.isLuhnValid("5555555555554444")).isTrue();
+        assertThat(CardNumbers.isLuhnValid("4222222222222")).isTrue();
+        assertThat(CardNumbers.isLuhnValid("4111111111111112")).isFalse();
+
+        byte[] bytes = "xx4111111111111111yy".getBytes(StandardCharsets.US_ASCII);
+        assertThat(CardNumbers.isLuhnValid(bytes, 2, 16)).isTrue();
+        assertThat(CardNumbers.isLuhnValid(bytes, 2, 15)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve calcular o dígito verificador que completa o número")
+    void luhnCheckDigit() {
+        assertThat(CardNumbers.luhnCheckDigit("411111111111111")).isEqualTo('1');
+        assertThat(CardNumbers.luhnCheckDigit("555555555555444")).isEqualTo('4');
+        assertThat(CardNumbers.luhnCheckDigit("422222222222")).isEqualTo('2');
+        for (long i = 0; i < 100; i++) {
+            String digits = "4" + (4_000_000_000_000L + i);
+            assertThat(CardNumbers.isLuhnValid(digits + CardNumbers.luhnCheckDigit(digits))).isTrue();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.hyperativa.crud.domain.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = Instant.parse("2026-10-17T12:00:00Z").toEpochMilli();
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    @Test
+    @DisplayName("Deve gerar ids crescentes com o nó nos bits do meio e dentro do inteiro seguro do JavaScript")
+    void idsAreIncreasingAndCarryNode() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, () -> NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertThat(second).isGreaterThan(first);
+        assertThat((first >>> 8) & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(5);
+        assertThat((second >>> 8) & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(5);
+        assertThat(first).isLessThan(MAX_SAFE_INTEGER);
+    }
+
+    @Test
+    @DisplayName("Deve avançar o milissegundo lógico quando a sequência esgota ou o relógio volta, dentro do limite")
+    void sequenceOverflowAndClockBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 10, () -> true, clock::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 200 == 0) {
+                clock.addAndGet(1);
+            }
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+        clock.addAndGet(-1);
+        assertThat(generator.nextId()).isGreaterThan(previous);
+    }
+
+    @Test
+    @DisplayName("Deve esperar o relógio quando o timestamp lógico chega ao avanço máximo")
+    void blocksWhenLeadExceeded() throws Exception {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 2, () -> true, clock::get);
+        for (int i = 0; i < 256; i++) {
+            generator.nextId();
+        }
+
+        CompletableFuture<Long> next = CompletableFuture.supplyAsync(generator::nextId);
+
+        assertThatThrownBy(() -> next.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        clock.addAndGet(1);
+        assertThat(next.get(5, TimeUnit.SECONDS) >>> 12).isEqualTo(NOW + 3 - EPOCH);
+    }
+
+    @Test
+    @DisplayName("Deve começar acima dos ids que o mesmo nó pode ter emitido antes de reiniciar")
+    void restartStartsAboveLead() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator before = new SnowflakeIdGenerator(3, 5, () -> true, clock::get);
+        long last = 0;
+        for (int i = 0; i < 256; i++) {
+            last = before.nextId();
+        }
+
+        clock.addAndGet(1);
+        SnowflakeIdGenerator after = new SnowflakeIdGenerator(3, 5, () -> true, clock::get);
+
+        assertThat(after.nextId()).isGreaterThan(last);
+    }
+
+    @Test
+    @DisplayName("Deve recusar ids quando o nó deixou de pertencer à instância")
+    void inactiveNode() {
+        AtomicBoolean active = new AtomicBoolean(true);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2, 1000, active::get, () -> NOW);
+        generator.nextId();
+
+        active.set(false);
+
+        assertThatThrownBy(generator::nextId).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Deve trocar de nó recomeçando a sequência no limite do avanço")
+    void reassignStartsAboveLeadOnNewNode() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, 5, () -> true, clock::get);
+        long before = generator.nextId();
+
+        generator.reassign(7);
+        long after = generator.nextId();
+
+        assertThat(generator.nodeId()).isEqualTo(7);
+        assertThat((after >>> 8) & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(7);
+        assertThat(after >>> 12).isEqualTo(NOW + 5 - EPOCH);
+        assertThat(after).isGreaterThan(before);
+    }
+
+    @Test
+    @DisplayName("Deve gerar ids únicos entre threads concorrentes")
+    void uniqueAcrossThreads() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> ids.add(generator.nextId()));
+
+        assertThat(ids).hasSize(100_000);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar id de nó fora do intervalo")
+    void invalidNode() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
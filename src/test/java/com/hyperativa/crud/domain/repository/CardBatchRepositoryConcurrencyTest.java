@@ -0,0 +1,175 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.Card;
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import com.hyperativa.crud.security.CardHasher;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Insere os mesmos cartões a partir de várias threads ao mesmo tempo em um MySQL real; ignorado sem Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CardBatchRepositoryConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int CARDS = 200;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static CardBatchRepository cardBatchRepository;
+
+    private final CardHasher cardHasher = new CardHasher();
+
+    @BeforeAll
+    static void setUpRepository() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                MYSQL.getJdbcUrl() + "?rewriteBatchedStatements=true", MYSQL.getUsername(), MYSQL.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE cards (id BIGINT NOT NULL PRIMARY KEY, card_hash BINARY(32) UNIQUE, "
+                + "encrypted_card_number VARCHAR(255) NOT NULL, created_at DATETIME(6) NOT NULL, "
+                + "updated_at DATETIME(6), created_by VARCHAR(255), updated_by VARCHAR(255))");
+        CardHashMigration cardHashMigration = new CardHashMigration(jdbcTemplate);
+        cardHashMigration.detectLegacyColumn();
+        CardShardRouter cardShardRouter = new CardShardRouter(
+                List.of(new CardShard(0, new NamedParameterJdbcTemplate(dataSource))), List.of(), null, 5_000, 30_000);
+        cardBatchRepository = new CardBatchRepository(mock(CardRepository.class), () -> Optional.of("test"),
+                cardHashMigration, new SnowflakeIdGenerator(0), cardShardRouter, Executors.newSingleThreadExecutor());
+    }
+
+    @BeforeEach
+    void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE cards");
+    }
+
+    @Test
+    @DisplayName("Deve retornar o mesmo id para o mesmo cartão em upserts unitários concorrentes, sem erro de duplicidade")
+    void concurrentSingleUpserts() throws Exception {
+        Map<CardHash, Long> canonical = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < CARDS; i++) {
+                    CardHash hash = hash(i);
+                    long id = cardBatchRepository.upsert(card(hash));
+                    assertThat(canonical.computeIfAbsent(hash, ignored -> id)).isEqualTo(id);
+                }
+                return null;
+            });
+        }
+
+        runConcurrently(tasks);
+
+        assertThat(count()).isEqualTo(CARDS);
+        assertThat(canonical.values()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Deve retornar ids canônicos em upserts em lote concorrentes com cartões sobrepostos")
+    void concurrentBatchUpserts() throws Exception {
+        Map<CardHash, Long> canonical = new ConcurrentHashMap<>();
+        Map<CardHash, Long> inserted = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * 10;
+            tasks.add(() -> {
+                List<Card> cards = IntStream.range(offset, offset + CARDS / 2).mapToObj(i -> card(hash(i))).toList();
+                Map<CardHash, Long> ids = cardBatchRepository.upsertAll(cards);
+                for (Card card : cards) {
+                    Long id = ids.get(card.getCardNumberHash());
+                    assertThat(canonical.computeIfAbsent(card.getCardNumberHash(), ignored -> id)).isEqualTo(id);
+                    if (id.equals(card.getId())) {
+                        assertThat(inserted.put(card.getCardNumberHash(), id)).isNull();
+                    }
+                }
+                return null;
+            });
+        }
+
+        runConcurrently(tasks);
+
+        int distinct = (THREADS - 1) * 10 + CARDS / 2;
+        assertThat(count()).isEqualTo(distinct);
+        assertThat(canonical).hasSize(distinct).isEqualTo(inserted);
+    }
+
+    @Test
+    @DisplayName("Deve inserir com outro id, sem alterar a linha existente, quando o id já pertence a outro cartão")
+    void idCollisionWithAnotherCard() {
+        Card existing = card(hash(1));
+        long existingId = cardBatchRepository.upsert(existing);
+
+        long single = cardBatchRepository.upsert(Card.builder().id(existingId)
+                .cardNumberHash(hash(2)).encryptedCardNumber("v1:cifrado").build());
+        Card batched = Card.builder().id(existingId).cardNumberHash(hash(3)).encryptedCardNumber("v1:cifrado").build();
+        Map<CardHash, Long> ids = cardBatchRepository.upsertAll(List.of(card(hash(4)), batched));
+
+        assertThat(single).isNotEqualTo(existingId);
+        assertThat(ids.get(hash(3))).isNotEqualTo(existingId).isEqualTo(batched.getId());
+        assertThat(count()).isEqualTo(4);
+        assertThat(idOf(hash(1))).isEqualTo(existingId);
+        assertThat(idOf(hash(2))).isEqualTo(single);
+    }
+
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cards", Long.class);
+    }
+
+    private long idOf(CardHash hash) {
+        return jdbcTemplate.queryForObject("SELECT id FROM cards WHERE card_hash = ?", Long.class, hash.value());
+    }
+
+    private Card card(CardHash hash) {
+        return Card.builder().cardNumberHash(hash).encryptedCardNumber("v1:cifrado").build();
+    }
+
+    private CardHash hash(int i) {
+        return new CardHash(cardHasher.hash(String.valueOf(4_000_000_000_000L + i)));
+    }
+}
@@ -0,0 +1,239 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.Card;
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalMatchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardBatchRepositoryTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardHashMigration cardHashMigration;
+
+    @Mock
+    private NamedParameterJdbcTemplate mainJdbcTemplate;
+
+    @Mock
+    private NamedParameterJdbcTemplate shardJdbcTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private CardShardRouter router;
+    private CardBatchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        router = new CardShardRouter(List.of(new CardShard(0, mainJdbcTemplate), new CardShard(1, shardJdbcTemplate)),
+                List.of(), null, 5_000, 30_000);
+        router.apply(List.of(new CardShardRange(0, 0xFFFF, 0, null)));
+        repository = new CardBatchRepository(cardRepository, () -> Optional.of("test"), cardHashMigration,
+                new SnowflakeIdGenerator(0), router, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Sem shards adicionais, deve buscar pelo CardRepository e pela coluna antiga enquanto a migração não terminar")
+    @SuppressWarnings("unchecked")
+    void findIdWithoutShards() {
+        CardBatchRepository unsharded = new CardBatchRepository(cardRepository, () -> Optional.of("test"),
+                cardHashMigration, new SnowflakeIdGenerator(0),
+                new CardShardRouter(List.of(new CardShard(0, mainJdbcTemplate)), List.of(), null, 5_000, 30_000), executor);
+        CardHash hash = hash(0x10, 1);
+        when(cardRepository.findIdByCardNumberHash(hash)).thenReturn(Optional.empty());
+        when(cardHashMigration.isComplete()).thenReturn(false);
+        when(mainJdbcTemplate.query(anyString(), anyMap(), any(ResultSetExtractor.class))).thenReturn(Optional.of(6L));
+
+        assertThat(unsharded.findId(hash)).contains(6L);
+        verify(shardJdbcTemplate, never()).query(anyString(), anyMap(), any(ResultSetExtractor.class));
+    }
+
+    @Test
+    @DisplayName("Deve gravar no shard de destino, com o mesmo id, enquanto a faixa do hash está sendo movida")
+    void upsertWritesMigrationTarget() {
+        router.apply(List.of(new CardShardRange(0, 0xFFFF, 0, 1)));
+        Card card = Card.builder().cardNumberHash(hash(0x80, 1)).encryptedCardNumber("cifrado").build();
+
+        long id = repository.upsert(card);
+
+        ArgumentCaptor<SqlParameterSource> main = ArgumentCaptor.forClass(SqlParameterSource.class);
+        ArgumentCaptor<SqlParameterSource> target = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(mainJdbcTemplate).update(anyString(), main.capture(), any(KeyHolder.class), any(String[].class));
+        verify(shardJdbcTemplate).update(anyString(), target.capture(), any(KeyHolder.class), any(String[].class));
+        assertThat(main.getValue().getValue("id")).isEqualTo(id);
+        assertThat(target.getValue().getValue("id")).isEqualTo(id);
+        assertThat(target.getValue().getValue("legacyHash")).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve repetir o INSERT sem a coluna antiga quando outra instância já a removeu")
+    void upsertRetriesWithoutDroppedLegacyColumn() {
+        when(cardHashMigration.isLegacyColumnPresent()).thenReturn(true);
+        when(cardHashMigration.recheckLegacyColumn()).thenReturn(false);
+        when(mainJdbcTemplate.update(contains("card_number_hash"), any(SqlParameterSource.class),
+                any(KeyHolder.class), any(String[].class)))
+                .thenThrow(new BadSqlGrammarException("upsert", "INSERT",
+                        new SQLSyntaxErrorException("Unknown column 'card_number_hash'", "42S22", 1054)));
+        Card card = Card.builder().cardNumberHash(hash(0x10, 1)).encryptedCardNumber("cifrado").build();
+
+        long id = repository.upsert(card);
+
+        assertThat(id).isEqualTo(card.getId());
+        verify(mainJdbcTemplate).update(not(contains("card_number_hash")), any(SqlParameterSource.class),
+                any(KeyHolder.class), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Deve repetir o upsert com outro id quando o id gerado já pertence a outro cartão")
+    void upsertRetriesWithNewIdOnIdCollision() {
+        when(mainJdbcTemplate.update(anyString(), any(SqlParameterSource.class), any(KeyHolder.class), any(String[].class)))
+                .thenThrow(idCollision())
+                .thenReturn(1);
+        Card card = Card.builder().id(42L).cardNumberHash(hash(0x10, 1)).encryptedCardNumber("cifrado").build();
+
+        long id = repository.upsert(card);
+
+        assertThat(id).isNotEqualTo(42L).isEqualTo(card.getId());
+        verify(mainJdbcTemplate, times(2)).update(anyString(), any(SqlParameterSource.class), any(KeyHolder.class),
+                any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Deve repetir só os cartões ainda não gravados quando a colisão de id atingir parte do lote")
+    void upsertAllRetriesOnlyUnstoredCardsOnIdCollision() {
+        Card stored = Card.builder().id(1L).cardNumberHash(hash(0x10, 1)).encryptedCardNumber("cifrado").build();
+        Card collided = Card.builder().id(2L).cardNumberHash(hash(0x10, 2)).encryptedCardNumber("cifrado").build();
+        List<List<Object>> batches = new ArrayList<>();
+        when(mainJdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class))).thenAnswer(invocation -> {
+            SqlParameterSource[] batch = invocation.getArgument(1);
+            batches.add(Arrays.stream(batch).map(parameters -> parameters.getValue("id")).toList());
+            if (batches.size() == 1) {
+                // o primeiro comando do lote foi gravado antes de o segundo colidir
+                throw idCollision();
+            }
+            return new int[batch.length];
+        });
+        List<Card> upserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            upserted.add(stored);
+            if (batches.size() > 1) {
+                upserted.add(collided);
+            }
+            for (Card card : upserted) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(card.getId());
+                when(rs.getBytes("card_hash")).thenReturn(card.getCardNumberHash().value());
+                handler.processRow(rs);
+            }
+            upserted.clear();
+            return null;
+        }).when(mainJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        Map<CardHash, Long> ids = repository.upsertAll(List.of(stored, collided));
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0)).containsExactly(1L, 2L);
+        assertThat(batches.get(1)).singleElement().isNotEqualTo(2L).isEqualTo(collided.getId());
+        assertThat(stored.getId()).isEqualTo(1L);
+        assertThat(ids).containsEntry(stored.getCardNumberHash(), 1L)
+                .containsEntry(collided.getCardNumberHash(), collided.getId());
+    }
+
+    @Test
+    @DisplayName("Não deve trocar o id na cópia para o shard de destino, que precisa manter o id da origem")
+    void upsertKeepsIdOnMigrationTarget() {
+        router.apply(List.of(new CardShardRange(0, 0xFFFF, 0, 1)));
+        when(shardJdbcTemplate.update(anyString(), any(SqlParameterSource.class), any(KeyHolder.class), any(String[].class)))
+                .thenThrow(idCollision());
+        Card card = Card.builder().id(42L).cardNumberHash(hash(0x80, 1)).encryptedCardNumber("cifrado").build();
+
+        assertThatThrownBy(() -> repository.upsert(card)).isInstanceOf(DataIntegrityViolationException.class);
+        verify(shardJdbcTemplate).update(anyString(), any(SqlParameterSource.class), any(KeyHolder.class),
+                any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Deve intercalar as páginas dos shards por id, sem repetir linhas presentes nos dois")
+    void forEachHashAfterMergesShards() {
+        when(cardHashMigration.isComplete()).thenReturn(true);
+        rows(mainJdbcTemplate, 2, 5, 9);
+        rows(shardJdbcTemplate, 3, 5, 7);
+        List<Long> ids = new ArrayList<>();
+
+        long lastId = repository.forEachHashAfter(0, 3, (hash, id) -> ids.add(id));
+
+        assertThat(ids).containsExactly(2L, 3L, 5L);
+        assertThat(lastId).isEqualTo(5L);
+    }
+
+    private static DataIntegrityViolationException idCollision() {
+        return new DataIntegrityViolationException("upsert",
+                new SQLIntegrityConstraintViolationException("Column 'id' cannot be null", "23000", 1048));
+    }
+
+    private static void rows(NamedParameterJdbcTemplate jdbcTemplate, long... ids) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (long id : ids) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(id);
+                when(rs.getBytes("hash")).thenReturn(hash((int) id, 0).value());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+    }
+
+    private static CardHash hash(int first, int second) {
+        byte[] value = new byte[CardHash.LENGTH];
+        value[0] = (byte) first;
+        value[1] = (byte) second;
+        return new CardHash(value);
+    }
+}
@@ -0,0 +1,92 @@
+package com.hyperativa.crud.domain.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardHashMigrationTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CardHashMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(migration, "batchSize", 100);
+        ReflectionTestUtils.setField(migration, "refreshIntervalMillis", 1L);
+    }
+
+    @Test
+    @DisplayName("Deve considerar a migração concluída só pela marca do cluster e acompanhar a remoção da coluna")
+    void refreshFollowsClusterState() {
+        when(jdbcTemplate.queryForObject(contains("information_schema"), eq(Integer.class))).thenReturn(1, 1, 1, 1, 0);
+        when(jdbcTemplate.queryForObject(contains("card_hash_migration"), eq(Integer.class))).thenReturn(0, 0, 1);
+
+        migration.detectLegacyColumn();
+        assertThat(migration.isComplete()).isFalse();
+        migration.refresh();
+        assertThat(migration.isComplete()).isFalse();
+
+        migration.refresh();
+        assertThat(migration.isComplete()).isTrue();
+        assertThat(migration.isLegacyColumnPresent()).isTrue();
+
+        assertThat(migration.recheckLegacyColumn()).isFalse();
+        assertThat(migration.isLegacyColumnPresent()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve repetir a varredura até não encontrar pendentes antes de marcar a conclusão e remover a coluna")
+    void backfillRescansBeforeCompletingAndDropping() {
+        ReflectionTestUtils.setField(migration, "dropLegacyColumn", true);
+        // passada inicial, linha gravada por uma instância antiga durante a passada, nova varredura vazia e a
+        // varredura antes da remoção
+        when(jdbcTemplate.queryForObject(contains("MIN(id)"), eq(Long.class), anyLong()))
+                .thenReturn(1L, null, 7L, null, null, null);
+        when(jdbcTemplate.queryForObject(contains("MAX(id)"), eq(Long.class), anyLong(), any()))
+                .thenReturn(5L, 7L);
+        when(jdbcTemplate.update(contains("UPDATE cards"), anyLong(), anyLong())).thenReturn(5, 1);
+
+        migration.backfill();
+
+        assertThat(migration.isComplete()).isTrue();
+        assertThat(migration.isLegacyColumnPresent()).isFalse();
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate, times(2)).update(contains("UPDATE cards"), anyLong(), anyLong());
+        order.verify(jdbcTemplate).update(contains("INSERT IGNORE INTO card_hash_migration"));
+        order.verify(jdbcTemplate).execute(contains("DROP COLUMN"));
+    }
+
+    @Test
+    @DisplayName("Não deve remover a coluna antiga sem drop-legacy-column")
+    void backfillKeepsLegacyColumnByDefault() {
+        when(jdbcTemplate.queryForObject(contains("MIN(id)"), eq(Long.class), anyLong())).thenReturn(null);
+
+        migration.backfill();
+
+        assertThat(migration.isComplete()).isTrue();
+        verify(jdbcTemplate).update(contains("INSERT IGNORE INTO card_hash_migration"));
+        verify(jdbcTemplate, never()).execute(contains("DROP COLUMN"));
+    }
+}
@@ -0,0 +1,143 @@
+package com.hyperativa.crud.domain.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardIdNodeLeaseTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CardIdNodeLease lease;
+
+    private String owner;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(lease, "ttlMillis", 30_000L);
+        ReflectionTestUtils.setField(lease, "maxLeadMillis", 1_000L);
+        // a renovação é chamada diretamente pelos testes
+        ReflectionTestUtils.setField(lease, "renewIntervalMillis", 3_600_000L);
+        owner = (String) ReflectionTestUtils.getField(lease, "owner");
+    }
+
+    @Test
+    @DisplayName("Deve reservar o primeiro nó que não pertence a outra instância")
+    void claimsFirstFreeNode() {
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of("outra"));
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(1))).thenReturn(List.of(owner));
+
+        assertThat(lease.claim()).isEqualTo(1);
+        assertThat(lease.isHeld()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve falhar quando todos os nós estão reservados")
+    void failsWhenAllNodesTaken() {
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), anyInt()))
+                .thenReturn(List.of("outra"));
+
+        assertThatThrownBy(lease::claim).isInstanceOf(IllegalStateException.class);
+        assertThat(lease.isHeld()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve perder a reserva quando a renovação encontra o nó com outro dono")
+    void renewDetectsTakenNode() {
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of(owner));
+        lease.claim();
+        when(jdbcTemplate.update(contains("UPDATE card_id_node_leases"), anyLong(), eq(0), anyString())).thenReturn(0);
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of("outra"));
+
+        lease.renew();
+
+        assertThat(lease.isHeld()).isFalse();
+        assertThat(lease.nodeId()).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Deve reservar outro nó e avisar o gerador antes de voltar a aceitar cartões")
+    void renewReclaimsFreeNodeAfterLoss() {
+        AtomicInteger notified = new AtomicInteger(-1);
+        lease.onNodeChanged(node -> {
+            assertThat(lease.isHeld()).isFalse();
+            notified.set(node);
+        });
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of(owner));
+        lease.claim();
+        when(jdbcTemplate.update(contains("UPDATE card_id_node_leases"), anyLong(), eq(0), anyString())).thenReturn(0);
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of("outra"));
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(1))).thenReturn(List.of(owner));
+
+        lease.renew();
+
+        assertThat(notified.get()).isEqualTo(1);
+        assertThat(lease.nodeId()).isEqualTo(1);
+        assertThat(lease.isHeld()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve renovar a reserva em uma thread própria, fora do agendador compartilhado")
+    void renewsOnDedicatedThread() {
+        ReflectionTestUtils.setField(lease, "renewIntervalMillis", 10L);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of(owner));
+        when(jdbcTemplate.update(contains("UPDATE card_id_node_leases"), anyLong(), eq(0), anyString()))
+                .thenAnswer(invocation -> {
+                    threads.add(Thread.currentThread().getName());
+                    return 1;
+                });
+
+        lease.claim();
+
+        verify(jdbcTemplate, timeout(5_000).atLeast(2))
+                .update(contains("UPDATE card_id_node_leases"), anyLong(), eq(0), anyString());
+        assertThat(List.copyOf(threads)).allMatch(name -> name.startsWith("card-id-node-lease-"));
+        assertThat(lease.isHeld()).isTrue();
+        lease.release();
+    }
+
+    @Test
+    @DisplayName("Não deve reservar nó quando o gerador usa um id de nó fixo")
+    void renewWithoutClaimDoesNothing() {
+        lease.renew();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Deve expirar a reserva localmente quando a renovação não chega a tempo")
+    void expiresWithoutRenewal() {
+        when(jdbcTemplate.queryForList(contains("SELECT owner"), eq(String.class), eq(0))).thenReturn(List.of(owner));
+        lease.claim();
+
+        ReflectionTestUtils.setField(lease, "heldUntilNanos", System.nanoTime() - 1);
+
+        assertThat(lease.isHeld()).isFalse();
+    }
+}
@@ -0,0 +1,172 @@
+package com.hyperativa.crud.domain.repository;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.exception.CardShardUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CardShardRouterTest {
+
+    private final JdbcOperations mainJdbcOperations = mock(JdbcOperations.class);
+    private List<CardShard> shards;
+    private CardShardRouter router;
+
+    @BeforeEach
+    void setUp() {
+        NamedParameterJdbcTemplate main = mock(NamedParameterJdbcTemplate.class);
+        when(main.getJdbcOperations()).thenReturn(mainJdbcOperations);
+        NamedParameterJdbcTemplate shard = mock(NamedParameterJdbcTemplate.class);
+        when(shard.getJdbcOperations()).thenReturn(mock(JdbcOperations.class));
+        shards = List.of(new CardShard(0, main), new CardShard(1, shard), new CardShard(2, shard));
+        router = new CardShardRouter(shards, List.of(), null, 5_000, 30_000);
+    }
+
+    @Test
+    @DisplayName("Deve calcular o bucket pelos dois primeiros bytes do hash")
+    void bucket() {
+        assertThat(CardShardRouter.bucket(hash(0x00, 0x00))).isZero();
+        assertThat(CardShardRouter.bucket(hash(0x01, 0x02))).isEqualTo(0x0102);
+        assertThat(CardShardRouter.bucket(hash(0xFF, 0xFF))).isEqualTo(CardShardRouter.BUCKETS - 1);
+    }
+
+    @Test
+    @DisplayName("Deve começar com todos os buckets no shard 0")
+    void defaultRouting() {
+        assertThat(router.isSharded()).isTrue();
+        assertThat(router.ranges()).containsExactly(new CardShardRange(0, CardShardRouter.BUCKETS - 1, 0, null));
+        assertThat(router.shardFor(hash(0xFF, 0xFF)).index()).isZero();
+        assertThat(router.migrationTargetFor(hash(0xFF, 0xFF))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve rotear pelo dono da faixa e gravar também no destino de uma faixa em movimento")
+    void routingWithMigratingRange() {
+        router.apply(List.of(
+                new CardShardRange(0x8000, 0xFFFF, 1, 2),
+                new CardShardRange(0, 0x7FFF, 0, null)));
+
+        assertThat(router.ranges()).extracting(CardShardRange::firstBucket).containsExactly(0, 0x8000);
+        assertThat(router.shardFor(hash(0x7F, 0xFF)).index()).isZero();
+        assertThat(router.migrationTargetFor(hash(0x7F, 0xFF))).isEmpty();
+        assertThat(router.shardFor(hash(0x80, 0x00)).index()).isEqualTo(1);
+        assertThat(router.migrationTargetFor(hash(0x80, 0x00))).map(CardShard::index).contains(2);
+    }
+
+    @Test
+    @DisplayName("Deve agrupar os hashes pelo shard de leitura")
+    void groupByShard() {
+        router.apply(List.of(new CardShardRange(0, 0x7FFF, 0, null), new CardShardRange(0x8000, 0xFFFF, 1, null)));
+        CardHash low = hash(0x10, 0x00);
+        CardHash high = hash(0x90, 0x00);
+        CardHash otherLow = hash(0x20, 0x00);
+
+        Map<CardShard, List<CardHash>> groups = router.groupByShard(List.of(low, high, otherLow), hash -> hash);
+
+        assertThat(groups).containsOnlyKeys(router.shard(0), router.shard(1));
+        assertThat(groups.get(router.shard(0))).containsExactly(low, otherLow);
+        assertThat(groups.get(router.shard(1))).containsExactly(high);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar mapas com buracos, sobreposição ou shards inexistentes")
+    void rejectInvalidRanges() {
+        assertThatThrownBy(() -> router.apply(List.of(new CardShardRange(0, 0x7FFF, 0, null))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> router.apply(List.of(
+                new CardShardRange(0, 0x8000, 0, null), new CardShardRange(0x8000, 0xFFFF, 1, null))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> router.apply(List.of(new CardShardRange(0, 0xFFFF, 3, null))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.apply(List.of(new CardShardRange(0, 0xFFFF, 0, 5))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(router.ranges()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o mapa quando a versão muda e confirmar a versão em uso a cada releitura")
+    @SuppressWarnings("unchecked")
+    void refreshAcknowledgesVersion() {
+        List<CardShardRange> split = List.of(new CardShardRange(0, 0x7FFF, 0, null), new CardShardRange(0x8000, 0xFFFF, 0, 1));
+        when(mainJdbcOperations.queryForObject(contains("card_shard_map"), eq(Long.class))).thenReturn(4L);
+        when(mainJdbcOperations.query(contains("card_shard_ranges"), any(RowMapper.class))).thenReturn(split);
+
+        router.refresh();
+        router.refresh();
+
+        assertThat(router.version()).isEqualTo(4);
+        assertThat(router.migrationTargetFor(hash(0x80, 0x00))).map(CardShard::index).contains(1);
+        verify(mainJdbcOperations, times(2)).update(contains("card_shard_map_acks"), anyString(), eq(4L));
+    }
+
+    @Test
+    @DisplayName("Deve reler o mapa e confirmar a versão em uma thread própria, fora do agendador compartilhado")
+    @SuppressWarnings("unchecked")
+    void refreshesOnDedicatedThread() {
+        CardShardRouter fast = new CardShardRouter(shards, List.of(), null, 10, 40);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        when(mainJdbcOperations.queryForObject(contains("card_shard_map"), eq(Long.class))).thenReturn(4L);
+        when(mainJdbcOperations.query(contains("card_shard_ranges"), any(RowMapper.class)))
+                .thenReturn(List.of(new CardShardRange(0, 0xFFFF, 0, null)));
+        when(mainJdbcOperations.update(contains("card_shard_map_acks"), anyString(), eq(4L))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return 1;
+        });
+
+        fast.initialize();
+
+        verify(mainJdbcOperations, timeout(5_000).atLeast(3)).update(contains("card_shard_map_acks"), anyString(), eq(4L));
+        assertThat(List.copyOf(threads)).anyMatch(name -> name.startsWith("card-shard-map-"));
+        fast.close();
+    }
+
+    @Test
+    @DisplayName("Deve recusar gravações quando o mapa não é confirmado há mais da metade do timeout da instância")
+    @SuppressWarnings("unchecked")
+    void checkWritableRejectsStaleMap() {
+        assertThatThrownBy(router::checkWritable).isInstanceOf(CardShardUnavailableException.class);
+
+        when(mainJdbcOperations.queryForObject(contains("card_shard_map"), eq(Long.class))).thenReturn(4L);
+        when(mainJdbcOperations.query(contains("card_shard_ranges"), any(RowMapper.class)))
+                .thenReturn(List.of(new CardShardRange(0, 0xFFFF, 0, null)));
+        router.refresh();
+        router.checkWritable();
+
+        ReflectionTestUtils.setField(router, "acknowledgedAtNanos", System.nanoTime() - 16_000_000_000L);
+        assertThatThrownBy(router::checkWritable).isInstanceOf(CardShardUnavailableException.class);
+    }
+
+    @Test
+    @DisplayName("Deve exigir um timeout de instância de ao menos quatro intervalos de releitura")
+    void rejectsShortInstanceTimeout() {
+        assertThatThrownBy(() -> new CardShardRouter(shards, List.of(), null, 10_000, 30_000))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static CardHash hash(int first, int second) {
+        byte[] value = new byte[CardHash.LENGTH];
+        value[0] = (byte) first;
+        value[1] = (byte) second;
+        return new CardHash(value);
+    }
+}
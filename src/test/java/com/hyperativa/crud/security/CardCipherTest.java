@@ -0,0 +1,130 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.exception.CardEncryptionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.security.crypto.encrypt.Encryptors;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardCipherTest {
+
+    private static final String SECRET = "test-secret-key-at-least-256-bits-long";
+    private static final String CARD_NUMBER = "4111111111111111";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Deve cifrar com prefixo de versão e IV aleatório, decifrando o valor original")
+    void encryptAndDecrypt() {
+        CardCipher cipher = new CardCipher(SECRET, "");
+
+        String first = cipher.encrypt(CARD_NUMBER);
+        String second = cipher.encrypt(CARD_NUMBER);
+
+        assertThat(first).startsWith("v1:").isNotEqualTo(second);
+        assertThat(cipher.decrypt(first)).isEqualTo(CARD_NUMBER);
+        assertThat(cipher.decrypt(second)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    @DisplayName("Deve cifrar só o trecho informado do buffer de bytes")
+    void encryptBytes() {
+        CardCipher cipher = new CardCipher(SECRET, "");
+        byte[] buffer = ("xx" + CARD_NUMBER + "yy").getBytes(StandardCharsets.US_ASCII);
+
+        String encrypted = cipher.encrypt(buffer, 2, CARD_NUMBER.length());
+
+        assertThat(encrypted).startsWith("v1:");
+        assertThat(cipher.decrypt(encrypted)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    @DisplayName("Deve decifrar valores gravados com Encryptors.text antes da versão com prefixo")
+    void decryptLegacyValue() {
+        CardCipher cipher = new CardCipher(SECRET, "");
+        String legacy = Encryptors.text(SECRET, "deadbeef").encrypt(CARD_NUMBER);
+
+        assertThat(cipher.decrypt(legacy)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    @DisplayName("Deve cifrar com uma chave GCM derivada por HKDF, diferente da chave CBC dos valores sem prefixo")
+    void gcmKeyIsNotLegacyKey() throws GeneralSecurityException {
+        CardCipher cipher = new CardCipher(SECRET, "");
+        SecretKey legacyKey = pbkdf2Key(SECRET, "deadbeef");
+        byte[] payload = Base64.getDecoder().decode(cipher.encrypt(CARD_NUMBER).substring("v1:".length()));
+
+        assertThat(CardCipher.deriveGcmKey(legacyKey).getEncoded()).isNotEqualTo(legacyKey.getEncoded());
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.DECRYPT_MODE, legacyKey, new GCMParameterSpec(128, payload, 0, 12));
+        assertThatThrownBy(() -> gcm.doFinal(payload, 12, payload.length - 12)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    @DisplayName("Deve decifrar valores com prefixo gravados antes da HKDF, cifrados direto com a chave PBKDF2")
+    void decryptPreHkdfValue() throws GeneralSecurityException {
+        CardCipher cipher = new CardCipher(SECRET, "");
+        byte[] iv = new byte[12];
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.ENCRYPT_MODE, pbkdf2Key(SECRET, "deadbeef"), new GCMParameterSpec(128, iv));
+        byte[] encrypted = gcm.doFinal(CARD_NUMBER.getBytes(StandardCharsets.UTF_8));
+        byte[] payload = new byte[iv.length + encrypted.length];
+        System.arraycopy(encrypted, 0, payload, iv.length, encrypted.length);
+
+        assertThat(cipher.decrypt("v1:" + Base64.getEncoder().encodeToString(payload))).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    @DisplayName("Deve rotacionar a chave ativa sem reiniciar e continuar lendo registros antigos")
+    void rotateKeyWithoutRestart() throws IOException {
+        Path keyring = tempDir.resolve("keyring.properties");
+        Files.writeString(keyring, "active=1\n");
+        CardCipher cipher = new CardCipher(SECRET, keyring.toString());
+        String old = cipher.encrypt(CARD_NUMBER);
+
+        Files.writeString(keyring, "active=2\nkey.2.secret=another-secret-with-enough-length\nkey.2.salt=cafebabe\n");
+        Files.setLastModifiedTime(keyring, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+        cipher.refreshKeyring();
+        String rotated = cipher.encrypt(CARD_NUMBER);
+
+        assertThat(cipher.activeVersion()).isEqualTo(2);
+        assertThat(rotated).startsWith("v2:");
+        assertThat(cipher.decrypt(old)).isEqualTo(CARD_NUMBER);
+        assertThat(cipher.decrypt(rotated)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    @DisplayName("Deve lançar CardEncryptionException para versão de chave desconhecida")
+    void decryptUnknownVersion() {
+        CardCipher cipher = new CardCipher(SECRET, "");
+
+        assertThatThrownBy(() -> cipher.decrypt("v9:AAAA"))
+                .isInstanceOf(CardEncryptionException.class)
+                .hasMessageContaining("Versão de chave desconhecida");
+    }
+
+    private static SecretKey pbkdf2Key(String secret, String hexSalt) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(), Hex.decode(hexSalt), 1024, 256);
+        return new SecretKeySpec(SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1").generateSecret(spec).getEncoded(), "AES");
+    }
+}
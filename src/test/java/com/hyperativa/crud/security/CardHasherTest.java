@@ -0,0 +1,101 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.exception.HashGenerationException;
+import com.hyperativa.crud.exception.InvalidCardNumberException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mockStatic;
+
+class CardHasherTest {
+
+    private static final String CARD_NUMBER = "4111111111111111";
+
+    private final CardHasher cardHasher = new CardHasher();
+
+    @Test
+    @DisplayName("Deve gerar o mesmo hash que a implementação anterior em Base64")
+    void hashMatchesLegacyBase64() throws NoSuchAlgorithmException {
+        String legacy = Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(CARD_NUMBER.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] hash = cardHasher.hash(CARD_NUMBER);
+
+        assertThat(hash).hasSize(CardHasher.HASH_LENGTH);
+        assertThat(CardHasher.toBase64(hash)).isEqualTo(legacy);
+        assertThat(CardHasher.fromBase64(legacy)).isEqualTo(hash);
+    }
+
+    @Test
+    @DisplayName("Deve gerar o mesmo hash a partir de String, char[] e byte[]")
+    void hashVariantsAreEquivalent() {
+        byte[] expected = cardHasher.hash(CARD_NUMBER);
+        char[] chars = ("  " + CARD_NUMBER).toCharArray();
+        byte[] bytes = ("xx" + CARD_NUMBER).getBytes(StandardCharsets.US_ASCII);
+        byte[] out = new byte[CardHasher.HASH_LENGTH + 4];
+
+        cardHasher.hash(bytes, 2, CARD_NUMBER.length(), out, 4);
+
+        assertThat(cardHasher.hash(chars, 2, CARD_NUMBER.length())).isEqualTo(expected);
+        assertThat(cardHasher.hash(bytes, 2, CARD_NUMBER.length())).isEqualTo(expected);
+        assertThat(Arrays.copyOfRange(out, 4, out.length)).isEqualTo(expected);
+        assertThat(cardHasher.hash("4111 1111 1111 1111 4111 1111 1111 1111"))
+                .isNotEqualTo(expected)
+                .hasSize(CardHasher.HASH_LENGTH);
+    }
+
+    @Test
+    @DisplayName("Deve codificar caracteres não ASCII em UTF-8 como a implementação anterior")
+    void hashNonAsciiAsUtf8() throws NoSuchAlgorithmException {
+        String value = "4111-ção";
+
+        assertThat(cardHasher.hash(value))
+                .isEqualTo(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar como número inválido um char[] com caracteres não ASCII")
+    void hashCharsRejectsNonAscii() {
+        char[] value = "4111-ção".toCharArray();
+
+        assertThatThrownBy(() -> cardHasher.hash(value, 0, value.length))
+                .isInstanceOf(InvalidCardNumberException.class)
+                .hasMessage("Número do cartão inválido");
+    }
+
+    @Test
+    @DisplayName("Deve zerar o buffer da thread depois do hash")
+    @SuppressWarnings("unchecked")
+    void hashClearsThreadBuffer() {
+        char[] value = "4111111111111111".toCharArray();
+
+        cardHasher.hash(value, 0, value.length);
+        cardHasher.hash("5555555555554444");
+
+        byte[] buffer = ((ThreadLocal<byte[]>) ReflectionTestUtils.getField(cardHasher, "buffers")).get();
+        assertThat(buffer).containsOnly((byte) 0);
+    }
+
+    @Test
+    @DisplayName("Deve lançar HashGenerationException quando MessageDigest.getInstance falhar")
+    void hashGenerationError() {
+        try (var mockedStatic = mockStatic(MessageDigest.class)) {
+            mockedStatic.when(() -> MessageDigest.getInstance("SHA-256"))
+                    .thenThrow(new NoSuchAlgorithmException("Algorithm not found"));
+
+            assertThatThrownBy(CardHasher::new)
+                    .isInstanceOf(HashGenerationException.class)
+                    .hasMessageContaining("Erro ao gerar hash do cartão")
+                    .hasCauseInstanceOf(NoSuchAlgorithmException.class);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.hyperativa.crud.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CostAwareBCryptPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CostAwareBCryptPasswordEncoder encoder = new CostAwareBCryptPasswordEncoder(5, meterRegistry);
+
+    @Test
+    @DisplayName("Deve pedir regravação quando o custo armazenado for maior ou menor que o configurado")
+    void upgradeWhenCostDiffers() {
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("senha"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("senha"))).isTrue();
+        assertThat(encoder.upgradeEncoding(encoder.encode("senha"))).isFalse();
+        assertThat(encoder.upgradeEncoding("não é bcrypt")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve aceitar hashes antigos sem prefixo e pedir regravação com o prefixo {bcrypt}")
+    void legacyHashWithoutPrefix() {
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", encoder));
+        delegating.setDefaultPasswordEncoderForMatches(encoder);
+        String legacy = new BCryptPasswordEncoder(5).encode("senha");
+
+        assertThat(delegating.matches("senha", legacy)).isTrue();
+        assertThat(delegating.upgradeEncoding(legacy)).isTrue();
+        String upgraded = delegating.encode("senha");
+        assertThat(upgraded).startsWith("{bcrypt}$2a$05$");
+        assertThat(delegating.upgradeEncoding(upgraded)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve registrar o tempo de cada hash")
+    void recordsHashTime() {
+        PasswordEncoder passwordEncoder = encoder;
+        passwordEncoder.matches("senha", passwordEncoder.encode("senha"));
+
+        assertThat(meterRegistry.get("auth.password.hash").tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.password.hash").tag("operation", "matches").timer().count()).isEqualTo(1);
+    }
+}
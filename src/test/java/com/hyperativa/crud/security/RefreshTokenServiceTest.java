@@ -0,0 +1,122 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.domain.model.RefreshToken;
+import com.hyperativa.crud.domain.model.User;
+import com.hyperativa.crud.domain.repository.RefreshTokenRepository;
+import com.hyperativa.crud.exception.TokenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    private static final User USER = User.builder().id(1L).username("user").password("senha").build();
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(refreshTokenService, "ttl", Duration.ofDays(30));
+        ReflectionTestUtils.setField(refreshTokenService, "cleanupBatchSize", 2);
+    }
+
+    @Test
+    @DisplayName("Deve armazenar apenas o hash do refresh token emitido")
+    void issueStoresHash() throws Exception {
+        String token = refreshTokenService.issue(USER);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertThat(saved.getValue().getTokenHash()).isEqualTo(sha256(token));
+        assertThat(saved.getValue().getUser()).isSameAs(USER);
+        assertThat(saved.getValue().getExpiresAt()).isAfter(LocalDateTime.now().plusDays(29));
+    }
+
+    @Test
+    @DisplayName("Deve marcar o token como usado e emitir um novo da mesma família")
+    void rotate() throws Exception {
+        RefreshToken current = token(42L, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHash(sha256("antigo"))).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.markUsed(current.getId())).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("antigo");
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertThat(rotation.user()).isSameAs(USER);
+        assertThat(rotation.refreshToken()).isNotEqualTo("antigo");
+        assertThat(saved.getValue().getFamilyId()).isEqualTo(42L);
+        assertThat(saved.getValue().getTokenHash()).isEqualTo(sha256(rotation.refreshToken()));
+    }
+
+    @Test
+    @DisplayName("Deve revogar a família quando um token já usado for reapresentado")
+    void reuseRevokesFamily() throws Exception {
+        RefreshToken current = token(42L, LocalDateTime.now().plusDays(1));
+        current.setUsed(true);
+        when(refreshTokenRepository.findByTokenHash(sha256("antigo"))).thenReturn(Optional.of(current));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate("antigo")).isInstanceOf(TokenException.class);
+
+        verify(refreshTokenRepository).deleteByFamilyId(42L);
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar token expirado sem emitir outro")
+    void expiredToken() throws Exception {
+        when(refreshTokenRepository.findByTokenHash(sha256("antigo")))
+                .thenReturn(Optional.of(token(42L, LocalDateTime.now().minusSeconds(1))));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate("antigo"))
+                .isInstanceOf(TokenException.class)
+                .hasMessage("Refresh token expirado");
+
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Deve remover os tokens expirados em lotes até o último lote incompleto")
+    void deleteExpiredInBatches() {
+        when(refreshTokenRepository.deleteExpired(any(), any(Integer.class))).thenReturn(2, 2, 1);
+
+        refreshTokenService.deleteExpired();
+
+        verify(refreshTokenRepository, times(3)).deleteExpired(any(), any(Integer.class));
+    }
+
+    private static RefreshToken token(Long familyId, LocalDateTime expiresAt) {
+        RefreshToken token = RefreshToken.builder().user(USER).familyId(familyId).expiresAt(expiresAt).build();
+        token.setId(7L);
+        return token;
+    }
+
+    private static byte[] sha256(String token) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package com.hyperativa.crud.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SecurityFilterTest {
+
+    private static final AuthenticatedUser USER =
+            new AuthenticatedUser(1L, "user", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @Mock
+    private TokenService tokenService;
+
+    @Mock
+    private UserCache userCache;
+
+    @InjectMocks
+    private SecurityFilter securityFilter;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Deve autenticar a partir das claims do token sem consultar usuários")
+    void statelessAuthentication() throws Exception {
+        when(tokenService.extractUser("token")).thenReturn(USER);
+        MockHttpServletRequest request = request("token");
+
+        securityFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(request.getAttribute(SecurityFilter.USERNAME_ATTRIBUTE)).isEqualTo("user");
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal()).isEqualTo(USER);
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        verify(userCache, never()).find(anyString());
+    }
+
+    @Test
+    @DisplayName("Deve exigir que o usuário do token exista quando verify-user estiver ativo")
+    void verifyUserRejectsUnknownUser() throws Exception {
+        ReflectionTestUtils.setField(securityFilter, "verifyUser", true);
+        when(tokenService.extractUser("token")).thenReturn(USER);
+        when(userCache.find("user")).thenReturn(Optional.empty());
+
+        securityFilter.doFilter(request("token"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve autenticar com o usuário do cache quando verify-user estiver ativo")
+    void verifyUserUsesCache() throws Exception {
+        ReflectionTestUtils.setField(securityFilter, "verifyUser", true);
+        when(tokenService.extractUser("token")).thenReturn(USER);
+        when(userCache.find("user")).thenReturn(Optional.of(USER));
+
+        securityFilter.doFilter(request("token"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isEqualTo(USER);
+    }
+
+    private MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cards/exists");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,109 @@
+package com.hyperativa.crud.security;
+
+import com.hyperativa.crud.domain.model.User;
+import com.hyperativa.crud.exception.TokenException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenServiceTest {
+
+    private static final User USER = User.builder().id(7L).username("user").password("senha").build();
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = tokenService(60_000L, 100L);
+    }
+
+    @Test
+    @DisplayName("Deve montar o usuário a partir das claims do token")
+    void extractUser() {
+        AuthenticatedUser user = tokenService.extractUser(tokenService.generateToken(USER));
+
+        assertThat(user.userId()).isEqualTo(7L);
+        assertThat(user.username()).isEqualTo("user");
+        assertThat(user.authorities()).extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    @Test
+    @DisplayName("Deve responder um token já verificado pelo cache")
+    void cachedToken() {
+        String token = tokenService.generateToken(USER);
+
+        assertThat(tokenService.extractUser(token)).isSameAs(tokenService.extractUser(token));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar token com assinatura alterada mesmo após o original estar em cache")
+    void tamperedSignature() {
+        String token = tokenService.generateToken(USER);
+        tokenService.extractUser(token);
+        char last = token.charAt(token.length() - 2);
+        String tampered = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+
+        assertThatThrownBy(() -> tokenService.extractUser(tampered)).isInstanceOf(TokenException.class);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar token expirado")
+    void expiredToken() {
+        TokenService expired = tokenService(-1_000L, 100L);
+
+        assertThatThrownBy(() -> expired.extractUser(expired.generateToken(USER)))
+                .isInstanceOf(TokenException.class)
+                .hasMessage("Token expirado");
+    }
+
+    @Test
+    @DisplayName("Deve validar normalmente com o cache desativado")
+    void cacheDisabled() {
+        TokenService uncached = tokenService(60_000L, 0L);
+        String token = uncached.generateToken(USER);
+
+        assertThat(uncached.extractUser(token)).isEqualTo(uncached.extractUser(token));
+    }
+
+    @Test
+    @DisplayName("Deve conceder a permissão de decifrar cartões apenas aos usuários configurados")
+    void cardDecryptAuthority() {
+        ReflectionTestUtils.setField(tokenService, "cardDecryptUsers", Set.of("exportador"));
+        User exporter = User.builder().id(8L).username("exportador").password("senha").build();
+
+        assertThat(tokenService.extractUser(tokenService.generateToken(exporter)).authorities())
+                .extracting("authority").containsExactly("ROLE_USER", TokenService.CARD_DECRYPT_AUTHORITY);
+        assertThat(tokenService.extractUser(tokenService.generateToken(USER)).authorities())
+                .extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    @Test
+    @DisplayName("Deve conceder a permissão de administrar os shards de cartões apenas aos usuários configurados")
+    void cardShardAdminAuthority() {
+        ReflectionTestUtils.setField(tokenService, "cardShardAdminUsers", Set.of("dba"));
+        User admin = User.builder().id(9L).username("dba").password("senha").build();
+
+        assertThat(tokenService.extractUser(tokenService.generateToken(admin)).authorities())
+                .extracting("authority").containsExactly("ROLE_USER", TokenService.CARD_SHARD_ADMIN_AUTHORITY);
+        assertThat(tokenService.extractUser(tokenService.generateToken(USER)).authorities())
+                .extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    private static TokenService tokenService(long expiration, long verifiedCacheSize) {
+        TokenService service = new TokenService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "secret", "0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(service, "expiration", expiration);
+        ReflectionTestUtils.setField(service, "issuer", "crud-api");
+        ReflectionTestUtils.setField(service, "audience", "crud-api-users");
+        ReflectionTestUtils.setField(service, "verifiedCacheSize", verifiedCacheSize);
+        service.init();
+        return service;
+    }
+}
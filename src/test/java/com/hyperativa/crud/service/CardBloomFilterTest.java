@@ -0,0 +1,204 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.model.SnowflakeIdGenerator;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import com.hyperativa.crud.security.CardHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardBloomFilterTest {
+
+    private static final int EXPECTED_CARDS = 10_000;
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    private final CardHasher cardHasher = new CardHasher();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CardBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new CardBloomFilter(cardBatchRepository, meterRegistry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "expectedCards", (long) EXPECTED_CARDS);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(filter, "syncIntervalMillis", 2_000L);
+        ReflectionTestUtils.setField(filter, "maxStalenessMillis", 5_000L);
+        filter.init();
+    }
+
+    @Test
+    @DisplayName("Deve considerar qualquer cartão possível enquanto o filtro não foi construído")
+    void notReadyAlwaysMightContain() {
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain(hash(1))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve conter os hashes do banco e os inseridos depois, respeitando a taxa de falso positivo")
+    void rebuildLoadsHashesAndKeepsFalsePositiveRate() {
+        doAnswer(invocation -> {
+            Consumer<CardHash> consumer = invocation.getArgument(0);
+            IntStream.range(0, EXPECTED_CARDS / 2).forEach(i -> consumer.accept(hash(i)));
+            return null;
+        }).when(cardBatchRepository).forEachHash(any());
+
+        filter.rebuild();
+        IntStream.range(EXPECTED_CARDS / 2, EXPECTED_CARDS).forEach(i -> filter.put(hash(i)));
+
+        assertThat(filter.isReady()).isTrue();
+        assertThat(IntStream.range(0, EXPECTED_CARDS)).allMatch(i -> filter.mightContain(hash(i)));
+        long falsePositives = IntStream.range(EXPECTED_CARDS, EXPECTED_CARDS * 3)
+                .filter(i -> filter.mightContain(hash(i)))
+                .count();
+        assertThat(falsePositives / (double) (EXPECTED_CARDS * 2)).isLessThan(0.02);
+        assertThat(meterRegistry.get("cards.bloom.fill.ratio").gauge().value()).isBetween(0.4, 0.6);
+        assertThat(meterRegistry.get("cards.bloom.false.positive.rate").gauge().value()).isLessThan(0.02);
+        assertThat(meterRegistry.get("cards.bloom.checks").tag("result", "negative").counter().count())
+                .isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Deve continuar consultando o banco quando a construção do filtro falhar")
+    void rebuildFailureKeepsFilterNotReady() {
+        doThrow(new IllegalStateException("Banco indisponível")).when(cardBatchRepository).forEachHash(any());
+
+        filter.rebuild();
+
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain(hash(1))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve incorporar cartões inseridos por outras instâncias, relendo a janela de sobreposição")
+    void syncAddsCardsFromOtherInstances() {
+        ReflectionTestUtils.setField(filter, "syncBatchSize", 2);
+        ReflectionTestUtils.setField(filter, "syncOverlapMillis", 10_000L);
+        filter.rebuild();
+        assertThat(filter.mightContain(hash(1))).isFalse();
+        long insertedId = SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() + 1_000);
+        when(cardBatchRepository.forEachHashAfter(anyLong(), eq(2), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            if (afterId >= insertedId) {
+                return afterId;
+            }
+            ObjLongConsumer<CardHash> consumer = invocation.getArgument(2);
+            consumer.accept(hash(1), insertedId);
+            return insertedId;
+        });
+
+        filter.sync();
+
+        assertThat(filter.mightContain(hash(1))).isTrue();
+        assertThat(meterRegistry.get("cards.bloom.insertions").gauge().value()).isEqualTo(1);
+        ArgumentCaptor<Long> from = ArgumentCaptor.forClass(Long.class);
+        filter.sync();
+        verify(cardBatchRepository, times(4)).forEachHashAfter(from.capture(), eq(2), any());
+        // a segunda sincronização recomeça antes do último id lido, e rever o mesmo hash não conta como inserção
+        assertThat(from.getAllValues().get(2)).isLessThan(insertedId);
+        assertThat(meterRegistry.get("cards.bloom.insertions").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve incorporar cartões confirmados depois da janela de sobreposição ao reler os recentes")
+    void lateSyncAddsCardsCommittedAfterOverlap() {
+        ReflectionTestUtils.setField(filter, "syncBatchSize", 2);
+        ReflectionTestUtils.setField(filter, "syncOverlapMillis", 10_000L);
+        ReflectionTestUtils.setField(filter, "lateSyncWindowMillis", 180_000L);
+        filter.rebuild();
+        // id gerado há 60 s, mas confirmado só agora: fica antes do ponto de partida da sincronização frequente
+        long lateId = SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() - 60_000);
+        when(cardBatchRepository.forEachHashAfter(anyLong(), eq(2), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            if (afterId >= lateId) {
+                return afterId;
+            }
+            invocation.<ObjLongConsumer<CardHash>>getArgument(2).accept(hash(1), lateId);
+            return lateId;
+        });
+
+        filter.sync();
+        assertThat(filter.mightContain(hash(1))).isFalse();
+
+        filter.lateSync();
+        assertThat(filter.mightContain(hash(1))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco quando a última sincronização for mais antiga que max-staleness-ms")
+    void staleFilterFallsBackToDatabase() {
+        filter.rebuild();
+        assertThat(filter.mightContain(hash(1))).isFalse();
+
+        ReflectionTestUtils.setField(filter, "syncedAt", System.currentTimeMillis() - 5_001);
+        assertThat(filter.mightContain(hash(1))).isTrue();
+        assertThat(meterRegistry.get("cards.bloom.checks").tag("result", "stale").counter().count()).isEqualTo(1);
+
+        doThrow(new IllegalStateException("Banco indisponível"))
+                .when(cardBatchRepository).forEachHashAfter(anyLong(), anyInt(), any());
+        filter.sync();
+        assertThat(filter.mightContain(hash(1))).isTrue();
+
+        doReturn(0L).when(cardBatchRepository).forEachHashAfter(anyLong(), anyInt(), any());
+        filter.sync();
+        assertThat(filter.mightContain(hash(1))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve recusar max-staleness-ms menor que o intervalo de sincronização")
+    void rejectsStalenessShorterThanSyncInterval() {
+        ReflectionTestUtils.setField(filter, "maxStalenessMillis", 1_000L);
+
+        assertThatThrownBy(filter::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Deve se dimensionar pela quantidade de cartões no banco quando ela passar de expected-cards")
+    void rebuildSizesFromCount() {
+        int cards = EXPECTED_CARDS * 4;
+        when(cardBatchRepository.count()).thenReturn((long) cards);
+        doAnswer(invocation -> {
+            Consumer<CardHash> consumer = invocation.getArgument(0);
+            IntStream.range(0, cards).forEach(i -> consumer.accept(hash(i)));
+            return null;
+        }).when(cardBatchRepository).forEachHash(any());
+
+        filter.rebuild();
+
+        long falsePositives = IntStream.range(cards, cards * 2)
+                .filter(i -> filter.mightContain(hash(i)))
+                .count();
+        assertThat(falsePositives / (double) cards).isLessThan(0.02);
+    }
+
+    private CardHash hash(int i) {
+        return new CardHash(cardHasher.hash(String.valueOf(4_000_000_000_000L + i)));
+    }
+}
@@ -0,0 +1,117 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import com.hyperativa.crud.domain.repository.CardBatchRepository.EncryptedCardConsumer;
+import com.hyperativa.crud.security.CardCipher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.function.ObjLongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardExportServiceTest {
+
+    private static final CardHash HASH = hash(0xab);
+    private static final String HEX = HexFormat.of().formatHex(HASH.value());
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    @Mock
+    private CardCipher cardCipher;
+
+    @InjectMocks
+    private CardExportService cardExportService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cardExportService, "pageSize", 2);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer a tabela em páginas por id e parar na primeira página incompleta")
+    void exportNdjsonPages() throws Exception {
+        // páginas de 2 cartões: ids 1 e 2, depois o id 3 (página incompleta encerra a leitura)
+        doAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            ObjLongConsumer<CardHash> consumer = invocation.getArgument(2);
+            long lastId = afterId;
+            for (long id = afterId + 1; id <= Math.min(afterId + 2, 3); id++) {
+                consumer.accept(HASH, id);
+                lastId = id;
+            }
+            return lastId;
+        }).when(cardBatchRepository).forEachHashAfter(anyLong(), eq(2), any());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = cardExportService.export(CardExportService.Format.NDJSON, 0, out);
+
+        assertThat(rows).isEqualTo(3);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"hash\":\"" + HEX + "\"}\n"
+                        + "{\"id\":2,\"hash\":\"" + HEX + "\"}\n"
+                        + "{\"id\":3,\"hash\":\"" + HEX + "\"}\n");
+        verify(cardBatchRepository).forEachHashAfter(eq(0L), eq(2), any());
+        verify(cardBatchRepository).forEachHashAfter(eq(2L), eq(2), any());
+        verify(cardBatchRepository, never()).forEachHashAfter(eq(3L), anyInt(), any());
+        verifyNoInteractions(cardCipher);
+    }
+
+    @Test
+    @DisplayName("Deve retomar a exportação CSV a partir do id informado")
+    void exportCsvResume() throws Exception {
+        when(cardBatchRepository.forEachHashAfter(eq(41L), eq(2), any())).thenAnswer(invocation -> {
+            invocation.<ObjLongConsumer<CardHash>>getArgument(2).accept(HASH, 42L);
+            return 42L;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cardExportService.export(CardExportService.Format.CSV, 41, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("id,hash\n42," + HEX + "\n");
+    }
+
+    @Test
+    @DisplayName("Deve decifrar o número do cartão apenas na exportação decifrada")
+    void exportDecrypted() throws Exception {
+        when(cardBatchRepository.forEachEncryptedAfter(eq(0L), eq(2), any())).thenAnswer(invocation -> {
+            invocation.<EncryptedCardConsumer>getArgument(2).accept(7L, HASH, "v1:cifrado");
+            return 7L;
+        });
+        when(cardCipher.decrypt("v1:cifrado")).thenReturn("4111111111111111");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cardExportService.exportDecrypted(CardExportService.Format.NDJSON, 0, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":7,\"hash\":\"" + HEX + "\",\"cardNumber\":\"4111111111111111\"}\n");
+    }
+
+    private static CardHash hash(int value) {
+        byte[] bytes = new byte[CardHash.LENGTH];
+        Arrays.fill(bytes, (byte) value);
+        return new CardHash(bytes);
+    }
+}
@@ -0,0 +1,132 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardNumbers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardFileParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Deve normalizar separadores e CRLF e classificar linhas vazias e inválidas")
+    void parsesLines() throws IOException {
+        List<String> lines = parse("""
+                4111111111111111
+                5555 5555 5555 4444\r
+                  \t\r
+
+                4000-0000-0000-0002
+                4111111111111112
+                4111 1111 1111 111a
+                411111111111
+                41111111111111111111
+                4111111111111111""", 0, 1024);
+
+        assertThat(lines).containsExactly(
+                "4111111111111111",
+                "5555555555554444",
+                "BLANK",
+                "BLANK",
+                "4000000000000002",
+                "INVALID",
+                "INVALID",
+                "INVALID",
+                "INVALID",
+                "4111111111111111");
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o BOM do UTF-8 no início do arquivo")
+    void skipsBom() throws IOException {
+        Path file = dir.resolve("bom.txt");
+        byte[] content = "\uFEFF4111111111111111\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(file, content);
+
+        assertThat(parse(file, 0, 1024)).containsExactly("4111111111111111");
+    }
+
+    @Test
+    @DisplayName("Deve ler linhas que atravessam o limite da janela mapeada")
+    void crossesWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append(i % 2 == 0 ? "4111 1111 1111 1111\n" : "5555555555554444\n");
+        }
+
+        List<String> lines = parse(content.toString(), 0, 7);
+
+        assertThat(lines).hasSize(50);
+        assertThat(lines).containsOnly("4111111111111111", "5555555555554444");
+    }
+
+    @Test
+    @DisplayName("Deve apontar a posição para o início da próxima linha e retomar ou reposicionar a partir dela")
+    void positionIsCheckpoint() throws IOException {
+        String first = "4111111111111111\n";
+        Path file = write(first + "5555555555554444\n");
+        byte[] out = new byte[CardNumbers.MAX_LENGTH];
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            CardFileParser parser = new CardFileParser(channel, 0, 8, true);
+            assertThat(parser.nextLine(out, 0)).isEqualTo(16);
+            assertThat(parser.position()).isEqualTo(first.length());
+
+            parser.seek(0);
+            assertThat(parser.nextLine(out, 0)).isEqualTo(16);
+            assertThat(new String(out, 0, 16, StandardCharsets.US_ASCII)).isEqualTo("4111111111111111");
+        }
+
+        assertThat(parse(file, first.length(), 8)).containsExactly("5555555555554444");
+    }
+
+    @Test
+    @DisplayName("Deve aceitar dígito verificador inválido quando o Luhn não é verificado")
+    void skipsLuhnWhenDisabled() throws IOException {
+        Path file = write("4111111111111112\n4111 1111 1111 111a\n411111111111\n");
+
+        assertThat(parse(file, 0, 1024, false)).containsExactly("4111111111111112", "INVALID", "INVALID");
+    }
+
+    private List<String> parse(String content, long position, long windowSize) throws IOException {
+        return parse(write(content), position, windowSize);
+    }
+
+    private List<String> parse(Path file, long position, long windowSize) throws IOException {
+        return parse(file, position, windowSize, true);
+    }
+
+    private List<String> parse(Path file, long position, long windowSize, boolean luhnCheck) throws IOException {
+        List<String> lines = new ArrayList<>();
+        byte[] out = new byte[CardNumbers.MAX_LENGTH];
+        try (FileChannel channel = FileChannel.open(file)) {
+            CardFileParser parser = new CardFileParser(channel, position, windowSize, luhnCheck);
+            int length;
+            while ((length = parser.nextLine(out, 0)) != CardFileParser.EOF) {
+                lines.add(switch (length) {
+                    case CardFileParser.BLANK -> "BLANK";
+                    case CardFileParser.INVALID -> "INVALID";
+                    default -> new String(out, 0, length, StandardCharsets.US_ASCII);
+                });
+            }
+            assertThat(parser.position()).isEqualTo(channel.size());
+        }
+        return lines;
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(dir.resolve("cards.txt"), content, StandardCharsets.US_ASCII);
+    }
+}
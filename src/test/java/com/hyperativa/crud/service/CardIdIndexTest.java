@@ -0,0 +1,160 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import com.hyperativa.crud.security.CardHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CardIdIndexTest {
+
+    private static final long CAPACITY = 1 << 12;
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    @TempDir
+    Path dir;
+
+    private final CardHasher cardHasher = new CardHasher();
+    private CardIdIndex index;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    @DisplayName("Deve encontrar os ids gravados e não encontrar hashes ausentes")
+    void putAndFind() throws IOException {
+        index = open();
+
+        IntStream.rangeClosed(1, 1000).forEach(i -> index.put(hash(i), i));
+        index.put(hash(1), 1);
+
+        assertThat(index.size()).isEqualTo(1000);
+        assertThat(IntStream.rangeClosed(1, 1000)).allMatch(i -> index.find(hash(i)).orElseThrow() == (long) i);
+        assertThat(index.find(hash(1001))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve manter as entradas após encerramento limpo e descartá-las após encerramento abrupto")
+    void survivesCleanRestartOnly() throws IOException {
+        index = open();
+        index.put(hash(1), 1);
+        index.close();
+
+        index = open();
+        assertThat(index.find(hash(1))).contains(1L);
+
+        CardIdIndex crashed = index;
+        index = open();
+        assertThat(index.find(hash(1))).isEmpty();
+        crashed.close();
+    }
+
+    @Test
+    @DisplayName("Deve reconciliar com o banco a partir do último id já incorporado")
+    void reconcileFromWatermark() throws IOException {
+        index = open();
+        doAnswer(invocation -> {
+            ObjLongConsumer<CardHash> consumer = invocation.getArgument(2);
+            consumer.accept(hash(1), 1);
+            consumer.accept(hash(2), 2);
+            return 2L;
+        }).when(cardBatchRepository).forEachHashAfter(eq(0L), anyInt(), any());
+        doReturn(2L).when(cardBatchRepository).forEachHashAfter(eq(2L), anyInt(), any());
+
+        index.reconcile();
+
+        assertThat(index.find(hash(2))).contains(2L);
+        index.close();
+        index = open();
+        index.reconcile();
+        assertThat(index.find(hash(1))).contains(1L);
+        verify(cardBatchRepository, times(2)).forEachHashAfter(eq(2L), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Deve limitar os lotes por execução e continuar a reconstrução em uma thread própria")
+    void reconcileCatchesUpOnDedicatedThread() throws IOException {
+        index = open();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            long after = invocation.getArgument(0);
+            if (after == 5) {
+                return after;
+            }
+            invocation.<ObjLongConsumer<CardHash>>getArgument(2).accept(hash((int) after + 1), after + 1);
+            return after + 1;
+        }).when(cardBatchRepository).forEachHashAfter(anyLong(), anyInt(), any());
+
+        index.reconcile();
+
+        verify(cardBatchRepository, timeout(5_000)).forEachHashAfter(eq(5L), anyInt(), any());
+        assertThat(threads).containsExactlyInAnyOrder(Thread.currentThread().getName(), "card-id-index-reconcile");
+        assertThat(IntStream.rangeClosed(1, 5)).allMatch(i -> index.find(hash(i)).orElseThrow() == (long) i);
+    }
+
+    @Test
+    @DisplayName("Deve aceitar gravações e leituras concorrentes sem perder entradas")
+    void concurrentPuts() throws Exception {
+        index = open();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            executor.submit(() -> IntStream.rangeClosed(1, 3000)
+                    .filter(i -> i % 4 == thread)
+                    .forEach(i -> index.put(hash(i), i)));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(index.size()).isEqualTo(3000);
+        assertThat(IntStream.rangeClosed(1, 3000)).allMatch(i -> index.find(hash(i)).orElseThrow() == (long) i);
+    }
+
+    private CardIdIndex open() throws IOException {
+        CardIdIndex opened = new CardIdIndex(cardBatchRepository);
+        ReflectionTestUtils.setField(opened, "enabled", true);
+        ReflectionTestUtils.setField(opened, "path", dir.resolve("card-index.bin"));
+        ReflectionTestUtils.setField(opened, "capacity", CAPACITY);
+        ReflectionTestUtils.setField(opened, "reconcileBatchSize", 100);
+        ReflectionTestUtils.setField(opened, "reconcileMaxBatches", 2);
+        opened.open();
+        return opened;
+    }
+
+    private CardHash hash(int i) {
+        return new CardHash(cardHasher.hash(String.valueOf(4_000_000_000_000L + i)));
+    }
+}
@@ -1,88 +1,133 @@
 package com.hyperativa.crud.service;
 
+import com.hyperativa.crud.config.ReadYourWrites;
 import com.hyperativa.crud.domain.model.Card;
-import com.hyperativa.crud.domain.repository.CardRepository;
-import com.hyperativa.crud.exception.FileProcessingException;
-import com.hyperativa.crud.exception.HashGenerationException;
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.repository.CardBatchRepository;
+import com.hyperativa.crud.exception.InvalidCardNumberException;
+import com.hyperativa.crud.security.CardCipher;
+import com.hyperativa.crud.security.CardHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mock.web.MockMultipartFile;
+import org.mockito.stubbing.Answer;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.anyString;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class CardServiceTest {
 
-    public static final String CARD_NUMBER = "1234567890123";
+    public static final String CARD_NUMBER = "4111111111111111";
     @Mock
-    private CardRepository cardRepository;
+    private CardBatchRepository cardBatchRepository;
+
+    @Spy
+    private CardHasher cardHasher = new CardHasher();
+
+    @Mock
+    private CardCipher cardCipher;
+
+    @Mock
+    private CardBloomFilter cardBloomFilter;
+
+    @Mock
+    private CardIdIndex cardIdIndex;
+
+    @Mock
+    private ExecutorService cardIngestExecutor;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CardMetrics cardMetrics = new CardMetrics(meterRegistry);
 
     @InjectMocks
     private CardService cardService;
 
-    private static final String TEST_SECRET = "test-secret-key-at-least-256-bits-long";
-
     @BeforeEach
     void setUp() {
-        ReflectionTestUtils.setField(cardService, "secret", TEST_SECRET);
+        ReflectionTestUtils.setField(cardService, "inClauseSize", 2);
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(cardIngestExecutor).execute(any(Runnable.class));
+        lenient().when(cardBloomFilter.mightContain(any(CardHash.class))).thenReturn(true);
+        lenient().when(cardIdIndex.find(any(CardHash.class))).thenReturn(Optional.empty());
     }
 
     @Test
     @DisplayName("Deve salvar um novo cartão com sucesso")
     void saveCardNewSuccess() {
-        when(cardRepository.findByCardNumberHash(anyString())).thenReturn(Optional.empty());
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
-            Card card = invocation.getArgument(0);
-            return Card.builder()
-                    .id(1L)
-                    .cardNumberHash(card.getCardNumberHash())
-                    .encryptedCardNumber(card.getEncryptedCardNumber())
-                    .build();
-        });
+        when(cardCipher.encrypt(CARD_NUMBER)).thenReturn("v1:cifrado");
+        when(cardBatchRepository.upsert(any(Card.class))).thenReturn(1L);
 
         Long id = cardService.saveCard(CARD_NUMBER);
 
         assertThat(id).isEqualTo(1L);
-        verify(cardRepository).save(any(Card.class));
+        verify(cardBatchRepository).upsert(argThat(card -> "v1:cifrado".equals(card.getEncryptedCardNumber())
+                && card.getCardNumberHash().equals(new CardHash(cardHasher.hash(CARD_NUMBER)))));
+        verify(readYourWrites).markWrite();
+        verify(cardBloomFilter).put(new CardHash(cardHasher.hash(CARD_NUMBER)));
+        verify(cardBatchRepository, never()).findId(any(CardHash.class));
     }
 
     @Test
     @DisplayName("Deve retornar ID de cartão existente ao tentar salvar duplicata")
     void saveCardExistingSuccess() {
-        Card existingCard = Card.builder().id(10L).build();
-        when(cardRepository.findByCardNumberHash(anyString())).thenReturn(Optional.of(existingCard));
+        when(cardCipher.encrypt(CARD_NUMBER)).thenReturn("v1:cifrado");
+        when(cardBatchRepository.upsert(any(Card.class))).thenReturn(10L);
+
+        Long id = cardService.saveCard(CARD_NUMBER);
+
+        assertThat(id).isEqualTo(10L);
+        verify(cardIdIndex).put(new CardHash(cardHasher.hash(CARD_NUMBER)), 10L);
+    }
+
+    @Test
+    @DisplayName("Deve retornar ID do índice em memória sem acessar o banco ao salvar duplicata")
+    void saveCardExistingInIndex() {
+        when(cardIdIndex.find(new CardHash(cardHasher.hash(CARD_NUMBER)))).thenReturn(Optional.of(10L));
 
         Long id = cardService.saveCard(CARD_NUMBER);
 
         assertThat(id).isEqualTo(10L);
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardBatchRepository, never()).upsert(any(Card.class));
+        verify(cardCipher, never()).encrypt(anyString());
     }
 
     @Test
     @DisplayName("Deve encontrar ID do cartão pelo número")
     void findCardIdFound() {
-        Card existingCard = Card.builder().id(5L).build();
-        when(cardRepository.findByCardNumberHash(anyString())).thenReturn(Optional.of(existingCard));
+        when(cardBatchRepository.findId(any(CardHash.class))).thenReturn(Optional.of(5L));
 
         Optional<Long> result = cardService.findCardId(CARD_NUMBER);
 
@@ -92,53 +137,210 @@ class CardServiceTest {
     @Test
     @DisplayName("Deve retornar vazio ao buscar cartão inexistente")
     void findCardIdNotFound() {
-        when(cardRepository.findByCardNumberHash(anyString())).thenReturn(Optional.empty());
+        when(cardBatchRepository.findId(any(CardHash.class))).thenReturn(Optional.empty());
+
+        Optional<Long> result = cardService.findCardId(CARD_NUMBER);
+
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve responder cartão inexistente sem consultar o banco quando o filtro descartar o hash")
+    void findCardIdDefiniteMissSkipsDatabase() {
+        when(cardBloomFilter.mightContain(any(CardHash.class))).thenReturn(false);
 
         Optional<Long> result = cardService.findCardId(CARD_NUMBER);
 
         assertThat(result).isEmpty();
+        verify(cardBatchRepository, never()).findId(any(CardHash.class));
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco apesar do filtro logo após uma escrita do mesmo cliente")
+    void findCardIdInsideReadYourWritesWindowIgnoresFilter() {
+        when(cardBloomFilter.mightContain(any(CardHash.class))).thenReturn(false);
+        when(readYourWrites.mustReadPrimary()).thenReturn(true);
+        when(cardBatchRepository.findId(any(CardHash.class))).thenReturn(Optional.of(7L));
+
+        Optional<Long> result = cardService.findCardId(CARD_NUMBER);
+
+        assertThat(result).contains(7L);
     }
 
     @Test
-    @DisplayName("Deve processar arquivo TXT com múltiplos cartões")
-    void processFileSuccess(){
-        String content = "1111111111111\n2222222222222\n\n3333333333333";
-        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", content.getBytes());
-        
-        when(cardRepository.findByCardNumberHash(anyString())).thenReturn(Optional.empty());
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> Card.builder().id(1L).build());
+    @DisplayName("Deve consultar vários cartões com consultas IN e retornar os ids na ordem recebida")
+    void findCardIds() {
+        CardHash first = new CardHash(cardHasher.hash("4111111111111111"));
+        CardHash second = new CardHash(cardHasher.hash("5555555555554444"));
+        CardHash third = new CardHash(cardHasher.hash("4000000000000002"));
+        when(cardBatchRepository.findIds(List.of(first, second))).thenReturn(Map.of(first, 1L));
+        when(cardBatchRepository.findIds(List.of(third))).thenReturn(Map.of(third, 3L));
 
-        Long count = cardService.processFile(file);
+        List<Long> ids = cardService.findCardIds(Arrays.asList(
+                "4111111111111111", "5555555555554444", " ", "4000000000000002", "4111111111111111", null));
 
-        assertThat(count).isEqualTo(3L);
-        verify(cardRepository, times(3)).save(any(Card.class));
+        assertThat(ids).containsExactly(1L, null, null, 3L, 1L, null);
+        verify(cardIdIndex).put(first, 1L);
+        verify(cardIdIndex).put(third, 3L);
     }
 
     @Test
-    @DisplayName("Deve lançar FileProcessingException ao ocorrer erro de leitura")
-    void processFileError() throws IOException {
-        MultipartFileMock fileMock = mock(MultipartFileMock.class);
-        when(fileMock.getInputStream()).thenThrow(new IOException("Simulated error"));
+    @DisplayName("Deve responder pelo índice em memória sem consultar o banco e alimentá-lo nas consultas ao banco")
+    void findCardIdUsesIndex() {
+        CardHash hash = new CardHash(cardHasher.hash(CARD_NUMBER));
+        when(cardIdIndex.find(hash)).thenReturn(Optional.of(5L));
 
-        assertThatThrownBy(() -> cardService.processFile(fileMock))
-                .isInstanceOf(FileProcessingException.class)
-                .hasMessageContaining("Falha ao processar arquivo");
+        assertThat(cardService.findCardId(CARD_NUMBER)).contains(5L);
+        verify(cardBatchRepository, never()).findId(any(CardHash.class));
+
+        when(cardIdIndex.find(hash)).thenReturn(Optional.empty());
+        when(cardBatchRepository.findId(hash)).thenReturn(Optional.of(5L));
+
+        assertThat(cardService.findCardId(CARD_NUMBER)).contains(5L);
+        verify(cardIdIndex).put(hash, 5L);
     }
 
     @Test
-    @DisplayName("Deve lançar HashGenerationException quando MessageDigest.getInstance falhar")
-    void saveCardHashGenerationError() {
+    @DisplayName("Deve ingerir um lote com uma consulta IN e um INSERT em lote, retornando o resultado por linha")
+    void ingestSuccess() {
+        when(cardBatchRepository.findIds(anyCollection())).thenReturn(Map.of());
+        when(cardBatchRepository.upsertAll(anyList())).thenAnswer(upsertAssigning(1L, 2L));
 
-        try (var mockedStatic = mockStatic(MessageDigest.class)) {
-            mockedStatic.when(() -> MessageDigest.getInstance("SHA-256"))
-                    .thenThrow(new NoSuchAlgorithmException("Algorithm not found"));
+        List<CardIngestResult> results = cardService.ingest(List.of("4000000000000002", " 5555 5555 5555 4444 "));
 
-            assertThatThrownBy(() -> cardService.saveCard(CARD_NUMBER))
-                    .isInstanceOf(HashGenerationException.class)
-                    .hasMessageContaining("Erro ao gerar hash do cartão")
-                    .hasCauseInstanceOf(NoSuchAlgorithmException.class);
-        }
+        assertThat(results).containsExactly(CardIngestResult.inserted(1L), CardIngestResult.inserted(2L));
+        verify(cardBatchRepository).findIds(argThat(hashes -> hashes.size() == 2));
+        verify(cardBatchRepository).upsertAll(argThat(cards -> cards.size() == 2));
     }
 
-    interface MultipartFileMock extends org.springframework.web.multipart.MultipartFile {}
+    @Test
+    @DisplayName("Deve marcar como duplicados cartões já cadastrados ou repetidos no mesmo lote")
+    void ingestDuplicates() {
+        when(cardBatchRepository.findIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<CardHash> hashes = invocation.getArgument(0);
+            assertThat(hashes).hasSize(2);
+            return Map.of(hashes.iterator().next(), 7L);
+        });
+        when(cardBatchRepository.upsertAll(anyList())).thenAnswer(upsertAssigning(8L));
+
+        List<CardIngestResult> results = cardService.ingest(
+                List.of("4000000000000002", "5555555555554444", "4000000000000002", "5555555555554444"));
+
+        assertThat(results).containsExactly(
+                CardIngestResult.duplicate(7L),
+                CardIngestResult.inserted(8L),
+                CardIngestResult.duplicate(7L),
+                CardIngestResult.duplicate(8L));
+        verify(cardBatchRepository).upsertAll(argThat((List<Card> cards) -> cards.size() == 1));
+        assertThat(ingested("inserted")).isEqualTo(1);
+        assertThat(ingested("duplicate")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve marcar como duplicado o cartão inserido por outra requisição entre a consulta e o INSERT")
+    void ingestConcurrentDuplicate() {
+        when(cardBatchRepository.findIds(anyCollection())).thenReturn(Map.of());
+        when(cardBatchRepository.upsertAll(anyList())).thenAnswer(invocation -> {
+            Card card = invocation.<List<Card>>getArgument(0).get(0);
+            card.setId(9L);
+            return Map.of(card.getCardNumberHash(), 3L);
+        });
+
+        List<CardIngestResult> results = cardService.ingest(List.of("4000000000000002"));
+
+        assertThat(results).containsExactly(CardIngestResult.duplicate(3L));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar linhas com tamanho, caracteres ou dígito verificador inválidos sem ir ao banco")
+    void ingestRejectsInvalidLines() {
+        ReflectionTestUtils.setField(cardService, "luhnCheck", true);
+        List<CardIngestResult> results = cardService.ingest(
+                List.of("123", "12345678901234567890", "4111111111111112", "4111 1111 1111 111a"));
+
+        assertThat(results).extracting(CardIngestResult::outcome)
+                .containsOnly(CardIngestResult.Outcome.REJECTED);
+        verify(cardBatchRepository, never()).findIds(anyCollection());
+        verify(cardBatchRepository, never()).upsertAll(anyList());
+        assertThat(ingested("rejected")).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar o número com espaços ou hífens com o mesmo hash do número só com dígitos")
+    void saveCardNormalizesSeparators() {
+        when(cardCipher.encrypt(CARD_NUMBER)).thenReturn("v1:cifrado");
+        when(cardBatchRepository.upsert(any(Card.class))).thenReturn(1L);
+
+        cardService.saveCard("4111 1111-1111 1111");
+
+        verify(cardBatchRepository).upsert(argThat(card ->
+                card.getCardNumberHash().equals(new CardHash(cardHasher.hash(CARD_NUMBER)))));
+    }
+
+    @Test
+    @DisplayName("Deve recusar o cadastro de número com dígito verificador inválido sem acessar o banco")
+    void saveCardRejectsInvalidLuhn() {
+        ReflectionTestUtils.setField(cardService, "luhnCheck", true);
+        assertThatThrownBy(() -> cardService.saveCard("4111111111111112"))
+                .isInstanceOf(InvalidCardNumberException.class);
+
+        verify(cardBatchRepository, never()).upsert(any(Card.class));
+        verify(cardCipher, never()).encrypt(anyString());
+        assertThat(ingested("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar número com dígito verificador inválido quando o Luhn não é verificado (padrão)")
+    void saveCardAcceptsInvalidLuhnByDefault() {
+        when(cardCipher.encrypt("4111111111111112")).thenReturn("v1:cifrado");
+        when(cardBatchRepository.upsert(any(Card.class))).thenReturn(1L);
+
+        assertThat(cardService.saveCard("4111111111111112")).isEqualTo(1L);
+        verify(cardBatchRepository).upsert(argThat(card ->
+                card.getCardNumberHash().equals(new CardHash(cardHasher.hash("4111111111111112")))));
+    }
+
+    @Test
+    @DisplayName("Deve consultar o número com separadores pelo mesmo hash e descartar números inválidos")
+    void findCardIdNormalizes() {
+        when(cardBatchRepository.findId(new CardHash(cardHasher.hash(CARD_NUMBER)))).thenReturn(Optional.of(5L));
+
+        assertThat(cardService.findCardId("4111-1111-1111-1111")).contains(5L);
+        assertThat(cardService.findCardId("4111 1111 abcd 1111")).isEmpty();
+        verify(cardBatchRepository).findId(any(CardHash.class));
+    }
+
+    @Test
+    @DisplayName("Deve medir o hash, a cifra e a gravação de cada cartão cadastrado")
+    void saveCardRecordsMetrics() {
+        when(cardCipher.encrypt(CARD_NUMBER)).thenReturn("v1:cifrado");
+        when(cardBatchRepository.upsert(any(Card.class))).thenAnswer(invocation -> {
+            invocation.<Card>getArgument(0).setId(4L);
+            return 4L;
+        });
+
+        cardService.saveCard(CARD_NUMBER);
+
+        assertThat(meterRegistry.get("cards.hash").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cards.encrypt").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cards.repository").tag("operation", "upsert").timer().count()).isEqualTo(1);
+        assertThat(ingested("inserted")).isEqualTo(1);
+        assertThat(ingested("duplicate")).isZero();
+    }
+
+    private double ingested(String result) {
+        return meterRegistry.get("cards.ingested").tag("result", result).counter().count();
+    }
+
+    private static Answer<Map<CardHash, Long>> upsertAssigning(Long... ids) {
+        return invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            Map<CardHash, Long> upserted = new HashMap<>();
+            for (int i = 0; i < cards.size(); i++) {
+                cards.get(i).setId(ids[i]);
+                upserted.put(cards.get(i).getCardNumberHash(), ids[i]);
+            }
+            return upserted;
+        };
+    }
 }
@@ -0,0 +1,72 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.domain.model.CardHash;
+import com.hyperativa.crud.domain.repository.ReactiveCardRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCardServiceTest {
+
+    private static final String CARD_NUMBER = "4456897999999999";
+    private static final CardHash HASH = new CardHash(new byte[CardHash.LENGTH]);
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private ReactiveCardRepository reactiveCardRepository;
+
+    @InjectMocks
+    private ReactiveCardService reactiveCardService;
+
+    @Test
+    @DisplayName("Deve responder sem consultar o banco quando o filtro garante que o cartão não existe")
+    void absentWithoutDatabase() {
+        when(cardService.lookup(CARD_NUMBER)).thenReturn(CardLookup.absent(HASH));
+
+        assertThat(reactiveCardService.findCardId(CARD_NUMBER).blockOptional()).isEmpty();
+        verifyNoInteractions(reactiveCardRepository);
+    }
+
+    @Test
+    @DisplayName("Deve responder pelo índice sem consultar o banco")
+    void foundInIndex() {
+        when(cardService.lookup(CARD_NUMBER)).thenReturn(CardLookup.found(HASH, 5L));
+
+        assertThat(reactiveCardService.findCardId(CARD_NUMBER).blockOptional()).contains(5L);
+        verifyNoInteractions(reactiveCardRepository);
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco via R2DBC e registrar o id encontrado no índice")
+    void foundInDatabase() {
+        when(cardService.lookup(CARD_NUMBER)).thenReturn(CardLookup.unresolved(HASH));
+        when(reactiveCardRepository.findIdByCardNumberHash(HASH)).thenReturn(Mono.just(9L));
+
+        assertThat(reactiveCardService.findCardId(CARD_NUMBER).blockOptional()).contains(9L);
+        verify(cardService).remember(HASH, 9L);
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio quando o banco não encontra o cartão")
+    void notFoundInDatabase() {
+        when(cardService.lookup(CARD_NUMBER)).thenReturn(CardLookup.unresolved(HASH));
+        when(reactiveCardRepository.findIdByCardNumberHash(HASH)).thenReturn(Mono.empty());
+
+        assertThat(reactiveCardService.findCardId(CARD_NUMBER).blockOptional()).isEmpty();
+        verify(cardService, never()).remember(any(), any(Long.class));
+    }
+}
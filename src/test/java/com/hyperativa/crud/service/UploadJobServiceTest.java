@@ -0,0 +1,344 @@
+package com.hyperativa.crud.service;
+
+import com.hyperativa.crud.config.ReadYourWrites;
+import com.hyperativa.crud.domain.model.UploadJob;
+import com.hyperativa.crud.domain.model.UploadJobStatus;
+import com.hyperativa.crud.domain.repository.UploadJobRepository;
+import com.hyperativa.crud.dto.UploadJobResponse;
+import com.hyperativa.crud.exception.FileProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadJobServiceTest {
+
+    @Mock
+    private UploadJobRepository uploadJobRepository;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private ExecutorService uploadJobExecutor;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CardMetrics cardMetrics = new CardMetrics(meterRegistry);
+
+    @InjectMocks
+    private UploadJobService uploadJobService;
+
+    @TempDir
+    Path spoolDir;
+
+    private final Map<String, UploadJob> jobs = new HashMap<>();
+
+    // resultado da ingestão por lote, pelos números normalizados ({@code null} = linha inválida)
+    private final Map<List<String>, List<CardIngestResult>> ingestResults = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(uploadJobService, "spoolDir", spoolDir);
+        ReflectionTestUtils.setField(uploadJobService, "chunkSize", 2);
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(uploadJobExecutor).execute(any(Runnable.class));
+        lenient().when(uploadJobRepository.save(any(UploadJob.class))).thenAnswer(invocation -> {
+            UploadJob job = invocation.getArgument(0);
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        lenient().when(uploadJobRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.<String>getArgument(0))));
+        lenient().when(cardService.ingest(any(CardNumberBatch.class))).thenAnswer(invocation ->
+                ingestResults.get(invocation.<CardNumberBatch>getArgument(0).cardNumbers()));
+        lenient().when(uploadJobRepository.heartbeat(anyString(), anyString())).thenAnswer(invocation -> {
+            UploadJob job = jobs.get(invocation.<String>getArgument(0));
+            return job != null && invocation.getArgument(1).equals(job.getOwner()) ? 1 : 0;
+        });
+        // sem heartbeat nos testes: todo job pendente de outro dono está abandonado
+        lenient().when(uploadJobRepository.claimStale(anyString(), anyString(), anyLong())).thenAnswer(invocation -> {
+            UploadJob job = jobs.get(invocation.<String>getArgument(0));
+            if (job == null || job.getStatus() == UploadJobStatus.FAILED || job.getStatus() == UploadJobStatus.COMPLETED) {
+                return 0;
+            }
+            job.setOwner(invocation.getArgument(1));
+            return 1;
+        });
+        lenient().when(uploadJobRepository.claimFailed(anyString(), anyString())).thenAnswer(invocation -> {
+            UploadJob job = jobs.get(invocation.<String>getArgument(0));
+            if (job == null || job.getStatus() != UploadJobStatus.FAILED) {
+                return 0;
+            }
+            job.setStatus(UploadJobStatus.PENDING);
+            job.setErrorMessage(null);
+            job.setOwner(invocation.getArgument(1));
+            return 1;
+        });
+    }
+
+    @Test
+    @DisplayName("Deve armazenar o arquivo, processar em lotes e gerar o relatório por linha")
+    void submitProcessesFileInBackground() throws IOException {
+        String content = "4111111111111111\n123\n\n5555 5555 5555 4444\r\n4111-1111-1111-1111\n";
+        MockMultipartFile file = new MockMultipartFile("file", "cards.txt", "text/plain", content.getBytes());
+        ingestResults.put(Arrays.asList("4111111111111111", null),
+                List.of(CardIngestResult.inserted(1L), CardIngestResult.rejected("Número do cartão inválido")));
+        ingestResults.put(List.of("5555555555554444", "4111111111111111"),
+                List.of(CardIngestResult.inserted(2L), CardIngestResult.duplicate(1L)));
+
+        UploadJobResponse response = uploadJobService.submit(file);
+
+        UploadJob job = jobs.get(response.jobId());
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.COMPLETED);
+        assertThat(job.getProcessedBytes()).isEqualTo(content.length());
+        assertThat(job.getLinesProcessed()).isEqualTo(5);
+        assertThat(job.getInserted()).isEqualTo(2);
+        assertThat(job.getDuplicates()).isEqualTo(1);
+        assertThat(job.getRejected()).isEqualTo(1);
+        assertThat(Files.readAllLines(spoolDir.resolve(response.jobId() + ".report.csv"), StandardCharsets.UTF_8))
+                .containsExactly(
+                        "line,status,id,error",
+                        "1,INSERTED,1,",
+                        "2,REJECTED,,Número do cartão inválido",
+                        "4,INSERTED,2,",
+                        "5,DUPLICATE,1,");
+        assertThat(meterRegistry.get("cards.upload.size").summary().totalAmount()).isEqualTo(content.length());
+        assertThat(meterRegistry.get("cards.upload.rows").summary().totalAmount()).isEqualTo(5);
+        assertThat(meterRegistry.get("cards.upload.throughput").summary().count()).isEqualTo(1);
+        verify(readYourWrites).markWrite();
+    }
+
+    @Test
+    @DisplayName("Deve retomar o job a partir do último checkpoint gravado")
+    void resumeInterruptedJobFromCheckpoint() throws IOException {
+        String processed = "4111111111111111\n5555555555554444\n";
+        String content = processed + "4000000000000002\n";
+        Files.writeString(spoolDir.resolve("job-1.txt"), content);
+        Files.writeString(spoolDir.resolve("job-1.report.csv"), "line,status,id,error\n1,INSERTED,1,\n2,INSERTED,2,\nlixo");
+        UploadJob job = UploadJob.builder()
+                .id("job-1")
+                .filename("cards.txt")
+                .status(UploadJobStatus.RUNNING)
+                .totalBytes(content.length())
+                .build();
+        job.setProcessedBytes(processed.length());
+        job.setLinesProcessed(2);
+        job.setInserted(2);
+        job.setReportBytes("line,status,id,error\n1,INSERTED,1,\n2,INSERTED,2,\n".length());
+        jobs.put(job.getId(), job);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+        ingestResults.put(List.of("4000000000000002"), List.of(CardIngestResult.inserted(3L)));
+
+        uploadJobService.resumeInterruptedJobs();
+
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.COMPLETED);
+        assertThat(job.getInserted()).isEqualTo(3);
+        assertThat(job.getLinesProcessed()).isEqualTo(3);
+        assertThat(Files.readAllLines(spoolDir.resolve("job-1.report.csv")))
+                .containsExactly("line,status,id,error", "1,INSERTED,1,", "2,INSERTED,2,", "3,INSERTED,3,");
+    }
+
+    @Test
+    @DisplayName("Não deve assumir o job cujo dono ainda renova o heartbeat")
+    void resumeSkipsJobWithLiveOwner() throws IOException {
+        Files.writeString(spoolDir.resolve("job-1.txt"), "4111111111111111\n");
+        UploadJob job = UploadJob.builder()
+                .id("job-1")
+                .filename("cards.txt")
+                .status(UploadJobStatus.RUNNING)
+                .totalBytes(17)
+                .owner("outra-instancia")
+                .build();
+        jobs.put(job.getId(), job);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+        when(uploadJobRepository.claimStale(eq("job-1"), anyString(), anyLong())).thenReturn(0);
+
+        uploadJobService.resumeInterruptedJobs();
+
+        verify(uploadJobExecutor, never()).execute(any(Runnable.class));
+        assertThat(job.getOwner()).isEqualTo("outra-instancia");
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.RUNNING);
+    }
+
+    @Test
+    @DisplayName("Deve renovar o heartbeat dos jobs ativos em uma thread própria, fora do agendador compartilhado")
+    @SuppressWarnings("unchecked")
+    void heartbeatRunsOnDedicatedThread() {
+        ReflectionTestUtils.setField(uploadJobService, "heartbeatIntervalMillis", 10L);
+        ((Set<String>) ReflectionTestUtils.getField(uploadJobService, "activeJobs")).add("job-1");
+        List<String> threads = new CopyOnWriteArrayList<>();
+        when(uploadJobRepository.heartbeat(eq("job-1"), anyString())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return 1;
+        });
+
+        uploadJobService.startHeartbeat();
+
+        verify(uploadJobRepository, timeout(5_000).atLeast(2)).heartbeat(eq("job-1"), anyString());
+        uploadJobService.stopHeartbeat();
+        assertThat(List.copyOf(threads)).allMatch(name -> name.startsWith("upload-job-heartbeat-"));
+    }
+
+    @Test
+    @DisplayName("Deve parar sem gravar relatório nem checkpoint quando outra instância assumir o job")
+    void runStopsWhenJobIsTakenOver() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "cards.txt", "text/plain",
+                "4111111111111111\n5555555555554444\n4000000000000002\n".getBytes());
+        when(cardService.ingest(any(CardNumberBatch.class))).thenAnswer(invocation -> {
+            jobs.values().forEach(job -> job.setOwner("outra-instancia"));
+            return List.of(CardIngestResult.inserted(1L), CardIngestResult.inserted(2L));
+        });
+
+        UploadJobResponse response = uploadJobService.submit(file);
+
+        UploadJob job = jobs.get(response.jobId());
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.RUNNING);
+        assertThat(job.getLinesProcessed()).isZero();
+        assertThat(job.getFinishedAt()).isNull();
+        assertThat(Files.readString(spoolDir.resolve(response.jobId() + ".report.csv")))
+                .isEqualTo("line,status,id,error\n");
+    }
+
+    @Test
+    @DisplayName("Deve calcular a vazão apenas com as linhas da execução atual")
+    void rateCountsOnlyCurrentRun() {
+        UploadJob job = UploadJob.builder()
+                .id("job-1")
+                .filename("cards.txt")
+                .status(UploadJobStatus.RUNNING)
+                .totalBytes(3_000)
+                .build();
+        job.setStartedAt(LocalDateTime.now().minusHours(1));
+        job.setRunStartedAt(LocalDateTime.now().minusSeconds(10));
+        job.setRunStartLines(1_000);
+        job.setRunStartBytes(1_000);
+        job.setLinesProcessed(1_100);
+        job.setProcessedBytes(2_000);
+        jobs.put(job.getId(), job);
+
+        UploadJobResponse response = uploadJobService.findJob("job-1").orElseThrow();
+
+        // 100 linhas e 1000 bytes em ~10s: ~10 linhas/s e ~10s para os 1000 bytes restantes
+        assertThat(response.rowsPerSecond()).isBetween(9.0, 10.1);
+        assertThat(response.etaSeconds()).isBetween(9L, 11L);
+    }
+
+    @Test
+    @DisplayName("Deve marcar o job como falho mantendo o checkpoint quando a ingestão falhar")
+    void runFailureKeepsCheckpoint() {
+        MockMultipartFile file = new MockMultipartFile("file", "cards.txt", "text/plain",
+                "4111111111111111\n5555555555554444\n4000000000000002\n".getBytes());
+        when(cardService.ingest(any(CardNumberBatch.class)))
+                .thenReturn(List.of(CardIngestResult.inserted(1L), CardIngestResult.inserted(2L)))
+                .thenThrow(new IllegalStateException("Banco indisponível"));
+
+        UploadJobResponse response = uploadJobService.submit(file);
+
+        UploadJob job = jobs.get(response.jobId());
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.FAILED);
+        assertThat(job.getLinesProcessed()).isEqualTo(2);
+        assertThat(job.getErrorMessage()).isEqualTo("Falha ao processar arquivo na linha 3");
+    }
+
+    @Test
+    @DisplayName("Não deve contar duas vezes o lote cuja gravação do relatório falhou antes do checkpoint")
+    void reportFailureDoesNotDoubleCount() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "cards.txt", "text/plain",
+                "4111111111111111\n5555555555554444\n4000000000000002\n".getBytes());
+        List<CardIngestResult> failingResults = new AbstractList<>() {
+            @Override
+            public CardIngestResult get(int index) {
+                if (index > 0) {
+                    throw new IllegalStateException("Falha ao gravar o relatório");
+                }
+                return CardIngestResult.inserted(1L);
+            }
+
+            @Override
+            public int size() {
+                return 2;
+            }
+        };
+        when(cardService.ingest(any(CardNumberBatch.class))).thenReturn(failingResults);
+
+        UploadJobResponse response = uploadJobService.submit(file);
+
+        UploadJob job = jobs.get(response.jobId());
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.FAILED);
+        assertThat(job.getInserted()).isZero();
+        assertThat(job.getProcessedBytes()).isZero();
+
+        when(cardService.ingest(any(CardNumberBatch.class))).thenAnswer(invocation ->
+                ingestResults.get(invocation.<CardNumberBatch>getArgument(0).cardNumbers()));
+        ingestResults.put(List.of("4111111111111111", "5555555555554444"),
+                List.of(CardIngestResult.inserted(1L), CardIngestResult.inserted(2L)));
+        ingestResults.put(List.of("4000000000000002"), List.of(CardIngestResult.inserted(3L)));
+
+        uploadJobService.resume(job.getId());
+
+        assertThat(job.getStatus()).isEqualTo(UploadJobStatus.COMPLETED);
+        assertThat(job.getInserted()).isEqualTo(3);
+        assertThat(job.getLinesProcessed()).isEqualTo(3);
+        assertThat(Files.readAllLines(spoolDir.resolve(job.getId() + ".report.csv")))
+                .containsExactly("line,status,id,error", "1,INSERTED,1,", "2,INSERTED,2,", "3,INSERTED,3,");
+    }
+
+    @Test
+    @DisplayName("Deve lançar FileProcessingException quando não for possível armazenar o arquivo")
+    void submitSpoolError() throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        doThrow(new IOException("Simulated error")).when(file).transferTo(any(Path.class));
+
+        assertThatThrownBy(() -> uploadJobService.submit(file))
+                .isInstanceOf(FileProcessingException.class)
+                .hasMessageContaining("Falha ao armazenar arquivo");
+        verify(uploadJobExecutor, never()).execute(any(Runnable.class));
+    }
+}